@@ -1,3 +1,5 @@
+import error.ErrorCollector;
+import error.ErrorManager;
 import utils.EnvInitializer;
 import front.frontManager;
 import middle.middleManager;
@@ -38,6 +40,11 @@ public class Compiler {
         EnvInitializer.initializeIO();
         String testCode = EnvInitializer.readTestFile();
 
+        /**
+         * 本次编译独占的错误收集器
+         */
+        ErrorManager.setCollector(new ErrorCollector());
+
         /**
          * 将读入的文件的内容输入到Lexer进行词法分析
          */
@@ -0,0 +1,219 @@
+package back.mips;
+
+import middle.llvm.value.IRBasicBlock;
+import middle.llvm.value.IRFunction;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.instruction.IRInstruction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基本块布局
+ * <p>决定函数中基本块的输出顺序，尽量让跳转目标紧跟在跳转之后，从而省去 j 或让条件跳转取反后直接落入下一块</p>
+ * <ul>
+ *   <li>从入口块开始贪心成链：当前块之后放一个尚未放置的后继</li>
+ *   <li>后继的优先级：循环深度更深者优先（循环体连续放置）；
+ *       其次是所有前向前驱都已放置者（if-else 的汇合块排在两个分支之后）；最后按原顺序</li>
+ *   <li>链断开（后继都已放置）时，从原顺序中第一个未放置的块重新开始</li>
+ *   <li>循环旋转：头部条件判断移到 latch 之后，latch 落入头部，头部条件跳回循环体、不成立时落入出口，
+ *       每轮迭代只执行一条跳转，代价是进入循环时多一条 j</li>
+ * </ul>
+ * <p>CFG 由终结指令直接求出，不依赖中端的 BuildCFG 结果（RemovePhi 之后可能新增了块）</p>
+ */
+public class BlockLayout {
+    private final List<IRBasicBlock> blocks;
+    private final Map<IRBasicBlock, List<IRBasicBlock>> successors = new HashMap<>();
+    private final Map<IRBasicBlock, List<IRBasicBlock>> predecessors = new HashMap<>();
+    // 回边 (from -> to)，按 from 记录
+    private final Map<IRBasicBlock, Set<IRBasicBlock>> backEdges = new HashMap<>();
+    private final Map<IRBasicBlock, Integer> loopDepth = new HashMap<>();
+    // 循环头 -> 循环体（含头部）
+    private final Map<IRBasicBlock, Set<IRBasicBlock>> loopBodies = new HashMap<>();
+    private final Map<IRBasicBlock, Integer> originalIndex = new HashMap<>();
+
+    public BlockLayout(IRFunction function) {
+        this.blocks = new ArrayList<>(function.getBasicBlocks());
+        for (int i = 0; i < blocks.size(); i++) {
+            IRBasicBlock block = blocks.get(i);
+            originalIndex.put(block, i);
+            successors.put(block, new ArrayList<>());
+            predecessors.put(block, new ArrayList<>());
+            backEdges.put(block, new HashSet<>());
+            loopDepth.put(block, 0);
+        }
+        buildEdges();
+        if (!blocks.isEmpty()) {
+            findBackEdges(blocks.get(0), new HashSet<>(), new HashSet<>());
+        }
+        computeLoopDepth();
+    }
+
+    private void buildEdges() {
+        for (IRBasicBlock block : blocks) {
+            IRInstruction terminator = block.getLastInstruction();
+            if (terminator == null) {
+                continue;
+            }
+            Set<IRBasicBlock> targets = new LinkedHashSet<>();
+            for (int i = 0; i < terminator.getOperandCount(); i++) {
+                IRValue operand = terminator.getOperand(i);
+                if (operand instanceof IRBasicBlock target && successors.containsKey(target)) {
+                    targets.add(target);
+                }
+            }
+            for (IRBasicBlock target : targets) {
+                successors.get(block).add(target);
+                predecessors.get(target).add(block);
+            }
+        }
+    }
+
+    /**
+     * DFS 中指向栈上块的边即回边
+     */
+    private void findBackEdges(IRBasicBlock block, Set<IRBasicBlock> visited, Set<IRBasicBlock> onStack) {
+        visited.add(block);
+        onStack.add(block);
+        for (IRBasicBlock succ : successors.get(block)) {
+            if (onStack.contains(succ)) {
+                backEdges.get(block).add(succ);
+            } else if (!visited.contains(succ)) {
+                findBackEdges(succ, visited, onStack);
+            }
+        }
+        onStack.remove(block);
+    }
+
+    /**
+     * 每条回边 latch -> header 对应一个自然循环：从 latch 逆向走到 header 的所有块，循环内块深度加一
+     */
+    private void computeLoopDepth() {
+        for (IRBasicBlock latch : blocks) {
+            for (IRBasicBlock header : backEdges.get(latch)) {
+                Set<IRBasicBlock> body = new HashSet<>();
+                body.add(header);
+                List<IRBasicBlock> workList = new ArrayList<>();
+                if (body.add(latch)) {
+                    workList.add(latch);
+                }
+                while (!workList.isEmpty()) {
+                    IRBasicBlock cur = workList.remove(workList.size() - 1);
+                    for (IRBasicBlock pred : predecessors.get(cur)) {
+                        if (body.add(pred)) {
+                            workList.add(pred);
+                        }
+                    }
+                }
+                for (IRBasicBlock block : body) {
+                    loopDepth.merge(block, 1, Integer::sum);
+                }
+                loopBodies.computeIfAbsent(header, k -> new HashSet<>()).addAll(body);
+            }
+        }
+    }
+
+    /**
+     * 所有非回边前驱都已放置
+     */
+    private boolean isReady(IRBasicBlock block, Set<IRBasicBlock> placed) {
+        for (IRBasicBlock pred : predecessors.get(block)) {
+            if (!placed.contains(pred) && !backEdges.get(pred).contains(block)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 计算布局顺序，入口块始终在最前
+     */
+    public List<IRBasicBlock> getOrder() {
+        List<IRBasicBlock> order = new ArrayList<>();
+        Set<IRBasicBlock> placed = new HashSet<>();
+        int scan = 0;
+        IRBasicBlock current = blocks.isEmpty() ? null : blocks.get(0);
+        while (current != null) {
+            order.add(current);
+            placed.add(current);
+
+            IRBasicBlock next = null;
+            for (IRBasicBlock succ : successors.get(current)) {
+                if (placed.contains(succ)) {
+                    continue;
+                }
+                if (next == null || isPreferred(succ, next, placed)) {
+                    next = succ;
+                }
+            }
+            if (next == null) {
+                while (scan < blocks.size() && placed.contains(blocks.get(scan))) {
+                    scan++;
+                }
+                next = scan < blocks.size() ? blocks.get(scan) : null;
+            }
+            current = next;
+        }
+        for (IRBasicBlock header : loopBodies.keySet()) {
+            rotateLoop(order, header);
+        }
+        return order;
+    }
+
+    /**
+     * 把循环头移到唯一的 latch 之后
+     * 条件：头部以两路跳转结尾，一路进入紧随其后的循环体、一路离开循环；
+     * 头部到 latch 之间连续放置的都是循环体内的块
+     */
+    private void rotateLoop(List<IRBasicBlock> order, IRBasicBlock header) {
+        Set<IRBasicBlock> body = loopBodies.get(header);
+        List<IRBasicBlock> latches = new ArrayList<>();
+        for (IRBasicBlock pred : predecessors.get(header)) {
+            if (backEdges.get(pred).contains(header)) {
+                latches.add(pred);
+            }
+        }
+        List<IRBasicBlock> succs = successors.get(header);
+        if (latches.size() != 1 || latches.get(0) == header || succs.size() != 2) {
+            return;
+        }
+        IRBasicBlock latch = latches.get(0);
+        if (successors.get(latch).size() != 1) {
+            return;
+        }
+        int headerPos = order.indexOf(header);
+        int latchPos = order.indexOf(latch);
+        if (headerPos + 1 >= order.size() || latchPos < headerPos) {
+            return;
+        }
+        IRBasicBlock first = order.get(headerPos + 1);
+        IRBasicBlock other = succs.get(0) == first ? succs.get(1) : succs.get(0);
+        if (!succs.contains(first) || !body.contains(first) || body.contains(other)) {
+            return;
+        }
+        for (int i = headerPos + 1; i <= latchPos; i++) {
+            if (!body.contains(order.get(i))) {
+                return;
+            }
+        }
+        order.remove(headerPos);
+        order.add(latchPos, header);
+    }
+
+    private boolean isPreferred(IRBasicBlock a, IRBasicBlock b, Set<IRBasicBlock> placed) {
+        int depthA = loopDepth.get(a), depthB = loopDepth.get(b);
+        if (depthA != depthB) {
+            return depthA > depthB;
+        }
+        boolean readyA = isReady(a, placed), readyB = isReady(b, placed);
+        if (readyA != readyB) {
+            return readyA;
+        }
+        return originalIndex.get(a) < originalIndex.get(b);
+    }
+}
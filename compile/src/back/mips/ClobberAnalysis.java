@@ -0,0 +1,162 @@
+package back.mips;
+
+import back.mips.register.Reg;
+import back.mips.register.RegisterFile;
+import middle.llvm.IRModule;
+import middle.llvm.value.IRFunction;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.instruction.CallInstruction;
+import middle.llvm.value.instruction.IRInstruction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 过程间寄存器破坏摘要
+ * <p>对每个用户函数求出调用它可能改写的、会承载值的寄存器，调用点只需保存 "跨越调用活跃且被破坏" 的寄存器</p>
+ * <ul>
+ *   <li>函数自身：分配给值的调用者保存寄存器；被调用者保存寄存器由序言/尾声恢复，不算破坏</li>
+ *   <li>含调用（包括库函数与输出系统调用）时，$a0-$a3 会被用于传参，整体计入</li>
+ *   <li>沿调用图自底向上合并被调函数的摘要；递归的强连通分量无法确定，保守视为破坏全部调用者保存寄存器与 $a0-$a3</li>
+ * </ul>
+ * <p>摘要依赖寄存器分配结果，首次查询时计算并缓存：图着色分配器按 getBottomUpOrder 先分配被调函数，
+ * 再据摘要为跨越调用的值挑选不被破坏的寄存器；后端在分配完成后重新构造一份用于调用点保存</p>
+ */
+public class ClobberAnalysis {
+    private final Map<IRFunction, Set<Reg>> clobbered = new HashMap<>();
+    private final Map<IRFunction, Set<IRFunction>> callGraph = new LinkedHashMap<>();
+    private final Set<IRFunction> recursiveFunctions = new HashSet<>();
+    // 被调者先于调用者
+    private final List<IRFunction> bottomUpOrder = new ArrayList<>();
+
+    // Tarjan 强连通分量求解状态
+    private final Map<IRFunction, Integer> index = new HashMap<>();
+    private final Map<IRFunction, Integer> lowLink = new HashMap<>();
+    private final Deque<IRFunction> stack = new ArrayDeque<>();
+    private final Set<IRFunction> onStack = new HashSet<>();
+    private int nextIndex = 0;
+
+    public ClobberAnalysis(IRModule module) {
+        for (IRFunction function : module.getFunctionDefinitions()) {
+            Set<IRFunction> callees = new LinkedHashSet<>();
+            for (IRInstruction instr : function.getAllInstructions()) {
+                if (instr instanceof CallInstruction call
+                        && call.getCalledFunction() instanceof IRFunction callee
+                        && !callee.isLibraryFunction()) {
+                    callees.add(callee);
+                }
+            }
+            callGraph.put(function, callees);
+        }
+        for (IRFunction function : callGraph.keySet()) {
+            if (!index.containsKey(function)) {
+                strongConnect(function);
+            }
+        }
+    }
+
+    /**
+     * 调用 function 可能破坏的寄存器，function 及其传递调用的函数须已完成寄存器分配
+     */
+    public Set<Reg> getClobbered(IRFunction function) {
+        if (!callGraph.containsKey(function) || recursiveFunctions.contains(function)) {
+            return conservativeSet();
+        }
+        Set<Reg> regs = clobbered.get(function);
+        if (regs == null) {
+            regs = ownClobbers(function);
+            clobbered.put(function, regs);
+        }
+        return regs;
+    }
+
+    /**
+     * 叶函数：不调用任何用户函数（库函数在原地展开为系统调用，不算）
+     */
+    public boolean isLeaf(IRFunction function) {
+        Set<IRFunction> callees = callGraph.get(function);
+        return callees != null && callees.isEmpty();
+    }
+
+    /**
+     * 函数的自底向上顺序：非递归的被调函数总在调用者之前
+     */
+    public List<IRFunction> getBottomUpOrder() {
+        return bottomUpOrder;
+    }
+
+    /**
+     * Tarjan 算法按逆拓扑序（被调者先于调用者）产出强连通分量
+     */
+    private void strongConnect(IRFunction function) {
+        index.put(function, nextIndex);
+        lowLink.put(function, nextIndex);
+        nextIndex++;
+        stack.push(function);
+        onStack.add(function);
+
+        for (IRFunction callee : callGraph.get(function)) {
+            if (!callGraph.containsKey(callee)) {
+                continue;
+            }
+            if (!index.containsKey(callee)) {
+                strongConnect(callee);
+                lowLink.put(function, Math.min(lowLink.get(function), lowLink.get(callee)));
+            } else if (onStack.contains(callee)) {
+                lowLink.put(function, Math.min(lowLink.get(function), index.get(callee)));
+            }
+        }
+
+        if (lowLink.get(function).equals(index.get(function))) {
+            List<IRFunction> component = new ArrayList<>();
+            IRFunction member;
+            do {
+                member = stack.pop();
+                onStack.remove(member);
+                component.add(member);
+            } while (member != function);
+            addComponent(component);
+        }
+    }
+
+    private void addComponent(List<IRFunction> component) {
+        boolean recursive = component.size() > 1 || callGraph.get(component.get(0)).contains(component.get(0));
+        if (recursive) {
+            recursiveFunctions.addAll(component);
+        }
+        bottomUpOrder.addAll(component);
+    }
+
+    private Set<Reg> ownClobbers(IRFunction function) {
+        Set<Reg> regs = new HashSet<>();
+        for (Reg reg : function.getValue2reg().values()) {
+            if (!RegisterFile.isCalleeSaved(reg)) {
+                regs.add(reg);
+            }
+        }
+        for (IRInstruction instr : function.getAllInstructions()) {
+            if (instr instanceof CallInstruction call) {
+                regs.addAll(RegisterFile.ARGUMENT);
+                IRValue callee = call.getCalledFunction();
+                if (callee instanceof IRFunction calleeFunction && !calleeFunction.isLibraryFunction()) {
+                    regs.addAll(getClobbered(calleeFunction));
+                }
+            }
+        }
+        return regs;
+    }
+
+    private static Set<Reg> conservativeSet() {
+        Set<Reg> regs = new HashSet<>(RegisterFile.CALLER_SAVED);
+        regs.addAll(RegisterFile.ARGUMENT);
+        return regs;
+    }
+}
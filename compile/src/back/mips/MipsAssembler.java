@@ -47,6 +47,10 @@ public class MipsAssembler {
         ascii.add(new AsciiData(name, content));
     }
 
+    protected void makeAsciiData(String name, String content, boolean terminated) {
+        ascii.add(new AsciiData(name, content, terminated));
+    }
+
     protected void makeSpaceData(String name, int size) {
         spaces.add(new SpaceData(name, size));
     }
@@ -55,6 +59,14 @@ public class MipsAssembler {
         words.add(new WordData(name, values));
     }
 
+    protected void makeWordRunData(WordRunData data) {
+        words.add(data);
+    }
+
+    protected void makeJumpTableData(String name, List<String> targets) {
+        words.add(new JumpTableData(name, targets));
+    }
+
     protected void makeByteData(String name, ArrayList<Integer> values) {
         bytes.add(new ByteData(name, values));
     }
@@ -66,8 +78,9 @@ public class MipsAssembler {
         currentOffset = 0;
         valOffsets = new HashMap<>();
         // 寄存器分配映射通常由上层传入，但这里做防御性清空
+        // 必须复制一份：生成器随后会清空 valRegs 再装入分配结果，直接引用会把函数上的结果一并清掉
         if (func.getValue2reg() != null) {
-            valRegs = func.getValue2reg();
+            valRegs = new HashMap<>(func.getValue2reg());
         } else {
             valRegs = new HashMap<>();
         }
@@ -155,6 +168,18 @@ public class MipsAssembler {
         return instr;
     }
 
+    protected Mult makeMult(Reg left, Reg right) {
+        Mult instr = new Mult(left, right);
+        instructions.add(instr);
+        return instr;
+    }
+
+    protected Mfhi makeMfhi(Reg dest) {
+        Mfhi instr = new Mfhi(dest);
+        instructions.add(instr);
+        return instr;
+    }
+
     // --- 赋值 ---
     protected Li makeLi(Reg dest, int imm) {
         Li instr = new Li(dest, imm);
@@ -232,6 +257,85 @@ public class MipsAssembler {
         return instr;
     }
 
+    // --- 常量乘法 ---
+    // li + mult + mflo 至少 5 个周期（mult 按 3 计），移位加减序列超过该长度时退回乘法
+    protected static final int MUL_CHAIN_MAX_LENGTH = 4;
+
+    /**
+     * 把 |c| 编码为规范有符号数字（CSD），digits[i] ∈ {-1, 0, 1} 为第 i 位的权重，
+     * 非零位互不相邻，非零位个数最少
+     */
+    private static int[] toCanonicalSignedDigits(long m) {
+        int[] digits = new int[34];
+        for (int i = 0; m != 0; i++, m >>= 1) {
+            if ((m & 1) != 0) {
+                // m ≡ 1 (mod 4) 取 +1，m ≡ 3 (mod 4) 取 -1 并向高位进位
+                digits[i] = (int) (2 - (m & 3));
+                m -= digits[i];
+            }
+        }
+        return digits;
+    }
+
+    /**
+     * 生成 x * c 的移位加减步骤（Horner 形式，从最高非零位到最低非零位）
+     * 步骤编码：{0, k} = sll k；{1, 0} = addu x；{2, 0} = subu x；{3, 0} = 取相反数
+     */
+    private static List<int[]> planMulByConstant(int c) {
+        int[] digits = toCanonicalSignedDigits(Math.abs((long) c));
+        List<Integer> positions = new ArrayList<>();
+        for (int i = digits.length - 1; i >= 0; i--) {
+            if (digits[i] != 0) positions.add(i);
+        }
+        List<int[]> steps = new ArrayList<>();
+        for (int j = 1; j < positions.size(); j++) {
+            steps.add(new int[]{0, positions.get(j - 1) - positions.get(j)});
+            steps.add(new int[]{digits[positions.get(j)] > 0 ? 1 : 2, 0});
+        }
+        int lowest = positions.get(positions.size() - 1);
+        if (lowest > 0) {
+            steps.add(new int[]{0, lowest});
+        }
+        if (c < 0) {
+            steps.add(new int[]{3, 0});
+        }
+        return steps;
+    }
+
+    /**
+     * 常量乘法：dest = src * c，用移位加减序列代替 mult
+     * 序列长度超过 MUL_CHAIN_MAX_LENGTH 时不生成任何指令并返回 false，由调用者退回 mult
+     * 例：x * 10 = ((x << 2) + x) << 1；x * 7 = (x << 3) - x；x * -6 = -(((x << 1) + x) << 1)
+     * @param scratch 中间结果寄存器，不能与 src 相同；最后一步直接写入 dest
+     */
+    protected boolean makeMulByConstant(Reg dest, Reg src, int c, Reg scratch) {
+        if (c == 0) {
+            makeLi(dest, 0);
+            return true;
+        }
+        List<int[]> steps = planMulByConstant(c);
+        if (steps.size() > MUL_CHAIN_MAX_LENGTH) {
+            return false;
+        }
+        if (steps.isEmpty()) {
+            makeMove(dest, src);
+            return true;
+        }
+        Reg acc = src;
+        for (int i = 0; i < steps.size(); i++) {
+            int[] step = steps.get(i);
+            Reg to = i == steps.size() - 1 ? dest : scratch;
+            switch (step[0]) {
+                case 0: makeSll(to, acc, step[1]); break;
+                case 1: makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, to, acc, src); break;
+                case 2: makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, to, acc, src); break;
+                default: makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, to, Reg.zero, acc); break;
+            }
+            acc = to;
+        }
+        return true;
+    }
+
     // --- 跳转与分支 ---
     protected Beq makeBeq(Reg left, Reg right, String target) {
         Beq instr = new Beq(left, right, target);
@@ -244,6 +348,21 @@ public class MipsAssembler {
         return instr;
     }
 
+    protected BranchM makeZeroBranch(CompareInstruction.CompareCondition cond, Reg src, String target) {
+        // 与 0 比较的单条跳转：src cond 0 时跳到 target
+        BranchM instr;
+        switch (cond) {
+            case EQ: instr = new Beq(src, Reg.zero, target); break;
+            case NE: instr = new Bne(src, Reg.zero, target); break;
+            case SLT: instr = new Bltz(src, target); break;
+            case SLE: instr = new Blez(src, target); break;
+            case SGT: instr = new Bgtz(src, target); break;
+            default: instr = new Bgez(src, target); break;
+        }
+        instructions.add(instr);
+        return instr;
+    }
+
     protected J makeJ(String target) {
         J instr = new J(target);
         instructions.add(instr);
@@ -268,6 +387,12 @@ public class MipsAssembler {
     }
 
     // --- 比较 ---
+    protected Slti makeSlti(Reg dest, Reg src, int imm) {
+        Slti instr = new Slti(dest, src, imm);
+        instructions.add(instr);
+        return instr;
+    }
+
     protected void makeCompare(CompareInstruction.CompareCondition cond, Reg dest, Reg left, Reg right) {
         switch (cond) {
             case EQ: instructions.add(new Seq(dest, left, right)); break;
@@ -472,7 +597,7 @@ public class MipsAssembler {
             }
 
             // 折叠 [la addr, label] + [mem *, 0(addr)] => [mem *, label]
-            if (i + 1 < instructions.size() && cur instanceof La && instructions.get(i + 1) instanceof MemoryM) {
+            if (i + 1 < instructions.size() && cur instanceof La && !((La) cur).isTargetReused() && instructions.get(i + 1) instanceof MemoryM) {
                 La la = (La) cur;
                 MemoryM mem = (MemoryM) instructions.get(i + 1);
                 if (mem.getOffset() == 0 && mem.getBaseReg() == la.getTo()) {
@@ -493,7 +618,7 @@ public class MipsAssembler {
             }
 
             // 折叠 [la addr, label] + [addiu addr, addr, imm] + [mem *, 0(addr)] => [mem *, label+imm]
-            if (i + 2 < instructions.size() && cur instanceof La && instructions.get(i + 1) instanceof Addiu && instructions.get(i + 2) instanceof MemoryM) {
+            if (i + 2 < instructions.size() && cur instanceof La && !((La) cur).isTargetReused() && instructions.get(i + 1) instanceof Addiu && instructions.get(i + 2) instanceof MemoryM) {
                 La la = (La) cur;
                 Addiu addiu = (Addiu) instructions.get(i + 1);
                 MemoryM mem = (MemoryM) instructions.get(i + 2);
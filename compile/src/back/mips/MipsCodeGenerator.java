@@ -1,6 +1,8 @@
 package back.mips;
 
+import back.mips.data.WordRunData;
 import back.mips.register.Reg;
+import back.mips.register.RegisterFile;
 import middle.llvm.IRModule;
 import middle.llvm.type.PointerType;
 import middle.llvm.type.ArrayType;
@@ -8,6 +10,7 @@ import middle.llvm.type.IRType;
 import middle.llvm.type.IntegerType;
 import middle.llvm.type.VoidType;
 import middle.llvm.value.*;
+import middle.llvm.value.constant.ArrayConstant;
 import middle.llvm.value.constant.IRConstant;
 import middle.llvm.value.constant.IntegerConstant;
 import middle.llvm.value.instruction.*;
@@ -19,10 +22,18 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static back.mips.register.RegisterFile.SCRATCH_ARITH0;
+import static back.mips.register.RegisterFile.SCRATCH_ARITH1;
+import static back.mips.register.RegisterFile.SCRATCH_ARITH2;
+import static back.mips.register.RegisterFile.SCRATCH_OPERAND0;
+import static back.mips.register.RegisterFile.SCRATCH_OPERAND1;
+
 /**
  * MIPS 代码生成器
  * <p>负责将 LLVM IR 转换为 MIPS 汇编代码</p>
@@ -34,9 +45,56 @@ import java.util.Set;
  */
  public class MipsCodeGenerator extends MipsAssembler {
     private final Set<CompareInstruction> deferredCmps = new HashSet<>();
+    // 正在生成的基本块，用于判断比较能否推迟到本块的跳转处
+    private IRBasicBlock currentBlock;
 
     // 记录 alloca 指令申请的内存空间在栈帧中的偏移 (相对于新 SP)
     private final Map<AllocaInstruction, Integer> allocaContentOffsets = new HashMap<>();
+    // 当前函数用到、需在序言保存的被调用者保存寄存器 -> 保存槽偏移
+    private final Map<Reg, Integer> calleeSavedOffsets = new LinkedHashMap<>();
+    // 当前函数调用用户函数前需保存的调用者保存寄存器 -> 本帧中的固定保存槽偏移
+    private final Map<Reg, Integer> callerSavedOffsets = new LinkedHashMap<>();
+    // 非叶函数在序言保存 $ra 的槽偏移；叶函数与 main 为 null
+    private Integer returnAddressOffset = null;
+    // 各函数调用时可能破坏的寄存器
+    private ClobberAnalysis clobberAnalysis;
+
+    // @zerofill 展开时生成的循环标签计数
+    private int zeroFillCounter = 0;
+
+    // 布局中紧跟当前块的下一块标签，跳到它的 j 可以省略
+    private String nextBlockLabel = null;
+    // 各函数因块布局省去的跳转数
+    private final Map<String, Integer> removedJumpCounts = new LinkedHashMap<>();
+    // 每个函数栈槽着色前后的帧大小
+    private final Map<String, int[]> frameSizes = new LinkedHashMap<>();
+    private int removedJumps = 0;
+
+    // @zerofill 清零循环每轮写入的字数
+    private static final int ZERO_FILL_UNROLL = 4;
+
+    // 缓冲输出运行时的标签与缓冲区大小
+    private static final String OUT_FLUSH = "out.flush";
+    private static final String OUT_PUTCH = "out.putch";
+    private static final String OUT_PUTINT = "out.putint";
+    private static final String OUT_PUTSTR = "out.putstr";
+    private static final String OUT_LEN = "out.len";
+    private static final String OUT_BUF = "out.buf";
+    private static final String OUT_NUM = "out.num";
+    private static final int OUT_BUF_SIZE = 1024;
+
+    // 全局 int 数组中连续达到该个数的 0 改用 .space 输出
+    private static final int SPACE_GAP_WORDS = 8;
+
+    // switch 分派：case 数达到该值且足够稠密时使用跳转表
+    private static final int SWITCH_TABLE_MIN_CASES = 4;
+    // 跳转表的值域最多为 case 数的该倍数，超出则改用二分查找
+    private static final int SWITCH_TABLE_DENSITY = 3;
+    // 二分查找区间内不超过该个数的 case 直接顺序比较
+    private static final int SWITCH_LINEAR_CASES = 3;
+
+    // switch 跳转表与二分查找标签计数
+    private int switchCounter = 0;
 
     private static class Holder {
         private static final MipsCodeGenerator INSTANCE = new MipsCodeGenerator();
@@ -61,6 +119,7 @@ import java.util.Set;
      */
     public String generateMipsCode(IRModule module) {
         processGlobals(module);
+        clobberAnalysis = new ClobberAnalysis(module);
         processFunctions(module);
         return super.toString();
     }
@@ -72,9 +131,11 @@ import java.util.Set;
      * @param module LLVM IR 模块
      */
     private void processGlobals(IRModule module) {
-        for (IRStringLiteral str : module.getStringLiterals()) {
-            // 去除名称中的 '@' 前缀，并处理换行符转义
-            makeAsciiData(str.getName().substring(1), str.getOriginalLiteral().replace("\n", "\\n"));
+        List<IRStringLiteral> strs = module.getStringLiterals();
+        for (IRStringLiteral str : strs) {
+            if (!str.isSharedSuffix()) {
+                genStringData(str, strs);
+            }
         }
         for (IRGlobalVariable global : module.getGlobalVariables()) {
             genGlobalData(global.getName().substring(1), global.getInit());
@@ -85,27 +146,82 @@ import java.util.Set;
         }
     }
 
+    /**
+     * 生成一个独立存储的字符串，借用它存储的后缀字符串在对应偏移处插入标号
+     * 宿主按后缀起点切成若干段，除最后一段外都用 .ascii（不补 0），整体仍是一个以 0 结尾的字符串
+     * @param host 独立存储的字符串
+     * @param strs 模块中的全部字符串
+     */
+    private void genStringData(IRStringLiteral host, List<IRStringLiteral> strs) {
+        List<IRStringLiteral> pieces = new ArrayList<>();
+        pieces.add(host);
+        for (IRStringLiteral str : strs) {
+            if (str.getSuffixHost() == host) {
+                pieces.add(str);
+            }
+        }
+        pieces.sort(Comparator.comparingInt(IRStringLiteral::getSuffixOffset));
+
+        String content = host.getProcessedLiteral();
+        for (int i = 0; i < pieces.size(); i++) {
+            int begin = pieces.get(i).getSuffixOffset();
+            int end = i + 1 < pieces.size() ? pieces.get(i + 1).getSuffixOffset() : content.length();
+            // 去除名称中的 '@' 前缀，并处理换行符转义
+            makeAsciiData(pieces.get(i).getName().substring(1),
+                    content.substring(begin, end).replace("\n", "\\n"), i == pieces.size() - 1);
+        }
+    }
+
     /**
      * 生成全局数据段内容
      * @param name 变量名
      * @param init 初始化常量
      */
     private void genGlobalData(String name, IRConstant init) {
-        // 检查初始化值是否全为 0，若是则使用 .space 指令以节省空间
-        ArrayList<Integer> vals = new ArrayList<>(init.getAllNumbers());
-        boolean isAllZero = vals.stream().allMatch(v -> v == 0);
-
-        if (isAllZero) {
+        if (init.isZeroValue()) {
             // 若全部为 0，使用 .space 指令分配指定大小的零初始化空间
             int size = init.getType().getByteSize(); // 获取总字节大小
             makeSpaceData(name, size);
         } else if (init.containsCharacterType()) {
             // 若包含字符类型（通常是字符串常量），使用 .byte 指令
-            makeByteData(name, vals);
+            makeByteData(name, new ArrayList<>(init.getAllNumbers()));
+        } else if (init instanceof ArrayConstant) {
+            // int 数组只遍历非零元素，成段的 0 用 .space 占位
+            genSparseWordData(name, (ArrayConstant) init);
         } else {
             // 默认情况，使用 .word 指令
-            makeWordData(name, vals);
+            makeWordData(name, new ArrayList<>(init.getAllNumbers()));
+        }
+    }
+
+    /**
+     * 按非零元素生成 .word / .space 交替的数据段
+     * 连续不足 SPACE_GAP_WORDS 个的 0 仍然写在 .word 里，避免把数据切得过碎
+     * @param name 变量名
+     * @param init 数组初始值（至少含一个非零元素）
+     */
+    private void genSparseWordData(String name, ArrayConstant init) {
+        WordRunData data = new WordRunData(name);
+        ArrayList<Integer> current = new ArrayList<>();
+        int next = 0; // 下一个尚未输出的元素下标
+        for (int k = 0; k < init.getNonZeroCount(); k++) {
+            int index = init.getNonZeroIndex(k);
+            int gap = index - next;
+            if (gap >= SPACE_GAP_WORDS) {
+                data.addWords(current);
+                current = new ArrayList<>();
+                data.addSpace(gap * 4);
+            } else {
+                for (int i = 0; i < gap; i++) {
+                    current.add(0);
+                }
+            }
+            current.add(init.getNonZeroValue(k));
+            next = index + 1;
         }
+        data.addWords(current);
+        data.addSpace((init.getArrayLenth() - next) * 4);
+        makeWordRunData(data);
     }
 
     // ==================== 函数处理 ====================
@@ -124,6 +240,10 @@ import java.util.Set;
         for (int i = 0; i < funcs.size() - 1; i++) {
             generateFunctionCode(funcs.get(i));
         }
+
+        if (Config.bufferedOutputFlag) {
+            genOutputRuntime();
+        }
     }
 
     /**
@@ -131,13 +251,18 @@ import java.util.Set;
      * @param func IR 函数对象
      */
     protected void generateFunctionCode(IRFunction func) {
+        int labelIndex = instructions.size();
         beginFunction(func);
         deferredCmps.clear();
+        removedJumps = 0;
 
         // 1. [关键] 清空所有映射表，防止残留数据影响当前函数
         this.valRegs.clear();
         this.valOffsets.clear();
         this.allocaContentOffsets.clear();
+        this.calleeSavedOffsets.clear();
+        this.callerSavedOffsets.clear();
+        this.returnAddressOffset = null;
 
         // 加载寄存器分配结果
         if (func.getValue2reg() != null) {
@@ -152,16 +277,50 @@ import java.util.Set;
             makeAddiu(Reg.sp, Reg.sp, -frameSize);
         }
 
-        // 4. 保存参数到栈
+        // 4. 保存 $ra（仅非叶函数）与用到的被调用者保存寄存器，再把参数搬到分配的位置
+        if (returnAddressOffset != null) {
+            makeStore(4, Reg.ra, returnAddressOffset, Reg.sp);
+        }
+        for (Map.Entry<Reg, Integer> entry : calleeSavedOffsets.entrySet()) {
+            makeStore(4, entry.getKey(), entry.getValue(), Reg.sp);
+        }
         storeParametersToStack(func);
 
-        // 5. 生成函数体
-        for (IRBasicBlock bb : func.getBasicBlocks()) {
+        // 5. 生成函数体：按布局顺序输出，跳到下一块的跳转改为落空
+        List<IRBasicBlock> layout = new BlockLayout(func).getOrder();
+        for (int i = 0; i < layout.size(); i++) {
+            IRBasicBlock bb = layout.get(i);
+            nextBlockLabel = i + 1 < layout.size() ? layout.get(i + 1).getName().substring(1) : null;
             makeLabel(bb.getName().substring(1));
+            currentBlock = bb;
             for (IRInstruction instr : bb.getAllInstructions()) {
                 dispatchInstruction(instr);
             }
         }
+        nextBlockLabel = null;
+
+        removedJumpCounts.put(func.getName(), removedJumps);
+        int[] frame = frameSizes.get(func.getName());
+        instructions.get(labelIndex).setNote(new Note("fallthrough: " + removedJumps + " jumps removed, frame: "
+                + frame[0] + " -> " + frame[1] + " bytes"));
+    }
+
+    /**
+     * 各函数因块布局省去的跳转数（函数名 -> 个数）
+     */
+    public Map<String, Integer> getRemovedJumpCounts() {
+        return removedJumpCounts;
+    }
+
+    /**
+     * 目标是布局中的下一块时省去跳转
+     */
+    private void makeJumpUnlessNext(String label) {
+        if (label.equals(nextBlockLabel)) {
+            removedJumps++;
+        } else {
+            makeJ(label);
+        }
     }
 
     /**
@@ -175,17 +334,46 @@ import java.util.Set;
         Map<IRValue, Integer> tempValOffsets = new HashMap<>();
         int tempOffset = 0;
 
-        // 1. 参数 Shadow Space
+        // 需要栈槽的值（溢出值），最后交给 StackSlotAllocator 按生命期共用槽位
+        Set<IRValue> spilled = new LinkedHashSet<>();
+
+        // 1. 参数 Shadow Space：只为没分到寄存器的前 4 个参数分配
         List<IRFunctionParameter> params = func.getParameters();
         for (int i = 0; i < params.size() && i < 4; i++) {
             IRFunctionParameter param = params.get(i);
-            int size = param.getType().getByteSize();
-            int align = (param.getType() == IntegerType.I8) ? 1 : 4;
+            if (!valRegs.containsKey(param)) spilled.add(param);
+        }
 
-            tempOffset -= size;
-            while (tempOffset % align != 0) tempOffset--;
+        // 被调用者保存寄存器的保存槽：只为本函数实际用到的分配，main 不返回无需保存
+        Map<Reg, Integer> tempSaveOffsets = new LinkedHashMap<>();
+        boolean isMain = func.getName().equals("@main");
+        if (!isMain) {
+            Set<Reg> used = new HashSet<>(valRegs.values());
+            for (Reg reg : RegisterFile.CALLEE_SAVED) {
+                if (used.contains(reg)) {
+                    tempOffset -= 4;
+                    while (tempOffset % 4 != 0) tempOffset--;
+                    tempSaveOffsets.put(reg, tempOffset);
+                }
+            }
+        }
 
-            tempValOffsets.put(param, tempOffset);
+        // 调用用户函数时的保存槽：$ra 在序言保存一次；调用者保存寄存器按所有调用点的并集各占一槽，
+        // 调用点直接存入本帧，没有栈传参时不再移动 $sp
+        Integer tempRaOffset = null;
+        Map<Reg, Integer> tempCallerSaveOffsets = new LinkedHashMap<>();
+        for (IRInstruction instr : func.getAllInstructions()) {
+            if (!(instr instanceof CallInstruction call) || !isUserCall(call)) continue;
+            if (tempRaOffset == null && !isMain) {
+                tempOffset -= 4;
+                tempRaOffset = tempOffset;
+            }
+            for (Reg reg : getCallSaveRegs(call)) {
+                if (!tempCallerSaveOffsets.containsKey(reg)) {
+                    tempOffset -= 4;
+                    tempCallerSaveOffsets.put(reg, tempOffset);
+                }
+            }
         }
 
         // 2. 遍历所有指令分配空间
@@ -207,41 +395,35 @@ import java.util.Set;
             // Copy 指令本身通常不产生值，而是给 Target 赋值
             if (instr instanceof CopyInstruction) {
                 IRValue target = ((CopyInstruction) instr).getTargetValue();
-                // 如果 Target 未分配寄存器且未分配栈槽，则分配
-                if (!valRegs.containsKey(target) && !tempValOffsets.containsKey(target)) {
-                    int size = target.getType().getByteSize();
-                    int align = (target.getType() == IntegerType.I8) ? 1 : 4;
-
-                    tempOffset -= size;
-                    while (tempOffset % align != 0) tempOffset--;
-
-                    tempValOffsets.put(target, tempOffset);
-                }
+                // 如果 Target 未分配寄存器，则需要栈槽
+                if (!valRegs.containsKey(target)) spilled.add(target);
                 continue; // Copy 指令本身不需要栈槽，处理完 Target 后跳过
             }
 
             // C. 通用指令 Spill Slots (包括 Call, Gep, BinaryOp 等)
-            // 如果指令有返回值(非Void)，且未分配寄存器，则必须分配栈槽
-            if (!(instr.getType() instanceof VoidType) && !valRegs.containsKey(instr)) {
-                // 双重检查：确保没有重复分配
-                if (!tempValOffsets.containsKey(instr)) {
-                    int size = instr.getType().getByteSize();
-                    int align = (instr.getType() == IntegerType.I8) ? 1 : 4;
-
-                    tempOffset -= size;
-                    while (tempOffset % align != 0) tempOffset--;
-
-                    tempValOffsets.put(instr, tempOffset);
-                }
+            // 如果指令有返回值(非Void、有名字；ret 的类型是返回值类型但不定义值)，且未分配寄存器，则必须分配栈槽；
+            // 可重算的地址（alloca、常量下标的 GEP）例外，使用处重新计算
+            if (!(instr.getType() instanceof VoidType) && instr.getName() != null && !valRegs.containsKey(instr)
+                    && !Rematerialization.isRematerializable(instr)) {
+                spilled.add(instr);
             }
         }
 
-        // 对齐总帧大小
-        int totalSize = -tempOffset;
-        if (totalSize % 8 != 0) {
-            totalSize += (8 - (totalSize % 8));
+        // 溢出区：生命期不重叠的值共用栈槽
+        StackSlotAllocator slotAllocator = new StackSlotAllocator(func, new ArrayList<>(spilled));
+        Map<IRValue, Integer> slotOffsets = slotAllocator.allocate();
+        while (tempOffset % 4 != 0) tempOffset--;
+        int fixedSize = -tempOffset;
+        tempOffset -= slotAllocator.getAreaSize();
+        for (Map.Entry<IRValue, Integer> entry : slotOffsets.entrySet()) {
+            tempValOffsets.put(entry.getKey(), tempOffset + entry.getValue());
         }
 
+        // 对齐总帧大小
+        int totalSize = alignFrame(-tempOffset);
+        int unsharedSize = alignFrame(fixedSize + slotAllocator.getUnsharedSize());
+        frameSizes.put(func.getName(), new int[]{unsharedSize, totalSize});
+
         // 3. 修正偏移量并写入全局 Map
         // 将相对于 0 的负偏移转换为相对于新 SP 的正偏移
         for (Map.Entry<IRValue, Integer> entry : tempValOffsets.entrySet()) {
@@ -252,6 +434,16 @@ import java.util.Set;
             entry.setValue(entry.getValue() + totalSize);
         }
 
+        for (Map.Entry<Reg, Integer> entry : tempSaveOffsets.entrySet()) {
+            calleeSavedOffsets.put(entry.getKey(), entry.getValue() + totalSize);
+        }
+        for (Map.Entry<Reg, Integer> entry : tempCallerSaveOffsets.entrySet()) {
+            callerSavedOffsets.put(entry.getKey(), entry.getValue() + totalSize);
+        }
+        if (tempRaOffset != null) {
+            returnAddressOffset = tempRaOffset + totalSize;
+        }
+
         // 4. 处理栈传递的参数 (Caller 栈帧部分)
         for (int i = 4; i < params.size(); i++) {
             IRFunctionParameter param = params.get(i);
@@ -266,35 +458,73 @@ import java.util.Set;
     // 新增字段记录当前函数帧大小
     private int currentFrameSize = 0;
 
+    private static int alignFrame(int size) {
+        return (size + 7) / 8 * 8;
+    }
+
     /**
-     * 将参数值存储到预分配的栈空间
+     * 各函数的栈帧大小（函数名 -> {每个溢出值独占栈槽时的大小, 栈槽着色后的大小}）
+     */
+    public Map<String, int[]> getFrameSizes() {
+        return frameSizes;
+    }
+
+    /**
+     * 把参数从传入位置搬到分配的位置
+     * <p>未分到寄存器的前 4 个参数落盘到 Shadow Space；分到寄存器的做寄存器间搬运。
+     * 叶函数的参数可能分到别的 $a 寄存器，搬运按并行赋值处理，成环时借 $k0 断开；
+     * 栈传递的参数最后从调用者帧中装入</p>
      */
     private void storeParametersToStack(IRFunction func) {
         List<IRFunctionParameter> params = func.getParameters();
-        for (int i = 0; i < params.size(); i++) {
+        Map<Reg, Reg> moves = new LinkedHashMap<>();
+        for (int i = 0; i < params.size() && i < 4; i++) {
             IRFunctionParameter param = params.get(i);
-
-            if (i < 4) {
-                // 将 $a0-$a3 落盘到栈 (Shadow Space)
+            Reg argReg = Reg.getArgReg(i);
+            Reg allocatedReg = findReg(param);
+            if (allocatedReg == null) {
                 // 此时 findOffset 返回的是基于当前 SP 的正偏移
-                Reg argReg = Reg.getArgReg(i);
-                int offset = findOffset(param);
                 int align = (param.getType() == IntegerType.I8) ? 1 : 4;
-                makeStore(align, argReg, offset, Reg.sp);
+                makeStore(align, argReg, findOffset(param), Reg.sp);
+            } else if (allocatedReg != argReg) {
+                moves.put(allocatedReg, argReg);
+            }
+        }
+        makeParallelMoves(moves);
 
-                // 如果该参数被分配了其他寄存器 (如 $s0)，搬运过去
-                Reg allocatedReg = findReg(param);
-                if (allocatedReg != null && allocatedReg != argReg) {
-                    makeMove(allocatedReg, argReg);
-                }
-            } else {
-                // 栈传递的参数，如果有分配寄存器，需从栈加载到寄存器
-                Reg allocatedReg = findReg(param);
-                if (allocatedReg != null) {
-                    // Load from stack (offset is relative to current SP)
-                    makeLoad(4, allocatedReg, findOffset(param), Reg.sp);
+        for (int i = 4; i < params.size(); i++) {
+            IRFunctionParameter param = params.get(i);
+            Reg allocatedReg = findReg(param);
+            if (allocatedReg != null) {
+                // Load from stack (offset is relative to current SP)
+                makeLoad(4, allocatedReg, findOffset(param), Reg.sp);
+            }
+        }
+    }
+
+    /**
+     * 并行赋值：目标寄存器 -> 源寄存器，所有源都按赋值前的值读取
+     */
+    private void makeParallelMoves(Map<Reg, Reg> moves) {
+        while (!moves.isEmpty()) {
+            Reg ready = null;
+            for (Reg dst : moves.keySet()) {
+                if (!moves.containsValue(dst)) {
+                    ready = dst;
+                    break;
                 }
             }
+            if (ready != null) {
+                makeMove(ready, moves.remove(ready));
+                continue;
+            }
+            // 全部成环：把一个源暂存到 $k0，改由 $k0 提供
+            Map.Entry<Reg, Reg> first = moves.entrySet().iterator().next();
+            Reg src = first.getValue();
+            makeMove(SCRATCH_OPERAND0, src);
+            for (Map.Entry<Reg, Reg> entry : moves.entrySet()) {
+                if (entry.getValue() == src) entry.setValue(SCRATCH_OPERAND0);
+            }
         }
     }
 
@@ -398,8 +628,7 @@ import java.util.Set;
         else if (instr instanceof GetElementPtrInstruction) mapGep((GetElementPtrInstruction) instr);
         else if (instr instanceof CompareInstruction) {
             CompareInstruction cmp = (CompareInstruction) instr;
-            List<UseDefChain> uses = cmp.getUseList();
-            if (uses.size() == 1 && uses.get(0).user() instanceof BranchInstruction) {
+            if (canDeferCompare(cmp)) {
                 deferredCmps.add(cmp);
                 return;
             }
@@ -410,11 +639,42 @@ import java.util.Set;
         else if (instr instanceof CopyInstruction) mapCopy((CopyInstruction) instr);
         else if (instr instanceof ZeroExtendInstruction) mapZext((ZeroExtendInstruction) instr);
         else if (instr instanceof BranchInstruction) mapBranch((BranchInstruction) instr);
+        else if (instr instanceof SwitchInstruction) mapSwitch((SwitchInstruction) instr);
         else if (instr instanceof JumpInstruction) mapJump((JumpInstruction) instr);
         else if (instr instanceof StoreInstruction) mapStore((StoreInstruction) instr);
         else if (instr instanceof LoadInstruction) mapLoad((LoadInstruction) instr);
     }
 
+    /**
+     * 比较能否推迟到跳转处与跳转融合生成
+     * <p>寄存器分配认为比较的操作数在比较之后即死亡，寄存器可被后续的值复用，因此只在以下情况推迟：</p>
+     * <ul>
+     *   <li>唯一的使用者是本块的终结跳转（LICM 外提的比较、SCCP/展开改写后的块中，跳转可能在别的块）</li>
+     *   <li>比较与跳转之间没有调用，也没有写入操作数所在寄存器的定义（RemovePhi 放在块尾的拷贝可能复用它们）</li>
+     * </ul>
+     * 否则照常把 i1 结果算出来
+     * @param cmp 比较指令
+     */
+    private boolean canDeferCompare(CompareInstruction cmp) {
+        List<UseDefChain> uses = cmp.getUseList();
+        if (uses.size() != 1 || !(uses.get(0).user() instanceof BranchInstruction branch)
+                || currentBlock.getLastInstruction() != branch) {
+            return false;
+        }
+        Set<Reg> operandRegs = new HashSet<>();
+        for (IRValue operand : cmp.getAllOperands()) {
+            if (findReg(operand) != null) operandRegs.add(findReg(operand));
+        }
+        List<IRInstruction> instructions = currentBlock.getAllInstructions();
+        for (int i = instructions.indexOf(cmp) + 1; i < instructions.size() - 1; i++) {
+            IRInstruction instr = instructions.get(i);
+            if (instr instanceof CallInstruction) return false;
+            IRValue defined = instr instanceof CopyInstruction copy ? copy.getTargetValue() : instr;
+            if (findReg(defined) != null && operandRegs.contains(findReg(defined))) return false;
+        }
+        return true;
+    }
+
     /**
      * 将 IR 值加载到指定寄存器
      * @param val IR 值
@@ -427,6 +687,9 @@ import java.util.Set;
         } else if (findReg(val) != null) {
             // 如果值已经在寄存器中，直接移动 (move)
             if (findReg(val) != r) makeMove(r, findReg(val));
+        } else if (Rematerialization.isRematerializable(val)) {
+            // 可重算的地址没有栈槽，就地重算 (addiu/la)
+            rematerialize(val, r, 0);
         } else {
             // 如果值在栈上，加载到寄存器 (lw/lb)
             // 注意区分类型大小/对齐 (1字节 vs 4字节)
@@ -435,6 +698,58 @@ import java.util.Set;
         }
     }
 
+    /**
+     * 重算可重算值的地址
+     * <ul>
+     *   <li>帧内对象：addiu r, $sp, 偏移（超出 16 位时 li + addu）</li>
+     *   <li>全局符号：la r, label+偏移，目标寄存器之后可能还会被读取，不参与 la 的访存折叠</li>
+     * </ul>
+     * @param val 可重算值
+     * @param r 目标寄存器
+     * @param spDelta 当前 SP 相对于函数基准 SP 的下移量
+     * @return 生成的第一条指令
+     */
+    private InstrM rematerialize(IRValue val, Reg r, int spDelta) {
+        Integer frameOffset = getFrameAddress(val);
+        if (frameOffset == null) {
+            return makeLa(r, getSymbolAddress(val)).markTargetReused();
+        }
+        int offset = frameOffset + spDelta;
+        if (offset >= -32768 && offset <= 32767) {
+            return makeAddiu(r, Reg.sp, offset);
+        }
+        InstrM first = makeLi(r, offset);
+        makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, r, Reg.sp, r);
+        return first;
+    }
+
+    /**
+     * 可重算值的锚点为 alloca 时返回相对 $sp 的偏移，否则返回 null
+     */
+    private Integer getFrameAddress(IRValue val) {
+        if (!(Rematerialization.getAnchor(val) instanceof AllocaInstruction alloca)) {
+            return null;
+        }
+        return allocaContentOffsets.get(alloca) + Rematerialization.getConstantOffset(val);
+    }
+
+    /**
+     * 锚点为全局符号的可重算值：label 或 label+偏移
+     */
+    private String getSymbolAddress(IRValue val) {
+        String label = Rematerialization.getAnchor(val).getName().substring(1);
+        int offset = Rematerialization.getConstantOffset(val);
+        if (offset == 0) return label;
+        return label + (offset > 0 ? "+" : "") + offset;
+    }
+
+    /**
+     * 帧内地址能否直接作为访存的 16 位位移
+     */
+    private static boolean isFrameDisplacement(Integer frameOffset) {
+        return frameOffset != null && frameOffset >= -32768 && frameOffset <= 32767;
+    }
+
     /**
      * 映射二元运算指令
      * @param instr 二元运算指令
@@ -442,7 +757,8 @@ import java.util.Set;
     public void mapCompute(BinaryOperationInstruction instr) {
         // 优化说明：
         // 1) 双常量折叠：若左右操作数均为常量，直接在生成期计算结果并发出 li/store，避免运行期算术
-        // 2) 强度削减：针对 +0、-0、×0、×1、×(-1)、÷1、÷(-1) 特判，减少 Mult/Div 指令并用 move/取相反数替代
+        // 2) 强度削减：针对 +0、-0、×0、×1、×(-1)、÷1、÷(-1) 特判，减少 Mult/Div 指令并用 move/取相反数替代；
+        //    其余 ×常量 用移位加减序列，÷常量 / %常量 用 2 的幂移位或魔数乘法
         // 3) 其他情况保持原路径，必要时仍生成算术指令
         Reg target = findReg(instr);
         IRValue op0 = instr.getOperand(0);
@@ -472,8 +788,8 @@ import java.util.Set;
             if (target != null) {
                 makeLi(target, res);
             } else {
-                makeLi(Reg.k0, res);
-                makeStore(4, Reg.k0, findOffset(instr), Reg.sp);
+                makeLi(SCRATCH_OPERAND0, res);
+                makeStore(4, SCRATCH_OPERAND0, findOffset(instr), Reg.sp);
             }
             return;
         }
@@ -481,7 +797,7 @@ import java.util.Set;
         if (instr.getOperator() == BinaryOperationInstruction.BinaryOperator.ADD) {
             // 加法常量优化：若一侧为常量且在 addiu 范围内，直接使用 addiu
             if (c0 && !c1 && v0 >= -32768 && v0 <= 32767) {
-                Reg base = Reg.k0;
+                Reg base = SCRATCH_OPERAND0;
                 loadValToReg(op1, base);
                 if (target != null) {
                     makeAddiu(target, base, v0);
@@ -492,7 +808,7 @@ import java.util.Set;
                 return;
             }
             if (!c0 && c1 && v1 >= -32768 && v1 <= 32767) {
-                Reg base = Reg.k0;
+                Reg base = SCRATCH_OPERAND0;
                 loadValToReg(op0, base);
                 if (target != null) {
                     makeAddiu(target, base, v1);
@@ -507,8 +823,8 @@ import java.util.Set;
                 if (target != null) {
                     loadValToReg(op1, target);
                 } else {
-                    loadValToReg(op1, Reg.k0);
-                    makeStore(4, Reg.k0, findOffset(instr), Reg.sp);
+                    loadValToReg(op1, SCRATCH_OPERAND0);
+                    makeStore(4, SCRATCH_OPERAND0, findOffset(instr), Reg.sp);
                 }
                 return;
             }
@@ -516,8 +832,8 @@ import java.util.Set;
                 if (target != null) {
                     loadValToReg(op0, target);
                 } else {
-                    loadValToReg(op0, Reg.k0);
-                    makeStore(4, Reg.k0, findOffset(instr), Reg.sp);
+                    loadValToReg(op0, SCRATCH_OPERAND0);
+                    makeStore(4, SCRATCH_OPERAND0, findOffset(instr), Reg.sp);
                 }
                 return;
             }
@@ -527,13 +843,13 @@ import java.util.Set;
                 if (target != null) {
                     loadValToReg(op0, target);
                 } else {
-                    loadValToReg(op0, Reg.k0);
-                    makeStore(4, Reg.k0, findOffset(instr), Reg.sp);
+                    loadValToReg(op0, SCRATCH_OPERAND0);
+                    makeStore(4, SCRATCH_OPERAND0, findOffset(instr), Reg.sp);
                 }
                 return;
             }
             if (c0 && v0 == 0) {
-                Reg r = Reg.k0;
+                Reg r = SCRATCH_OPERAND0;
                 loadValToReg(op1, r);
                 if (target != null) {
                     makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, target, Reg.zero, r);
@@ -544,38 +860,13 @@ import java.util.Set;
                 return;
             }
         } else if (instr.getOperator() == BinaryOperationInstruction.BinaryOperator.MUL) {
-            // 乘法位移优化：若常量为 2 的幂，使用 sll 代替乘法
-            if (c0 && !c1 && v0 != 0 && (v0 & (v0 - 1)) == 0) {
-                int shift = Integer.numberOfTrailingZeros(v0);
-                Reg src = Reg.k0;
-                loadValToReg(op1, src);
-                if (target != null) {
-                    makeSll(target, src, shift);
-                } else {
-                    makeSll(src, src, shift);
-                    makeStore(4, src, findOffset(instr), Reg.sp);
-                }
-                return;
-            }
-            if (!c0 && c1 && v1 != 0 && (v1 & (v1 - 1)) == 0) {
-                int shift = Integer.numberOfTrailingZeros(v1);
-                Reg src = Reg.k0;
-                loadValToReg(op0, src);
-                if (target != null) {
-                    makeSll(target, src, shift);
-                } else {
-                    makeSll(src, src, shift);
-                    makeStore(4, src, findOffset(instr), Reg.sp);
-                }
-                return;
-            }
             // 乘法特判：×0、×1、×(-1)
             if ((c0 && v0 == 0) || (c1 && v1 == 0)) {
                 if (target != null) {
                     makeLi(target, 0);
                 } else {
-                    makeLi(Reg.k0, 0);
-                    makeStore(4, Reg.k0, findOffset(instr), Reg.sp);
+                    makeLi(SCRATCH_OPERAND0, 0);
+                    makeStore(4, SCRATCH_OPERAND0, findOffset(instr), Reg.sp);
                 }
                 return;
             }
@@ -583,8 +874,8 @@ import java.util.Set;
                 if (target != null) {
                     loadValToReg(op1, target);
                 } else {
-                    loadValToReg(op1, Reg.k0);
-                    makeStore(4, Reg.k0, findOffset(instr), Reg.sp);
+                    loadValToReg(op1, SCRATCH_OPERAND0);
+                    makeStore(4, SCRATCH_OPERAND0, findOffset(instr), Reg.sp);
                 }
                 return;
             }
@@ -592,15 +883,15 @@ import java.util.Set;
                 if (target != null) {
                     loadValToReg(op0, target);
                 } else {
-                    loadValToReg(op0, Reg.k0);
-                    makeStore(4, Reg.k0, findOffset(instr), Reg.sp);
+                    loadValToReg(op0, SCRATCH_OPERAND0);
+                    makeStore(4, SCRATCH_OPERAND0, findOffset(instr), Reg.sp);
                 }
                 return;
             }
             if ((c0 && v0 == -1) || (c1 && v1 == -1)) {
                 // x * (-1) -> 取相反数
                 IRValue nonConst = c0 ? op1 : op0;
-                Reg r = Reg.k0;
+                Reg r = SCRATCH_OPERAND0;
                 loadValToReg(nonConst, r);
                 if (target != null) {
                     makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, target, Reg.zero, r);
@@ -610,19 +901,36 @@ import java.util.Set;
                 }
                 return;
             }
+            // 其余常量（含 2 的幂）：CSD 移位加减序列，序列过长时走下方的 mult
+            if (c0 || c1) {
+                IRValue nonConst = c0 ? op1 : op0;
+                int c = c0 ? v0 : v1;
+                Reg dest = target != null ? target : SCRATCH_OPERAND0;
+                Reg src = findReg(nonConst);
+                if (src == null) {
+                    src = SCRATCH_OPERAND0;
+                    loadValToReg(nonConst, src);
+                }
+                if (makeMulByConstant(dest, src, c, SCRATCH_ARITH1)) {
+                    if (target == null) {
+                        makeStore(4, dest, findOffset(instr), Reg.sp);
+                    }
+                    return;
+                }
+            }
         } else if (instr.getOperator() == BinaryOperationInstruction.BinaryOperator.SDIV) {
             // 除法特判：÷1、÷(-1)
             if (c1 && v1 == 1) {
                 if (target != null) {
                     loadValToReg(op0, target);
                 } else {
-                    loadValToReg(op0, Reg.k0);
-                    makeStore(4, Reg.k0, findOffset(instr), Reg.sp);
+                    loadValToReg(op0, SCRATCH_OPERAND0);
+                    makeStore(4, SCRATCH_OPERAND0, findOffset(instr), Reg.sp);
                 }
                 return;
             }
             if (c1 && v1 == -1) {
-                Reg r = Reg.k0;
+                Reg r = SCRATCH_OPERAND0;
                 loadValToReg(op0, r);
                 if (target != null) {
                     makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, target, Reg.zero, r);
@@ -636,11 +944,11 @@ import java.util.Set;
                 int abs = Math.abs(v1);
                 if ((abs & (abs - 1)) == 0) {
                     int k = Integer.numberOfTrailingZeros(abs);
-                    Reg x = Reg.k0;
+                    Reg x = SCRATCH_OPERAND0;
                     loadValToReg(op0, x);
-                    makeSra(Reg.t1, x, 31);
-                    makeAndi(Reg.t1, Reg.t1, (1 << k) - 1);
-                    makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, x, x, Reg.t1);
+                    makeSra(SCRATCH_ARITH1, x, 31);
+                    makeAndi(SCRATCH_ARITH1, SCRATCH_ARITH1, (1 << k) - 1);
+                    makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, x, x, SCRATCH_ARITH1);
                     if (v1 > 0) {
                         if (target != null) {
                             makeSra(target, x, k);
@@ -649,17 +957,29 @@ import java.util.Set;
                             makeStore(4, x, findOffset(instr), Reg.sp);
                         }
                     } else {
-                        makeSra(Reg.t2, x, k);
+                        makeSra(SCRATCH_ARITH2, x, k);
                         if (target != null) {
-                            makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, target, Reg.zero, Reg.t2);
+                            makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, target, Reg.zero, SCRATCH_ARITH2);
                         } else {
-                            makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, Reg.t2, Reg.zero, Reg.t2);
-                            makeStore(4, Reg.t2, findOffset(instr), Reg.sp);
+                            makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, SCRATCH_ARITH2, Reg.zero, SCRATCH_ARITH2);
+                            makeStore(4, SCRATCH_ARITH2, findOffset(instr), Reg.sp);
                         }
                     }
                     return;
                 }
             }
+            // 其余常量除数：乘以魔数取高 32 位，避免 div
+            if (c1 && isMagicDivisor(v1)) {
+                Reg x = SCRATCH_OPERAND0;
+                loadValToReg(op0, x);
+                if (target != null) {
+                    makeDivByConstant(target, x, v1);
+                } else {
+                    makeDivByConstant(SCRATCH_ARITH1, x, v1);
+                    makeStore(4, SCRATCH_ARITH1, findOffset(instr), Reg.sp);
+                }
+                return;
+            }
         } else if (instr.getOperator() == BinaryOperationInstruction.BinaryOperator.SREM) {
             // 取余优化：当除数为 2 的幂时，使用移位与减法计算 srem
             // 算法：q = (x + ((x>>31) & ((1<<k)-1))) >> k; r = x - (q << k)
@@ -668,28 +988,40 @@ import java.util.Set;
                 int abs = Math.abs(v1);
                 if ((abs & (abs - 1)) == 0) {
                     int k = Integer.numberOfTrailingZeros(abs);
-                    Reg x = Reg.k0;
+                    Reg x = SCRATCH_OPERAND0;
                     loadValToReg(op0, x);
                     // 计算 bias：(x>>31) & ((1<<k)-1)
-                    makeSra(Reg.t1, x, 31);
-                    makeAndi(Reg.t1, Reg.t1, (1 << k) - 1);
+                    makeSra(SCRATCH_ARITH1, x, 31);
+                    makeAndi(SCRATCH_ARITH1, SCRATCH_ARITH1, (1 << k) - 1);
                     // 计算 q = (x + bias) >> k
-                    makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, Reg.t1, x, Reg.t1);
-                    makeSra(Reg.t1, Reg.t1, k);
+                    makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, SCRATCH_ARITH1, x, SCRATCH_ARITH1);
+                    makeSra(SCRATCH_ARITH1, SCRATCH_ARITH1, k);
                     // 计算 r = x - (q << k)
-                    makeSll(Reg.t2, Reg.t1, k);
+                    makeSll(SCRATCH_ARITH2, SCRATCH_ARITH1, k);
                     if (target != null) {
-                        makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, target, x, Reg.t2);
+                        makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, target, x, SCRATCH_ARITH2);
                     } else {
-                        makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, x, x, Reg.t2);
+                        makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, x, x, SCRATCH_ARITH2);
                         makeStore(4, x, findOffset(instr), Reg.sp);
                     }
                     return;
                 }
             }
+            // 其余常量除数：r = x - (x / d) * d，商用魔数乘法求得
+            if (c1 && isMagicDivisor(v1)) {
+                Reg x = SCRATCH_OPERAND0;
+                loadValToReg(op0, x);
+                if (target != null) {
+                    makeRemByConstant(target, x, v1);
+                } else {
+                    makeRemByConstant(x, x, v1);
+                    makeStore(4, x, findOffset(instr), Reg.sp);
+                }
+                return;
+            }
         }
 
-        Reg r1 = Reg.k0, r2 = Reg.k1;
+        Reg r1 = SCRATCH_OPERAND0, r2 = SCRATCH_OPERAND1;
         loadValToReg(op0, r1);
         loadValToReg(op1, r2);
 
@@ -701,33 +1033,101 @@ import java.util.Set;
         }
     }
 
+    /**
+     * 除数是否走魔数除法：排除 0、±1、2 的幂（含 INT_MIN），这些情况已有更短的序列
+     */
+    static boolean isMagicDivisor(int d) {
+        if (d == 0 || d == 1 || d == -1 || d == Integer.MIN_VALUE) {
+            return false;
+        }
+        int abs = Math.abs(d);
+        return (abs & (abs - 1)) != 0;
+    }
+
+    /**
+     * 计算有符号除法魔数（Hacker's Delight 10-1）
+     * 满足 x / d == (mulhs(x, M) [+/- x]) >> s 再加上符号修正
+     * @return {M, s}
+     */
+    static int[] computeSignedMagic(int d) {
+        final long two31 = 0x80000000L;
+        long ad = Math.abs((long) d);
+        long t = two31 + (d >>> 31);
+        long anc = t - 1 - t % ad;
+        int p = 31;
+        long q1 = two31 / anc, r1 = two31 - q1 * anc;
+        long q2 = two31 / ad, r2 = two31 - q2 * ad;
+        long delta;
+        do {
+            p++;
+            q1 = 2 * q1;
+            r1 = 2 * r1;
+            if (r1 >= anc) {
+                q1++;
+                r1 -= anc;
+            }
+            q2 = 2 * q2;
+            r2 = 2 * r2;
+            if (r2 >= ad) {
+                q2++;
+                r2 -= ad;
+            }
+            delta = ad - r2;
+        } while (q1 < delta || (q1 == delta && r1 == 0));
+        int magic = (int) (q2 + 1);
+        if (d < 0) {
+            magic = -magic;
+        }
+        return new int[]{magic, p - 32};
+    }
+
+    /**
+     * 生成 dest = x / d（向零取整），x 不会被修改
+     * 序列：mult x, M; mfhi q; [addu/subu q, q, x]; sra q, q, s; q += q >>> 31
+     * <p>test/back/mips/DivByConstantCheck 解释执行生成的序列，与 Java 的 / 和 % 对照</p>
+     */
+    void makeDivByConstant(Reg dest, Reg x, int d) {
+        int[] magic = computeSignedMagic(d);
+        int m = magic[0];
+        int shift = magic[1];
+        makeLi(SCRATCH_OPERAND1, m);
+        makeMult(x, SCRATCH_OPERAND1);
+        makeMfhi(dest);
+        // M 的符号与 d 不一致时，mulhs 少算了 ±x
+        if (d > 0 && m < 0) {
+            makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, dest, dest, x);
+        } else if (d < 0 && m > 0) {
+            makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, dest, dest, x);
+        }
+        if (shift > 0) {
+            makeSra(dest, dest, shift);
+        }
+        // 商为负时加 1，修正为向零取整
+        makeSrl(SCRATCH_ARITH2, dest, 31);
+        makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, dest, dest, SCRATCH_ARITH2);
+    }
+
+    /**
+     * 生成 dest = x % d：r = x - (x / d) * d，商用魔数乘法求得；dest 可以与 x 相同
+     */
+    void makeRemByConstant(Reg dest, Reg x, int d) {
+        makeDivByConstant(SCRATCH_ARITH1, x, d);
+        makeLi(SCRATCH_ARITH2, d);
+        makeCompute(BinaryOperationInstruction.BinaryOperator.MUL, SCRATCH_ARITH2, SCRATCH_ARITH1, SCRATCH_ARITH2);
+        makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, dest, x, SCRATCH_ARITH2);
+    }
+
     /**
      * 映射 Alloca 指令
      * @param alloca Alloca 指令
      */
     public void mapAlloca(AllocaInstruction alloca) {
         // 获取内容偏移 (已修正为正值)
-        Integer offset = allocaContentOffsets.get(alloca);
         Reg target = findReg(alloca);
 
-        // 计算地址: SP + offset
+        // 计算地址: SP + offset；没分到寄存器时不占栈槽，使用处再重算
         if (target != null) {
-            if (offset >= -32768 && offset <= 32767) {
-                makeAddiu(target, Reg.sp, offset).setNote(new Note(alloca));
-            } else {
-                makeLi(target, offset).setNote(new Note(alloca));
-                makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, target, Reg.sp, target);
-            }
-        } else {
-            Reg temp = Reg.k0;
-            if (offset >= -32768 && offset <= 32767) {
-                makeAddiu(temp, Reg.sp, offset).setNote(new Note(alloca));
-            } else {
-                makeLi(temp, offset).setNote(new Note(alloca));
-                makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, temp, Reg.sp, temp);
-            }
-            // 将指针存入 Spill Slot
-            makeStore(4, temp, findOffset(alloca), Reg.sp);
+            rematerialize(alloca, target, 0).setNote(new Note(alloca));
         }
     }
 
@@ -740,63 +1140,52 @@ import java.util.Set;
         String name = func.getName().substring(1);
 
         if (handleSyscall(call, name, func)) return;
+        if (func == IRFunction.ZEROFILL) {
+            mapZeroFill(call);
+            return;
+        }
 
-        // 1. 保存 Caller-Saved 寄存器
-        Set<Reg> regsToSaveSet = new HashSet<>(call.liveRegSet);
-        for (Map.Entry<IRValue, Reg> entry : valRegs.entrySet()) {
-            Reg r = entry.getValue();
-            int rIdx = Reg.getIndex(r);
-            if (rIdx >= 4 && rIdx <= 7) regsToSaveSet.add(r);
+        // 1. 保存 Caller-Saved 寄存器到本帧的固定保存槽（$ra 已在序言保存）
+        List<Reg> saved = getCallSaveRegs(call);
+        for (Reg reg : saved) {
+            makeStore(4, reg, callerSavedOffsets.get(reg), Reg.sp);
         }
-        ArrayList<Reg> saved = new ArrayList<>(regsToSaveSet);
-        saved.sort(Comparator.comparingInt(Reg::getIndex));
 
-        // 2. 计算 Call Frame
-        int savedRegsSize = saved.size() * 4;
+        // 2. 只有栈传参时才扩展出调用帧
         int argCount = call.getOperandCount() - 1;
         int stackArgsCount = (argCount > 4) ? (argCount - 4) : 0;
-        int stackArgsSize = stackArgsCount * 4;
-        int callFrameSize = savedRegsSize + 4 + stackArgsSize;
+        int callFrameSize = stackArgsCount * 4;
         if (callFrameSize % 8 != 0) callFrameSize += (8 - (callFrameSize % 8));
-
-        // 3. 扩展栈空间
-        makeAddiu(Reg.sp, Reg.sp, -callFrameSize);
-
-        // 4. 保存上下文
-        int topOfFrame = callFrameSize;
-        for (int i = 0; i < saved.size(); i++) {
-            makeStore(4, saved.get(i), topOfFrame - 4 * (i + 1), Reg.sp);
+        if (callFrameSize > 0) {
+            makeAddiu(Reg.sp, Reg.sp, -callFrameSize);
         }
-        makeStore(4, Reg.ra, topOfFrame - savedRegsSize - 4, Reg.sp);
 
-        // 5. 传递参数
+        // 3. 传递参数
         for (int i = 0; i < argCount; i++) {
             IRValue arg = call.getOperand(i + 1);
             if (i < 4) {
                 Reg argReg = Reg.getArgReg(i);
                 loadValueWithSpOffset(arg, argReg, callFrameSize);
             } else {
-                Reg temp = Reg.v1;
+                Reg temp = SCRATCH_OPERAND0;
                 loadValueWithSpOffset(arg, temp, callFrameSize);
                 int offset = (i - 4) * 4;
                 makeStore(4, temp, offset, Reg.sp);
             }
         }
 
-        // 6. 跳转
+        // 4. 跳转
         makeJal(name);
 
-        // 7. 恢复上下文
-        makeLoad(4, Reg.ra, topOfFrame - savedRegsSize - 4, Reg.sp);
-        for (int i = 0; i < saved.size(); i++) {
-            makeLoad(4, saved.get(i), topOfFrame - 4 * (i + 1), Reg.sp);
+        // 5. 先恢复 SP，再恢复上下文与存储返回值（保存槽与 findOffset(call) 都基于函数的 SP）
+        if (callFrameSize > 0) {
+            makeAddiu(Reg.sp, Reg.sp, callFrameSize);
+        }
+        for (Reg reg : saved) {
+            makeLoad(4, reg, callerSavedOffsets.get(reg), Reg.sp);
         }
 
-        // 8. [关键] 先恢复 SP，再存储返回值
-        // 这样 findOffset(call) 才能基于正确的(恢复后的) SP 计算地址
-        makeAddiu(Reg.sp, Reg.sp, callFrameSize);
-
-        // 9. 处理返回值
+        // 6. 处理返回值
         if (!(call.getType() instanceof VoidType)) {
             if (findReg(call) != null) {
                 makeMove(findReg(call), Reg.v0);
@@ -807,6 +1196,31 @@ import java.util.Set;
         }
     }
 
+    /**
+     * 调用用户函数（非库函数、非 zerofill）
+     */
+    private boolean isUserCall(CallInstruction call) {
+        return call.getCalledFunction() instanceof IRFunction func && !func.isLibraryFunction();
+    }
+
+    /**
+     * 调用点需保存的寄存器：被调用者保存的由被调函数自己负责，
+     * 其余只保存跨越调用活跃且被调函数（含其传递调用）确实会破坏的；$a 寄存器会被传参覆盖，持有值就要保存
+     */
+    private List<Reg> getCallSaveRegs(CallInstruction call) {
+        Set<Reg> clobbered = clobberAnalysis.getClobbered((IRFunction) call.getCalledFunction());
+        Set<Reg> regsToSaveSet = new HashSet<>();
+        for (Reg r : call.liveRegSet) {
+            if (!RegisterFile.isCalleeSaved(r) && clobbered.contains(r)) regsToSaveSet.add(r);
+        }
+        for (Reg r : valRegs.values()) {
+            if (RegisterFile.isArgument(r)) regsToSaveSet.add(r);
+        }
+        List<Reg> saved = new ArrayList<>(regsToSaveSet);
+        saved.sort(Comparator.comparingInt(Reg::getIndex));
+        return saved;
+    }
+
     /**
      * 辅助方法：从栈或寄存器加载值，考虑 SP 已经移动了 delta 距离
      * @param val 值
@@ -820,6 +1234,8 @@ import java.util.Set;
             Reg src = findReg(val);
             if (src != null) {
                 if (src != target) makeMove(target, src);
+            } else if (Rematerialization.isRematerializable(val)) {
+                rematerialize(val, target, spDelta);
             } else {
                 // 如果值在栈上，原本的 offset 是相对于旧 SP 的
                 // 现在的 SP 比旧 SP 小 spDelta，所以访问地址应该是 (offset + spDelta)($sp)
@@ -842,6 +1258,8 @@ import java.util.Set;
             Reg src = findReg(val);
             if (src != null) {
                 if (src != target) makeMove(target, src);
+            } else if (Rematerialization.isRematerializable(val)) {
+                rematerialize(val, target, 0);
             } else {
                 // 从栈加载
                 int align = (val.getType() == IntegerType.I8) ? 1 : 4;
@@ -850,6 +1268,44 @@ import java.util.Set;
         }
     }
 
+    /**
+     * 内联展开 @zerofill(ptr, n)：把 ptr 起的 n 个字清零
+     * 只用 k0/k1，不破坏任何已分配寄存器，因此无需像普通调用那样保存现场
+     *
+     *     k0 = ptr
+     *     k1 = ptr + (n / 4) * 16
+     * loop:
+     *     sw $zero, 0(k0) ... sw $zero, 12(k0)
+     *     addiu k0, k0, 16
+     *     bne k0, k1, loop
+     *     sw $zero, 0(k0) ...             ; 余下 n % 4 个
+     * @param call 调用指令
+     */
+    private void mapZeroFill(CallInstruction call) {
+        int count = ((IntegerConstant) call.getOperand(2)).getConstantValue();
+        int loopBytes = count / ZERO_FILL_UNROLL * ZERO_FILL_UNROLL * 4;
+        loadValToReg(call.getOperand(1), SCRATCH_OPERAND0);
+
+        if (loopBytes > 0) {
+            String loopLabel = "zerofill_" + zeroFillCounter++;
+            if (loopBytes <= 32767) {
+                makeAddiu(SCRATCH_OPERAND1, SCRATCH_OPERAND0, loopBytes);
+            } else {
+                makeLi(SCRATCH_OPERAND1, loopBytes);
+                makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, SCRATCH_OPERAND1, SCRATCH_OPERAND1, SCRATCH_OPERAND0);
+            }
+            makeLabel(loopLabel);
+            for (int i = 0; i < ZERO_FILL_UNROLL; i++) {
+                makeStore(4, Reg.zero, i * 4, SCRATCH_OPERAND0);
+            }
+            makeAddiu(SCRATCH_OPERAND0, SCRATCH_OPERAND0, ZERO_FILL_UNROLL * 4);
+            makeBne(SCRATCH_OPERAND0, SCRATCH_OPERAND1, loopLabel);
+        }
+        for (int i = 0; i < count % ZERO_FILL_UNROLL; i++) {
+            makeStore(4, Reg.zero, i * 4, SCRATCH_OPERAND0);
+        }
+    }
+
     /**
      * 处理系统调用
      * @param call 调用指令
@@ -859,7 +1315,8 @@ import java.util.Set;
      */
     private boolean handleSyscall(CallInstruction call, String name, IRFunction func) {
         if (name.equals("getint") || name.equals("getchar")) {
-            // 输入类系统调用
+            // 输入类系统调用，缓冲输出时先把已缓冲的内容输出
+            if (Config.bufferedOutputFlag) callOutputRuntime(OUT_FLUSH);
             makeLi(Reg.v0, name.equals("getint") ? 5 : 12);
             makeSyscall();
             // 处理返回值
@@ -868,32 +1325,174 @@ import java.util.Set;
             return true;
         } else if (name.equals("putint") || name.equals("putch")) {
             // 输出类系统调用 (int/char)
-            makeMove(Reg.k1, Reg.a0); // 保护 a0，因为 syscall 使用 a0 传参
+            boolean saveA0 = isRegOccupied(Reg.a0);
+            if (Config.bufferedOutputFlag && !saveA0) {
+                loadValToReg(call.getOperand(1), Reg.a0);
+                callOutputRuntime(name.equals("putint") ? OUT_PUTINT : OUT_PUTCH);
+                return true;
+            }
+            if (Config.bufferedOutputFlag) callOutputRuntime(OUT_FLUSH);
+            if (saveA0) makeMove(SCRATCH_OPERAND1, Reg.a0); // 保护 a0，因为 syscall 使用 a0 传参
             loadValToReg(call.getOperand(1), Reg.a0);
             makeLi(Reg.v0, name.equals("putint") ? 1 : 11);
             makeSyscall();
-            makeMove(Reg.a0, Reg.k1); // 恢复 a0
+            if (saveA0) makeMove(Reg.a0, SCRATCH_OPERAND1); // 恢复 a0
             return true;
         } else if (name.equals("putstr")) {
             // 输出字符串
-            makeMove(Reg.k1, Reg.a0);
+            boolean saveA0 = isRegOccupied(Reg.a0);
             IRValue arg = call.getOperand(1);
+            if (Config.bufferedOutputFlag && !saveA0) {
+                if (arg instanceof IRStringLiteral) makeLa(Reg.a0, arg.getName().substring(1));
+                else loadValToReg(arg, Reg.a0);
+                callOutputRuntime(OUT_PUTSTR);
+                return true;
+            }
+            if (Config.bufferedOutputFlag) callOutputRuntime(OUT_FLUSH);
+            if (saveA0) makeMove(SCRATCH_OPERAND1, Reg.a0);
             if (arg instanceof IRStringLiteral) makeLa(Reg.a0, arg.getName().substring(1));
             else loadValToReg(arg, Reg.a0);
             makeLi(Reg.v0, 4);
             makeSyscall();
-            makeMove(Reg.a0, Reg.k1);
+            if (saveA0) makeMove(Reg.a0, SCRATCH_OPERAND1);
             return true;
         }
         return false;
     }
 
+    // ==================== 缓冲输出运行时 ====================
+
+    /**
+     * 调用输出运行时例程
+     * 例程只使用 SCRATCH_OPERAND0/1、$v0/$a0 和 hi/lo，返回地址借 SCRATCH_ARITH0 暂存，不影响分配给变量的寄存器
+     * @param routine 例程标签
+     */
+    private void callOutputRuntime(String routine) {
+        makeMove(SCRATCH_ARITH0, Reg.ra);
+        makeJal(routine);
+        makeMove(Reg.ra, SCRATCH_ARITH0);
+    }
+
+    /**
+     * 生成缓冲输出运行时（数据区与例程），放在所有函数之后
+     * out.len 记录缓冲区已用字节数；out.buf 末尾多留一字节始终为 0，满缓冲区可直接作为字符串输出
+     */
+    private void genOutputRuntime() {
+        makeWordData(OUT_LEN, new ArrayList<>(Collections.singletonList(0)));
+        makeSpaceData(OUT_BUF, OUT_BUF_SIZE + 1);
+        makeSpaceData(OUT_NUM, 12);
+
+        // 注意：窥孔优化会把 la/li/addiu 与紧随的访存折叠并丢弃中间寄存器，
+        // 因此每个 la 只服务于紧跟的一次访存，不在之后复用
+
+        // out.flush: 缓冲区非空时以 syscall 4 输出并清空，保留 $a0
+        makeLabel(OUT_FLUSH);
+        makeLa(SCRATCH_OPERAND0, OUT_LEN);
+        makeLoad(4, Reg.v0, 0, SCRATCH_OPERAND0);
+        makeBeq(Reg.v0, Reg.zero, OUT_FLUSH + "_end");
+        makeLa(SCRATCH_OPERAND0, OUT_LEN);
+        makeStore(4, Reg.zero, 0, SCRATCH_OPERAND0);
+        makeLa(SCRATCH_OPERAND0, OUT_BUF);
+        makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, Reg.v0, SCRATCH_OPERAND0, Reg.v0);
+        makeStore(1, Reg.zero, 0, Reg.v0);
+        makeMove(SCRATCH_OPERAND1, Reg.a0);
+        makeMove(Reg.a0, SCRATCH_OPERAND0);
+        makeLi(Reg.v0, 4);
+        makeSyscall();
+        makeMove(Reg.a0, SCRATCH_OPERAND1);
+        makeLabel(OUT_FLUSH + "_end");
+        makeJr(Reg.ra);
+
+        // out.putch: $a0 为字符，写满时转入 out.flush（由其返回调用者）
+        makeLabel(OUT_PUTCH);
+        makeLa(SCRATCH_OPERAND0, OUT_LEN);
+        makeLoad(4, SCRATCH_OPERAND1, 0, SCRATCH_OPERAND0);
+        makeLa(Reg.v0, OUT_BUF);
+        makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, Reg.v0, Reg.v0, SCRATCH_OPERAND1);
+        makeStore(1, Reg.a0, 0, Reg.v0);
+        makeAddiu(SCRATCH_OPERAND1, SCRATCH_OPERAND1, 1);
+        makeLa(SCRATCH_OPERAND0, OUT_LEN);
+        makeStore(4, SCRATCH_OPERAND1, 0, SCRATCH_OPERAND0);
+        makeLi(Reg.v0, OUT_BUF_SIZE);
+        makeBeq(SCRATCH_OPERAND1, Reg.v0, OUT_FLUSH);
+        makeJr(Reg.ra);
+
+        // out.putint: $a0 为整数，在 out.num 中从后往前写出十进制文本，再落入 out.putstr
+        // 统一取负数做除法，-2147483648 也不会溢出
+        makeLabel(OUT_PUTINT);
+        makeLa(SCRATCH_OPERAND0, OUT_NUM);
+        makeAddiu(SCRATCH_OPERAND0, SCRATCH_OPERAND0, 11);
+        makeMove(Reg.v0, Reg.a0);
+        makeCompare(CompareInstruction.CompareCondition.SLT, SCRATCH_OPERAND1, Reg.zero, Reg.a0);
+        makeBeq(SCRATCH_OPERAND1, Reg.zero, OUT_PUTINT + "_loop");
+        makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, Reg.a0, Reg.zero, Reg.a0);
+        makeLabel(OUT_PUTINT + "_loop");
+        makeLi(SCRATCH_OPERAND1, 10);
+        makeCompute(BinaryOperationInstruction.BinaryOperator.SDIV, Reg.a0, Reg.a0, SCRATCH_OPERAND1);
+        makeMfhi(SCRATCH_OPERAND1);
+        makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, SCRATCH_OPERAND1, Reg.zero, SCRATCH_OPERAND1);
+        makeAddiu(SCRATCH_OPERAND1, SCRATCH_OPERAND1, '0');
+        makeStore(1, SCRATCH_OPERAND1, -1, SCRATCH_OPERAND0);
+        makeAddiu(SCRATCH_OPERAND0, SCRATCH_OPERAND0, -1);
+        makeBne(Reg.a0, Reg.zero, OUT_PUTINT + "_loop");
+        makeCompare(CompareInstruction.CompareCondition.SLT, SCRATCH_OPERAND1, Reg.v0, Reg.zero);
+        makeBeq(SCRATCH_OPERAND1, Reg.zero, OUT_PUTINT + "_out");
+        makeLi(SCRATCH_OPERAND1, '-');
+        makeStore(1, SCRATCH_OPERAND1, -1, SCRATCH_OPERAND0);
+        makeAddiu(SCRATCH_OPERAND0, SCRATCH_OPERAND0, -1);
+        makeLabel(OUT_PUTINT + "_out");
+        makeMove(Reg.a0, SCRATCH_OPERAND0);
+
+        // out.putstr: $a0 为字符串地址，逐字节拷入缓冲区，写满即输出
+        // 写满时长度恒为 OUT_BUF_SIZE，$k1 可暂存源地址
+        makeLabel(OUT_PUTSTR);
+        makeLa(SCRATCH_OPERAND0, OUT_LEN);
+        makeLoad(4, SCRATCH_OPERAND1, 0, SCRATCH_OPERAND0);
+        makeLabel(OUT_PUTSTR + "_loop");
+        makeLoad(1, Reg.v0, 0, Reg.a0);
+        makeBeq(Reg.v0, Reg.zero, OUT_PUTSTR + "_end");
+        makeLa(SCRATCH_OPERAND0, OUT_BUF);
+        makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, SCRATCH_OPERAND0, SCRATCH_OPERAND0, SCRATCH_OPERAND1);
+        makeStore(1, Reg.v0, 0, SCRATCH_OPERAND0);
+        makeAddiu(SCRATCH_OPERAND1, SCRATCH_OPERAND1, 1);
+        makeAddiu(Reg.a0, Reg.a0, 1);
+        makeLi(Reg.v0, OUT_BUF_SIZE);
+        makeBne(SCRATCH_OPERAND1, Reg.v0, OUT_PUTSTR + "_loop");
+        makeMove(SCRATCH_OPERAND1, Reg.a0);
+        makeLa(Reg.a0, OUT_BUF);
+        makeLi(Reg.v0, 4);
+        makeSyscall();
+        makeMove(Reg.a0, SCRATCH_OPERAND1);
+        makeLi(SCRATCH_OPERAND1, 0);
+        makeJ(OUT_PUTSTR + "_loop");
+        makeLabel(OUT_PUTSTR + "_end");
+        makeLa(SCRATCH_OPERAND0, OUT_LEN);
+        makeStore(4, SCRATCH_OPERAND1, 0, SCRATCH_OPERAND0);
+        makeJr(Reg.ra);
+    }
+
+    /**
+     * 判断寄存器当前是否存放着某个 IR 值
+     * 参数在函数入口已落栈或搬到分配的寄存器，$a0 不被分配时在 syscall 处是死的，无需保护
+     * @param reg 寄存器
+     * @return 有值分配在该寄存器上返回 true
+     */
+    private boolean isRegOccupied(Reg reg) {
+        return valRegs.containsValue(reg);
+    }
+
     /**
      * 映射 GEP (GetElementPtr) 指令
      * @param gep GEP 指令
      */
     public void mapGep(GetElementPtrInstruction gep) {
-        Reg baseReg = Reg.k0;
+        // 0. 下标全为常量且基址可重算：分到寄存器时一条 addiu/la 算出，否则留到使用处重算
+        if (Rematerialization.isRematerializable(gep)) {
+            if (findReg(gep) != null) rematerialize(gep, findReg(gep), 0);
+            return;
+        }
+
+        Reg baseReg = SCRATCH_OPERAND0;
         IRValue base = gep.getBasePointer();
 
         // 1. 加载基地址
@@ -901,12 +1500,14 @@ import java.util.Set;
             makeLa(baseReg, base.getName().substring(1));
         } else if (findReg(base) != null) {
             baseReg = findReg(base);
+        } else if (Rematerialization.isRematerializable(base)) {
+            rematerialize(base, baseReg, 0);
         } else {
             makeLoad(4, baseReg, findOffset(base), Reg.sp);
         }
 
         // 2. 计算偏移量
-        Reg offsetReg = Reg.k1;
+        Reg offsetReg = SCRATCH_OPERAND1;
         makeLi(offsetReg, 0);
 
         IRType type = ((PointerType) base.getType()).getPointeeType();
@@ -934,8 +1535,8 @@ import java.util.Set;
         if (findReg(gep) != null) {
             makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, findReg(gep), baseReg, offsetReg);
         } else {
-            makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, Reg.k0, baseReg, offsetReg);
-            makeStore(4, Reg.k0, findOffset(gep), Reg.sp);
+            makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, SCRATCH_OPERAND0, baseReg, offsetReg);
+            makeStore(4, SCRATCH_OPERAND0, findOffset(gep), Reg.sp);
         }
     }
 
@@ -955,26 +1556,21 @@ import java.util.Set;
             if (imm >= -32768 && imm <= 32767) {
                 makeAddiu(offsetReg, offsetReg, imm);
             } else {
-                makeLi(Reg.t0, imm);
-                makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, offsetReg, offsetReg, Reg.t0);
+                makeLi(SCRATCH_ARITH0, imm);
+                makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, offsetReg, offsetReg, SCRATCH_ARITH0);
             }
         } else {
             // 变量索引
-            Reg idxReg = Reg.t0;
+            Reg idxReg = SCRATCH_ARITH0;
             if (findReg(idx) != null) idxReg = findReg(idx);
             else makeLoad(4, idxReg, findOffset(idx), Reg.sp);
 
-            if ((size & (size - 1)) == 0) {
-                // 元素大小为 2 的幂：用左移替代乘法，shift=log2(size)
-                int shift = Integer.numberOfTrailingZeros(size);
-                makeSll(Reg.t2, idxReg, shift);
-                makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, offsetReg, offsetReg, Reg.t2);
-            } else {
-                // 非 2 的幂：保留乘法路径
-                makeLi(Reg.t1, size);
-                makeCompute(BinaryOperationInstruction.BinaryOperator.MUL, Reg.t2, idxReg, Reg.t1);
-                makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, offsetReg, offsetReg, Reg.t2);
+            // 步长乘法：2 的幂即一条 sll，其余尝试移位加减序列，过长时保留乘法路径
+            if (!makeMulByConstant(SCRATCH_ARITH2, idxReg, size, SCRATCH_ARITH1)) {
+                makeLi(SCRATCH_ARITH1, size);
+                makeCompute(BinaryOperationInstruction.BinaryOperator.MUL, SCRATCH_ARITH2, idxReg, SCRATCH_ARITH1);
             }
+            makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, offsetReg, offsetReg, SCRATCH_ARITH2);
         }
     }
 
@@ -985,14 +1581,22 @@ import java.util.Set;
     public void mapStore(StoreInstruction store) {
         IRValue src = store.getOperand(0);
         IRValue dest = store.getOperand(1);
-        Reg data = Reg.k0;
-        Reg addr = Reg.k1;
+        Reg data = SCRATCH_OPERAND0;
+        Reg addr = SCRATCH_OPERAND1;
+        int disp = 0;
 
-        // 1. 准备地址
+        // 1. 准备地址：可重算的地址直接作为 $sp 偏移或 label+偏移（la 与访存由窥孔折叠）
         if (dest instanceof IRGlobalVariable || dest instanceof IRStaticVariable) {
             makeLa(addr, dest.getName().substring(1));
         } else if (findReg(dest) != null) {
             addr = findReg(dest);
+        } else if (isFrameDisplacement(getFrameAddress(dest))) {
+            addr = Reg.sp;
+            disp = getFrameAddress(dest);
+        } else if (Rematerialization.isRematerializable(dest) && getFrameAddress(dest) == null) {
+            makeLa(addr, getSymbolAddress(dest));
+        } else if (Rematerialization.isRematerializable(dest)) {
+            rematerialize(dest, addr, 0);
         } else {
             makeLoad(4, addr, findOffset(dest), Reg.sp);
         }
@@ -1009,7 +1613,7 @@ import java.util.Set;
 
         // 3. 存储 (区分 sw 和 sb)
         int align = (src.getType() == IntegerType.I8) ? 1 : 4;
-        makeStore(align, data, 0, addr);
+        makeStore(align, data, disp, addr);
     }
 
     /**
@@ -1018,13 +1622,21 @@ import java.util.Set;
      */
     public void mapLoad(LoadInstruction load) {
         IRValue src = load.getOperand(0);
-        Reg addr = Reg.k0;
+        Reg addr = SCRATCH_OPERAND0;
+        int disp = 0;
 
-        // 1. 准备地址
+        // 1. 准备地址（同 mapStore）
         if (src instanceof IRGlobalVariable || src instanceof IRStaticVariable) {
             makeLa(addr, src.getName().substring(1));
         } else if (findReg(src) != null) {
             addr = findReg(src);
+        } else if (isFrameDisplacement(getFrameAddress(src))) {
+            addr = Reg.sp;
+            disp = getFrameAddress(src);
+        } else if (Rematerialization.isRematerializable(src) && getFrameAddress(src) == null) {
+            makeLa(addr, getSymbolAddress(src));
+        } else if (Rematerialization.isRematerializable(src)) {
+            rematerialize(src, addr, 0);
         } else {
             makeLoad(4, addr, findOffset(src), Reg.sp);
         }
@@ -1034,10 +1646,10 @@ import java.util.Set;
         int align = (load.getType() == IntegerType.I8) ? 1 : 4;
 
         if (target != null) {
-            makeLoad(align, target, 0, addr);
+            makeLoad(align, target, disp, addr);
         } else {
-            makeLoad(align, Reg.k0, 0, addr);
-            makeStore(align, Reg.k0, findOffset(load), Reg.sp);
+            makeLoad(align, SCRATCH_OPERAND0, disp, addr);
+            makeStore(align, SCRATCH_OPERAND0, findOffset(load), Reg.sp);
         }
     }
 
@@ -1068,21 +1680,22 @@ import java.util.Set;
             if (t != null) {
                 makeLi(t, res);
             } else {
-                makeLi(Reg.k0, res);
-                makeStore(1, Reg.k0, findOffset(icmp), Reg.sp);
+                makeLi(SCRATCH_OPERAND0, res);
+                makeStore(4, SCRATCH_OPERAND0, findOffset(icmp), Reg.sp);
             }
             return;
         }
 
-        Reg r1 = Reg.k0, r2 = Reg.k1;
+        Reg r1 = SCRATCH_OPERAND0, r2 = SCRATCH_OPERAND1;
         loadValToReg(l, r1);
         loadValToReg(r, r2);
 
         Reg target = findReg(icmp);
-        if (target == null) target = Reg.k0;
+        if (target == null) target = SCRATCH_OPERAND0;
         makeCompare(icmp.getCondition(), target, r1, r2);
+        // i1 溢出槽按整字写入：槽可能与其他值共用，按字读取时高位不能残留旧值
         if (findReg(icmp) == null) {
-            makeStore(1, target, findOffset(icmp), Reg.sp);
+            makeStore(4, target, findOffset(icmp), Reg.sp);
         }
     }
 
@@ -1098,61 +1711,284 @@ import java.util.Set;
 
             if (cond instanceof CompareInstruction && deferredCmps.contains((CompareInstruction) cond)) {
                 CompareInstruction icmp = (CompareInstruction) cond;
-                IRValue l = icmp.getLeftOperand();
-                IRValue r = icmp.getRightOperand();
-                Reg r1 = Reg.k0, r2 = Reg.k1;
-                loadValToReg(l, r1);
-                loadValToReg(r, r2);
-                switch (icmp.getCondition()) {
-                    case EQ:
-                        makeBeq(r1, r2, trueLbl);
-                        makeJ(falseLbl);
-                        return;
-                    case NE:
-                        makeBne(r1, r2, trueLbl);
-                        makeJ(falseLbl);
-                        return;
-                    case SLT:
-                    case SLE:
-                    case SGT:
-                    case SGE:
-                        Reg t = Reg.k0;
-                        makeCompare(icmp.getCondition(), t, r1, r2);
-                        makeBne(t, Reg.zero, trueLbl);
-                        makeJ(falseLbl);
-                        return;
-                    default:
-                        break;
+                if (trueLbl.equals(nextBlockLabel)) {
+                    // 真分支紧随其后：条件取反跳到假分支，真分支落空进入
+                    makeCompareBranch(negateCondition(icmp.getCondition()), icmp.getLeftOperand(), icmp.getRightOperand(), falseLbl);
+                    removedJumps++;
+                } else {
+                    makeCompareBranch(icmp.getCondition(), icmp.getLeftOperand(), icmp.getRightOperand(), trueLbl);
+                    makeJumpUnlessNext(falseLbl);
                 }
+                return;
             }
 
             if (cond instanceof IntegerConstant) {
                 // 常量折叠：直接跳转
-                makeJ(((IntegerConstant) cond).getConstantValue() != 0 ? trueLbl : falseLbl);
+                makeJumpUnlessNext(((IntegerConstant) cond).getConstantValue() != 0 ? trueLbl : falseLbl);
             } else {
                 Reg condReg = findReg(cond);
                 if (condReg == null) {
-                    condReg = Reg.k0;
+                    condReg = SCRATCH_OPERAND0;
                     // Branch condition is i1 -> byte
                     makeLoad(1, condReg, findOffset(cond), Reg.sp);
                 }
-                // 如果条件为 0 (false)，跳转到 falseLbl
-                makeBeq(condReg, Reg.zero, falseLbl);
-                // 否则跳转到 trueLbl
-                makeJ(trueLbl);
+                if (falseLbl.equals(nextBlockLabel)) {
+                    // 条件非 0 跳到真分支，否则落入假分支
+                    makeBne(condReg, Reg.zero, trueLbl);
+                    removedJumps++;
+                } else {
+                    // 如果条件为 0 (false)，跳转到 falseLbl，否则跳转（或落入）trueLbl
+                    makeBeq(condReg, Reg.zero, falseLbl);
+                    makeJumpUnlessNext(trueLbl);
+                }
             }
         } else { // Unconditional
             String dest = ((IRBasicBlock) br.getOperand(0)).getName().substring(1);
+            makeJumpUnlessNext(dest);
+        }
+    }
+
+    /**
+     * 比较并跳转：l cond r 成立时跳到 target，按操作数形态选择最短序列
+     * <ul>
+     *   <li>与 0 比较（含 x &lt; 1、x &gt; -1 等可改写为与 0 比较的形式）：beq/bne/bltz/blez/bgtz/bgez 一条指令</li>
+     *   <li>与 16 位常量比较大小：slti + bne/beq</li>
+     *   <li>其余：beq/bne，或 slt（必要时交换操作数）+ bne/beq，不使用 sle/sgt/sge 伪指令</li>
+     * </ul>
+     */
+    private void makeCompareBranch(CompareInstruction.CompareCondition cond, IRValue l, IRValue r, String target) {
+        // 常量统一放到右侧
+        if (l instanceof IntegerConstant && !(r instanceof IntegerConstant)) {
+            IRValue tmp = l;
+            l = r;
+            r = tmp;
+            cond = swapCondition(cond);
+        }
+        if (l instanceof IntegerConstant lc && r instanceof IntegerConstant rc) {
+            if (evaluateCondition(cond, lc.getConstantValue(), rc.getConstantValue())) {
+                makeJ(target);
+            }
+            return;
+        }
+
+        Reg x = findReg(l);
+        if (x == null) {
+            x = SCRATCH_OPERAND0;
+            loadValToReg(l, x);
+        }
+        if (r instanceof IntegerConstant rc) {
+            int v = rc.getConstantValue();
+            // x < 1 即 x <= 0，x >= 1 即 x > 0，x > -1 即 x >= 0，x <= -1 即 x < 0
+            if (v == 1 && (cond == CompareInstruction.CompareCondition.SLT || cond == CompareInstruction.CompareCondition.SGE)) {
+                cond = cond == CompareInstruction.CompareCondition.SLT
+                        ? CompareInstruction.CompareCondition.SLE : CompareInstruction.CompareCondition.SGT;
+                v = 0;
+            } else if (v == -1 && (cond == CompareInstruction.CompareCondition.SGT || cond == CompareInstruction.CompareCondition.SLE)) {
+                cond = cond == CompareInstruction.CompareCondition.SGT
+                        ? CompareInstruction.CompareCondition.SGE : CompareInstruction.CompareCondition.SLT;
+                v = 0;
+            }
+            if (v == 0) {
+                makeZeroBranch(cond, x, target);
+                return;
+            }
+            // x < c / x >= c 直接用 c，x <= c / x > c 改为与 c + 1 比较
+            long bound = (cond == CompareInstruction.CompareCondition.SLE || cond == CompareInstruction.CompareCondition.SGT)
+                    ? (long) v + 1 : v;
+            if (cond != CompareInstruction.CompareCondition.EQ && cond != CompareInstruction.CompareCondition.NE
+                    && bound >= -32768 && bound <= 32767) {
+                makeSlti(SCRATCH_OPERAND1, x, (int) bound);
+                if (cond == CompareInstruction.CompareCondition.SLT || cond == CompareInstruction.CompareCondition.SLE) {
+                    makeBne(SCRATCH_OPERAND1, Reg.zero, target);
+                } else {
+                    makeBeq(SCRATCH_OPERAND1, Reg.zero, target);
+                }
+                return;
+            }
+        }
+
+        Reg y = findReg(r);
+        if (y == null) {
+            y = SCRATCH_OPERAND1;
+            loadValToReg(r, y);
+        }
+        switch (cond) {
+            case EQ: makeBeq(x, y, target); break;
+            case NE: makeBne(x, y, target); break;
+            case SLT:
+                makeCompare(CompareInstruction.CompareCondition.SLT, SCRATCH_OPERAND0, x, y);
+                makeBne(SCRATCH_OPERAND0, Reg.zero, target);
+                break;
+            case SGT:
+                makeCompare(CompareInstruction.CompareCondition.SLT, SCRATCH_OPERAND0, y, x);
+                makeBne(SCRATCH_OPERAND0, Reg.zero, target);
+                break;
+            case SGE:
+                makeCompare(CompareInstruction.CompareCondition.SLT, SCRATCH_OPERAND0, x, y);
+                makeBeq(SCRATCH_OPERAND0, Reg.zero, target);
+                break;
+            default:
+                makeCompare(CompareInstruction.CompareCondition.SLT, SCRATCH_OPERAND0, y, x);
+                makeBeq(SCRATCH_OPERAND0, Reg.zero, target);
+                break;
+        }
+    }
+
+    private CompareInstruction.CompareCondition negateCondition(CompareInstruction.CompareCondition cond) {
+        switch (cond) {
+            case EQ: return CompareInstruction.CompareCondition.NE;
+            case NE: return CompareInstruction.CompareCondition.EQ;
+            case SLT: return CompareInstruction.CompareCondition.SGE;
+            case SLE: return CompareInstruction.CompareCondition.SGT;
+            case SGT: return CompareInstruction.CompareCondition.SLE;
+            default: return CompareInstruction.CompareCondition.SLT;
+        }
+    }
+
+    private CompareInstruction.CompareCondition swapCondition(CompareInstruction.CompareCondition cond) {
+        switch (cond) {
+            case SLT: return CompareInstruction.CompareCondition.SGT;
+            case SLE: return CompareInstruction.CompareCondition.SGE;
+            case SGT: return CompareInstruction.CompareCondition.SLT;
+            case SGE: return CompareInstruction.CompareCondition.SLE;
+            default: return cond;
+        }
+    }
+
+    private boolean evaluateCondition(CompareInstruction.CompareCondition cond, int l, int r) {
+        switch (cond) {
+            case EQ: return l == r;
+            case NE: return l != r;
+            case SLT: return l < r;
+            case SLE: return l <= r;
+            case SGT: return l > r;
+            default: return l >= r;
+        }
+    }
+
+    /**
+     * 映射多路分支指令 (Switch)
+     * <ul>
+     *   <li>条件为常量：直接跳到对应目标</li>
+     *   <li>case 稠密：范围检查后查跳转表，一次 jr 完成分派</li>
+     *   <li>其余情况：按 case 值排序后二分查找，小区间内顺序比较</li>
+     * </ul>
+     * @param sw switch 指令
+     */
+    private void mapSwitch(SwitchInstruction sw) {
+        String defaultLbl = sw.getDefaultBlock().getName().substring(1);
+        IRValue cond = sw.getCondition();
+        int n = sw.getCaseCount();
+
+        if (cond instanceof IntegerConstant) {
+            int value = ((IntegerConstant) cond).getConstantValue();
+            String dest = defaultLbl;
+            for (int i = 0; i < n; i++) {
+                if (sw.getCaseValue(i) == value) {
+                    dest = sw.getCaseBlock(i).getName().substring(1);
+                    break;
+                }
+            }
             makeJ(dest);
+            return;
+        }
+
+        // 按 case 值升序整理 (值, 目标标签)
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < n; i++) order.add(i);
+        order.sort(Comparator.comparingInt(sw::getCaseValue));
+        int[] values = new int[n];
+        String[] labels = new String[n];
+        for (int k = 0; k < n; k++) {
+            values[k] = sw.getCaseValue(order.get(k));
+            labels[k] = sw.getCaseBlock(order.get(k)).getName().substring(1);
+        }
+
+        Reg condReg = findReg(cond);
+        if (condReg == null) {
+            condReg = SCRATCH_OPERAND0;
+            loadValToReg(cond, condReg);
+        }
+
+        String prefix = "switch_" + switchCounter++;
+        if (n >= SWITCH_TABLE_MIN_CASES
+                && (long) values[n - 1] - values[0] + 1 <= (long) n * SWITCH_TABLE_DENSITY) {
+            genSwitchTable(condReg, values, labels, defaultLbl, prefix);
+        } else {
+            genSwitchSearch(condReg, values, labels, 0, n - 1, defaultLbl, prefix);
         }
     }
 
+    /**
+     * 跳转表分派：idx = cond - min，越界去 default，否则取 table[idx] 跳转
+     */
+    private void genSwitchTable(Reg condReg, int[] values, String[] labels, String defaultLbl, String prefix) {
+        int min = values[0];
+        int range = values[values.length - 1] - min + 1;
+        List<String> targets = new ArrayList<>(Collections.nCopies(range, defaultLbl));
+        for (int k = values.length - 1; k >= 0; k--) {
+            targets.set(values[k] - min, labels[k]);
+        }
+        String tableName = prefix + "_table";
+        makeJumpTableData(tableName, targets);
+
+        Reg idx = condReg;
+        if (min != 0) {
+            idx = SCRATCH_OPERAND0;
+            if (min > -32768 && min <= 32768) {
+                makeAddiu(idx, condReg, -min);
+            } else {
+                makeLi(SCRATCH_OPERAND1, min);
+                makeCompute(BinaryOperationInstruction.BinaryOperator.SUB, idx, condReg, SCRATCH_OPERAND1);
+            }
+        }
+        makeCompare(CompareInstruction.CompareCondition.SLT, SCRATCH_OPERAND1, idx, Reg.zero);
+        makeBne(SCRATCH_OPERAND1, Reg.zero, defaultLbl);
+        makeLi(SCRATCH_OPERAND1, range);
+        makeCompare(CompareInstruction.CompareCondition.SLT, SCRATCH_OPERAND1, idx, SCRATCH_OPERAND1);
+        makeBeq(SCRATCH_OPERAND1, Reg.zero, defaultLbl);
+        makeSll(SCRATCH_OPERAND0, idx, 2);
+        makeLa(SCRATCH_OPERAND1, tableName);
+        makeCompute(BinaryOperationInstruction.BinaryOperator.ADD, SCRATCH_OPERAND0, SCRATCH_OPERAND0, SCRATCH_OPERAND1);
+        makeLoad(4, SCRATCH_OPERAND0, 0, SCRATCH_OPERAND0);
+        makeJr(SCRATCH_OPERAND0);
+    }
+
+    /**
+     * 在有序的 values[lo..hi] 上二分查找：cond < values[mid] 去左半区间，否则留在右半区间
+     */
+    private void genSwitchSearch(Reg condReg, int[] values, String[] labels, int lo, int hi,
+                                 String defaultLbl, String prefix) {
+        if (hi - lo + 1 <= SWITCH_LINEAR_CASES) {
+            for (int k = lo; k <= hi; k++) {
+                if (values[k] == 0) {
+                    makeBeq(condReg, Reg.zero, labels[k]);
+                } else {
+                    makeLi(SCRATCH_OPERAND1, values[k]);
+                    makeBeq(condReg, SCRATCH_OPERAND1, labels[k]);
+                }
+            }
+            makeJ(defaultLbl);
+            return;
+        }
+        int mid = (lo + hi + 1) / 2;
+        String leftLbl = prefix + "_" + lo + "_" + (mid - 1);
+        makeLi(SCRATCH_OPERAND1, values[mid]);
+        makeCompare(CompareInstruction.CompareCondition.SLT, SCRATCH_OPERAND1, condReg, SCRATCH_OPERAND1);
+        makeBne(SCRATCH_OPERAND1, Reg.zero, leftLbl);
+        genSwitchSearch(condReg, values, labels, mid, hi, defaultLbl, prefix);
+        makeLabel(leftLbl);
+        genSwitchSearch(condReg, values, labels, lo, mid - 1, defaultLbl, prefix);
+    }
+
     /**
      * 映射返回指令 (Return)
      * @param ret 返回指令
      */
     public void mapRet(ReturnInstruction ret) {
         if (currentFunction.getName().equals("@main")) {
+            // 退出前输出缓冲区中剩余的内容
+            if (Config.bufferedOutputFlag) makeJal(OUT_FLUSH);
             makeLi(Reg.v0, 10);
             makeSyscall();
         } else {
@@ -1167,7 +2003,13 @@ import java.util.Set;
                     makeLoad(align, Reg.v0, findOffset(val), Reg.sp);
                 }
             }
-            // 恢复栈指针 (Epilogue)
+            // 恢复 $ra、被调用者保存寄存器与栈指针 (Epilogue)
+            if (returnAddressOffset != null) {
+                makeLoad(4, Reg.ra, returnAddressOffset, Reg.sp);
+            }
+            for (Map.Entry<Reg, Integer> entry : calleeSavedOffsets.entrySet()) {
+                makeLoad(4, entry.getKey(), entry.getValue(), Reg.sp);
+            }
             if (currentFrameSize > 0) {
                 makeAddiu(Reg.sp, Reg.sp, currentFrameSize);
             }
@@ -1189,20 +2031,24 @@ import java.util.Set;
             int val = ((IntegerConstant) src).getConstantValue();
             if (destReg != null) makeLi(destReg, val);
             else {
-                makeLi(Reg.k0, val);
+                makeLi(SCRATCH_OPERAND0, val);
                 int align = (dest.getType() == IntegerType.I8) ? 1 : 4;
-                makeStore(align, Reg.k0, findOffset(dest), Reg.sp);
+                makeStore(align, SCRATCH_OPERAND0, findOffset(dest), Reg.sp);
             }
         } else {
             int align = (src.getType() == IntegerType.I8) ? 1 : 4;
-            if (destReg != null) {
+            if (srcReg == null && Rematerialization.isRematerializable(src)) {
+                rematerialize(src, destReg != null ? destReg : SCRATCH_OPERAND0, 0);
+                if (destReg == null) makeStore(align, SCRATCH_OPERAND0, findOffset(dest), Reg.sp);
+            } else if (destReg != null) {
                 if (srcReg != null) makeMove(destReg, srcReg);
                 else makeLoad(align, destReg, findOffset(src), Reg.sp);
             } else {
                 if (srcReg != null) makeStore(align, srcReg, findOffset(dest), Reg.sp);
-                else {
-                    makeLoad(align, Reg.k0, findOffset(src), Reg.sp);
-                    makeStore(align, Reg.k0, findOffset(dest), Reg.sp);
+                else if (!findOffset(src).equals(findOffset(dest))) {
+                    // 两端共用栈槽时无需拷贝
+                    makeLoad(align, SCRATCH_OPERAND0, findOffset(src), Reg.sp);
+                    makeStore(align, SCRATCH_OPERAND0, findOffset(dest), Reg.sp);
                 }
             }
         }
@@ -1224,22 +2070,22 @@ import java.util.Set;
             if (target != null) {
                 makeLi(target, v);
             } else {
-                makeLi(Reg.k0, v);
-                makeStore(4, Reg.k0, findOffset(zext), Reg.sp);
+                makeLi(SCRATCH_OPERAND0, v);
+                makeStore(4, SCRATCH_OPERAND0, findOffset(zext), Reg.sp);
             }
             return;
         }
         if (findReg(src) != null) {
             Reg r = findReg(src);
             if (target == null) {
-                makeMove(Reg.k0, r);
-                makeAndi(Reg.k0, Reg.k0, 0xFF);
-                makeStore(4, Reg.k0, findOffset(zext), Reg.sp);
+                makeMove(SCRATCH_OPERAND0, r);
+                makeAndi(SCRATCH_OPERAND0, SCRATCH_OPERAND0, 0xFF);
+                makeStore(4, SCRATCH_OPERAND0, findOffset(zext), Reg.sp);
             } else {
                 makeAndi(target, r, 0xFF);
             }
         } else {
-            Reg tmp = Reg.k0;
+            Reg tmp = SCRATCH_OPERAND0;
             makeLoadUnsignedByte(tmp, findOffset(src), Reg.sp);
             if (target == null) {
                 makeStore(4, tmp, findOffset(zext), Reg.sp);
@@ -1256,12 +2102,18 @@ import java.util.Set;
     public void mapTrunc(TruncateInstruction trunc) {
         // Trunc i32 -> i8.
         // 优化：当目标在寄存器时使用 andi 0xFF 保证低字节；否则按字节存储到栈
-        Reg tmp = Reg.k0;
+        Reg tmp = SCRATCH_OPERAND0;
         loadValToReg(trunc.getOriginalValue(), tmp);
 
         Reg target = findReg(trunc);
         if (target == null) {
-            makeStore(1, tmp, findOffset(trunc), Reg.sp);
+            // 截断到 i8 按字节存；截断到 i1 与寄存器路径一样取低字节，按整字存，与其他 i1 溢出槽一致
+            if (trunc.getType() == IntegerType.I8) {
+                makeStore(1, tmp, findOffset(trunc), Reg.sp);
+            } else {
+                makeAndi(tmp, tmp, 0xFF);
+                makeStore(4, tmp, findOffset(trunc), Reg.sp);
+            }
         } else {
             if (target != tmp) makeMove(target, tmp);
             makeAndi(target, target, 0xFF);
@@ -1274,6 +2126,6 @@ import java.util.Set;
      */
     private void mapJump(JumpInstruction jump) {
         String dest = ((IRBasicBlock) jump.getOperand(0)).getName().substring(1);
-        makeJ(dest);
+        makeJumpUnlessNext(dest);
     }
 }
@@ -6,14 +6,21 @@ import java.util.stream.Collectors;
 
 public class Note {
     private final IRValue content;
+    private final String text;
 
     public Note(IRValue content) {
         this.content = content;
+        this.text = null;
+    }
+
+    public Note(String text) {
+        this.content = null;
+        this.text = text;
     }
 
     @Override
     public String toString() {
-        String raw = content.toString();
+        String raw = text != null ? text : content.toString();
         if (raw == null || raw.isEmpty()) {
             return "";
         }
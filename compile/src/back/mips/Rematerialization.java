@@ -0,0 +1,77 @@
+package back.mips;
+
+import middle.llvm.type.ArrayType;
+import middle.llvm.type.IRType;
+import middle.llvm.type.PointerType;
+import middle.llvm.value.IRGlobalVariable;
+import middle.llvm.value.IRStaticVariable;
+import middle.llvm.value.IRStringLiteral;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.constant.IntegerConstant;
+import middle.llvm.value.instruction.AllocaInstruction;
+import middle.llvm.value.instruction.GetElementPtrInstruction;
+
+/**
+ * 可重算值（rematerialization）
+ * <p>地址由 "锚点 + 常量偏移" 唯一确定的值：没分到寄存器时不占栈槽，在每个使用处重新计算，代替溢出后的 lw</p>
+ * <ul>
+ *   <li>alloca：锚点是帧内对象，重算为 addiu r, $sp, 偏移</li>
+ *   <li>全局变量、静态变量、字符串常量：锚点是符号，重算为 la r, label+偏移</li>
+ *   <li>以上述值为基址、下标全为常量的 GEP：折叠到基址的锚点上</li>
+ * </ul>
+ * <p>整数常量本就在使用处 li，不参与寄存器分配；寄存器分配器据此降低这类值的溢出代价，后端据此跳过栈槽并就地重算</p>
+ */
+public final class Rematerialization {
+    private Rematerialization() {}
+
+    public static boolean isRematerializable(IRValue value) {
+        return getAnchor(value) != null;
+    }
+
+    /**
+     * 地址的锚点：alloca 或全局符号
+     * @return 不可重算时返回 null
+     */
+    public static IRValue getAnchor(IRValue value) {
+        if (value instanceof AllocaInstruction || isSymbol(value)) {
+            return value;
+        }
+        if (value instanceof GetElementPtrInstruction gep && hasConstantIndices(gep)) {
+            return getAnchor(gep.getBasePointer());
+        }
+        return null;
+    }
+
+    /**
+     * 相对锚点的字节偏移，value 须可重算
+     */
+    public static int getConstantOffset(IRValue value) {
+        if (!(value instanceof GetElementPtrInstruction gep)) {
+            return 0;
+        }
+        IRValue base = gep.getBasePointer();
+        int offset = getConstantOffset(base);
+        // 步长的求法与 MipsCodeGenerator.mapGep 一致
+        IRType type = ((PointerType) base.getType()).getPointeeType();
+        for (int i = 0; i < gep.getIndexCount(); i++) {
+            if (i > 0 && type instanceof ArrayType) {
+                type = ((ArrayType) type).getElementType();
+            }
+            offset += ((IntegerConstant) gep.getIndex(i)).getConstantValue() * type.getByteSize();
+        }
+        return offset;
+    }
+
+    public static boolean isSymbol(IRValue value) {
+        return value instanceof IRGlobalVariable || value instanceof IRStaticVariable || value instanceof IRStringLiteral;
+    }
+
+    private static boolean hasConstantIndices(GetElementPtrInstruction gep) {
+        for (int i = 0; i < gep.getIndexCount(); i++) {
+            if (!(gep.getIndex(i) instanceof IntegerConstant)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
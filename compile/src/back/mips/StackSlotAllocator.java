@@ -0,0 +1,270 @@
+package back.mips;
+
+import middle.llvm.type.IntegerType;
+import middle.llvm.value.IRBasicBlock;
+import middle.llvm.value.IRFunction;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.instruction.BranchInstruction;
+import middle.llvm.value.instruction.CompareInstruction;
+import middle.llvm.value.instruction.CopyInstruction;
+import middle.llvm.value.instruction.IRInstruction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 栈槽着色
+ * <p>为没分到寄存器的值分配栈槽：生命期不重叠的值共用同一个槽，代替每个值一个永久槽</p>
+ * <ul>
+ *   <li>活跃分析在 RemovePhi 之后的非 SSA 形式上进行（拷贝目标可能有多处定义），CFG 由终结指令直接求出</li>
+ *   <li>延迟到条件跳转处才生成的比较，其操作数视为在跳转处仍被使用</li>
+ *   <li>定义点与该处活跃的溢出值冲突；入口处活跃的值与落盘的形参两两冲突</li>
+ *   <li>i8 值占 1 字节槽，集中紧排在字槽之后；其余值（含 i1）占 4 字节对齐的字槽</li>
+ *   <li>按出现顺序贪心取最小的可用槽，拷贝两端优先共用一个槽，此时拷贝本身可以省去</li>
+ * </ul>
+ */
+public class StackSlotAllocator {
+    private final IRFunction function;
+    // 需要栈槽的值，按首次出现的顺序
+    private final List<IRValue> values;
+    private final Set<IRValue> valueSet;
+
+    private final Map<IRValue, Set<IRValue>> interference = new HashMap<>();
+    // 拷贝两端（都在栈上）
+    private final Map<IRValue, Set<IRValue>> copyPartners = new HashMap<>();
+
+    private final Map<IRValue, Integer> offsets = new LinkedHashMap<>();
+    private int areaSize = 0;
+
+    public StackSlotAllocator(IRFunction function, List<IRValue> values) {
+        this.function = function;
+        this.values = values;
+        this.valueSet = new HashSet<>(values);
+        for (IRValue value : values) {
+            interference.put(value, new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * 每个值一个槽时的区域大小（字槽在前、字节槽在后，与 allocate 的排布方式相同）
+     */
+    public int getUnsharedSize() {
+        int words = 0, bytes = 0;
+        for (IRValue value : values) {
+            if (isByteValue(value)) {
+                bytes++;
+            } else {
+                words++;
+            }
+        }
+        return alignUp(words * 4 + bytes, 4);
+    }
+
+    /**
+     * 着色后的区域大小（4 字节对齐）
+     */
+    public int getAreaSize() {
+        return areaSize;
+    }
+
+    /**
+     * 分配栈槽
+     * @return 值 -> 相对区域起点的非负偏移
+     */
+    public Map<IRValue, Integer> allocate() {
+        buildInterference();
+
+        Map<IRValue, Integer> wordSlots = new HashMap<>();
+        Map<IRValue, Integer> byteSlots = new HashMap<>();
+        int wordCount = 0, byteCount = 0;
+        for (IRValue value : values) {
+            boolean isByte = isByteValue(value);
+            Map<IRValue, Integer> slots = isByte ? byteSlots : wordSlots;
+            int slot = chooseSlot(value, slots);
+            slots.put(value, slot);
+            if (isByte) {
+                byteCount = Math.max(byteCount, slot + 1);
+            } else {
+                wordCount = Math.max(wordCount, slot + 1);
+            }
+        }
+
+        int byteBase = wordCount * 4;
+        for (IRValue value : values) {
+            Integer word = wordSlots.get(value);
+            offsets.put(value, word != null ? word * 4 : byteBase + byteSlots.get(value));
+        }
+        areaSize = alignUp(byteBase + byteCount, 4);
+        return offsets;
+    }
+
+    private int chooseSlot(IRValue value, Map<IRValue, Integer> slots) {
+        Set<Integer> taken = new HashSet<>();
+        for (IRValue other : interference.get(value)) {
+            Integer slot = slots.get(other);
+            if (slot != null) {
+                taken.add(slot);
+            }
+        }
+        for (IRValue partner : copyPartners.getOrDefault(value, Set.of())) {
+            Integer slot = slots.get(partner);
+            if (slot != null && !taken.contains(slot)) {
+                return slot;
+            }
+        }
+        int slot = 0;
+        while (taken.contains(slot)) {
+            slot++;
+        }
+        return slot;
+    }
+
+    // ==================== 活跃分析与冲突 ====================
+
+    private void buildInterference() {
+        List<IRBasicBlock> blocks = function.getBasicBlocks();
+        Map<IRBasicBlock, List<IRBasicBlock>> successors = new HashMap<>();
+        for (IRBasicBlock block : blocks) {
+            List<IRBasicBlock> succs = new ArrayList<>();
+            IRInstruction terminator = block.getLastInstruction();
+            if (terminator != null) {
+                for (IRValue operand : terminator.getAllOperands()) {
+                    if (operand instanceof IRBasicBlock target && !succs.contains(target)) {
+                        succs.add(target);
+                    }
+                }
+            }
+            successors.put(block, succs);
+        }
+
+        // 块内 use（先于定义的使用）与 def
+        Map<IRBasicBlock, Set<IRValue>> useSets = new HashMap<>();
+        Map<IRBasicBlock, Set<IRValue>> defSets = new HashMap<>();
+        for (IRBasicBlock block : blocks) {
+            Set<IRValue> use = new HashSet<>(), def = new HashSet<>();
+            for (IRInstruction instr : block.getAllInstructions()) {
+                for (IRValue operand : getUses(instr)) {
+                    if (!def.contains(operand)) {
+                        use.add(operand);
+                    }
+                }
+                IRValue defined = getDef(instr);
+                if (defined != null) {
+                    def.add(defined);
+                }
+            }
+            useSets.put(block, use);
+            defSets.put(block, def);
+        }
+
+        Map<IRBasicBlock, Set<IRValue>> liveIn = new HashMap<>();
+        Map<IRBasicBlock, Set<IRValue>> liveOut = new HashMap<>();
+        for (IRBasicBlock block : blocks) {
+            liveIn.put(block, new HashSet<>());
+            liveOut.put(block, new HashSet<>());
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = blocks.size() - 1; i >= 0; i--) {
+                IRBasicBlock block = blocks.get(i);
+                Set<IRValue> out = new HashSet<>();
+                for (IRBasicBlock succ : successors.get(block)) {
+                    Set<IRValue> succIn = liveIn.get(succ);
+                    if (succIn != null) {
+                        out.addAll(succIn);
+                    }
+                }
+                Set<IRValue> in = new HashSet<>(out);
+                in.removeAll(defSets.get(block));
+                in.addAll(useSets.get(block));
+                if (!out.equals(liveOut.get(block)) || !in.equals(liveIn.get(block))) {
+                    liveOut.put(block, out);
+                    liveIn.put(block, in);
+                    changed = true;
+                }
+            }
+        }
+
+        for (IRBasicBlock block : blocks) {
+            Set<IRValue> live = new LinkedHashSet<>(liveOut.get(block));
+            List<IRInstruction> instructions = block.getAllInstructions();
+            for (int i = instructions.size() - 1; i >= 0; i--) {
+                IRInstruction instr = instructions.get(i);
+                IRValue defined = getDef(instr);
+                if (defined != null) {
+                    live.remove(defined);
+                    for (IRValue value : live) {
+                        addEdge(defined, value);
+                    }
+                    if (instr instanceof CopyInstruction copy && valueSet.contains(copy.getSourceValue())) {
+                        copyPartners.computeIfAbsent(defined, k -> new LinkedHashSet<>()).add(copy.getSourceValue());
+                        copyPartners.computeIfAbsent(copy.getSourceValue(), k -> new LinkedHashSet<>()).add(defined);
+                    }
+                }
+                live.addAll(getUses(instr));
+            }
+            if (!blocks.isEmpty() && block == blocks.get(0)) {
+                // 形参在入口处一并落盘，即使之后不再使用也不能与其他形参共槽
+                for (IRValue param : function.getParameters()) {
+                    if (valueSet.contains(param)) {
+                        live.add(param);
+                    }
+                }
+                for (IRValue value : live) {
+                    for (IRValue other : live) {
+                        addEdge(value, other);
+                    }
+                }
+            }
+        }
+    }
+
+    private IRValue getDef(IRInstruction instr) {
+        IRValue defined = instr instanceof CopyInstruction copy ? copy.getTargetValue() : instr;
+        return valueSet.contains(defined) ? defined : null;
+    }
+
+    private List<IRValue> getUses(IRInstruction instr) {
+        List<IRValue> uses = new ArrayList<>();
+        List<IRValue> operands = instr.getAllOperands();
+        int first = instr instanceof CopyInstruction ? 1 : 0;
+        for (int i = first; i < operands.size(); i++) {
+            addUse(uses, operands.get(i));
+        }
+        if (instr instanceof BranchInstruction && !operands.isEmpty()
+                && operands.get(0) instanceof CompareInstruction cmp) {
+            for (IRValue operand : cmp.getAllOperands()) {
+                addUse(uses, operand);
+            }
+        }
+        return uses;
+    }
+
+    private void addUse(List<IRValue> uses, IRValue value) {
+        if (valueSet.contains(value)) {
+            uses.add(value);
+        }
+    }
+
+    private void addEdge(IRValue a, IRValue b) {
+        if (a != b) {
+            interference.get(a).add(b);
+            interference.get(b).add(a);
+        }
+    }
+
+    private static boolean isByteValue(IRValue value) {
+        return value.getType() == IntegerType.I8;
+    }
+
+    private static int alignUp(int size, int align) {
+        return (size + align - 1) / align * align;
+    }
+}
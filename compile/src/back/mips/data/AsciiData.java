@@ -2,17 +2,26 @@ package back.mips.data;
 
 /**
  * .str: .asciiz "This is a string\n"
+ * 不带结尾 0 的片段用 .ascii，后面紧跟的数据接着拼成同一个字符串：
+ * str.0 : .ascii "Val"
+ * str.1 : .asciiz "ue\n"     # str.1 与 str.0 共享 "ue\n"
  */
 public class AsciiData extends Data {
     private final String content;
+    private final boolean terminated;
 
     public AsciiData(String name, String content) {
+        this(name, content, true);
+    }
+
+    public AsciiData(String name, String content, boolean terminated) {
         super(name);
         this.content = content;
+        this.terminated = terminated;
     }
 
     @Override
     public String toString() {
-        return identifier + " : .asciiz \"" + content + "\"";
+        return identifier + (terminated ? " : .asciiz \"" : " : .ascii \"") + content + "\"";
     }
 }
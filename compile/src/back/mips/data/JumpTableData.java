@@ -0,0 +1,27 @@
+package back.mips.data;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * switch 跳转表，每一项是一个代码标号的地址
+ * sw.table.0 : .word case_a, case_b, default, case_c
+ * 取表项后用 jr 跳转，表中的空洞填 default 的标号
+ */
+public class JumpTableData extends WordData {
+    private final List<String> targets;
+
+    public JumpTableData(String name, List<String> targets) {
+        super(name, null);
+        this.targets = targets;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (String target : targets) {
+            joiner.add(target);
+        }
+        return identifier + " : .word " + joiner;
+    }
+}
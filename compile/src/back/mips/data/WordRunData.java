@@ -0,0 +1,79 @@
+package back.mips.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * 稀疏初始化的int数组，按顺序交替输出 .word 段和 .space 段，共用一个标号
+ * g : .word 1, 2, 3
+ *     .space 3988
+ *     .word 5
+ * 成段的0用 .space 占位（.data 段默认清零），输出大小只随非零元素个数增长
+ */
+public class WordRunData extends WordData {
+    /**
+     * 一段连续数据：values非空时为 .word 段，否则为 spaceBytes 字节的 .space 段
+     */
+    private static class Run {
+        private final ArrayList<Integer> values;
+        private final int spaceBytes;
+
+        private Run(ArrayList<Integer> values, int spaceBytes) {
+            this.values = values;
+            this.spaceBytes = spaceBytes;
+        }
+    }
+
+    private final List<Run> runs = new ArrayList<>();
+
+    public WordRunData(String name) {
+        super(name, null);
+    }
+
+    /**
+     * 追加一段 .word 数据
+     */
+    public void addWords(ArrayList<Integer> values) {
+        if (!values.isEmpty()) {
+            runs.add(new Run(values, 0));
+        }
+    }
+
+    /**
+     * 追加一段 .space，相邻的零段会合并
+     */
+    public void addSpace(int bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        if (!runs.isEmpty() && runs.get(runs.size() - 1).values == null) {
+            Run last = runs.remove(runs.size() - 1);
+            bytes += last.spaceBytes;
+        }
+        runs.add(new Run(null, bytes));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < runs.size(); i++) {
+            Run run = runs.get(i);
+            if (i == 0) {
+                sb.append(identifier).append(" : ");
+            } else {
+                sb.append("\n    ");
+            }
+            if (run.values == null) {
+                sb.append(".space ").append(run.spaceBytes);
+            } else {
+                StringJoiner joiner = new StringJoiner(", ");
+                for (Integer val : run.values) {
+                    joiner.add(String.valueOf(val));
+                }
+                sb.append(".word ").append(joiner);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -14,9 +14,21 @@ import back.mips.register.Reg;
  * la $3, Str0
  */
 public class La extends AssignM {
+    // 目标寄存器在紧随的访存之后还会被读取（如重算到已分配寄存器的地址），窥孔不能把这条 la 折叠进访存
+    private boolean targetReused = false;
+
     public La(Reg target, String source) {
         super(target, source);
     }
+
+    public La markTargetReused() {
+        this.targetReused = true;
+        return this;
+    }
+
+    public boolean isTargetReused() {
+        return targetReused;
+    }
     
     public String getFrom() {
         return (String) this.source;
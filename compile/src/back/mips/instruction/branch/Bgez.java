@@ -0,0 +1,14 @@
+package back.mips.instruction.branch;
+
+import back.mips.register.Reg;
+
+public class Bgez extends ZeroBranchM {
+    public Bgez(Reg source, String targetLabel) {
+        super(source, targetLabel);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString("bgez");
+    }
+}
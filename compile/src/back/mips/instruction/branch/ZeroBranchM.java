@@ -0,0 +1,17 @@
+package back.mips.instruction.branch;
+
+import back.mips.register.Reg;
+
+/**
+ * 与 0 比较的条件跳转（bltz / blez / bgtz / bgez），只有一个源寄存器
+ */
+public abstract class ZeroBranchM extends BranchM {
+    public ZeroBranchM(Reg source, String targetLabel) {
+        super(source, Reg.zero, targetLabel);
+    }
+
+    @Override
+    public String toString(String opCode) {
+        return String.format("%s %s, %s", opCode, left, targetLabel);
+    }
+}
@@ -0,0 +1,22 @@
+package back.mips.instruction.compare;
+
+import back.mips.InstrM;
+import back.mips.register.Reg;
+
+public class Slti extends InstrM {
+    private final Reg destination;
+    private final Reg source;
+    private final int immediate;
+
+    public Slti(Reg destination, Reg source, int immediate) {
+        this.destination = destination;
+        this.source = source;
+        this.immediate = immediate;
+    }
+
+    @Override
+    public String toString() {
+        // 说明：slti 与 16 位有符号立即数比较，source < immediate 时置 1
+        return String.format("slti %s, %s, %d", destination, source, immediate);
+    }
+}
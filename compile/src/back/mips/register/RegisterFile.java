@@ -0,0 +1,96 @@
+package back.mips.register;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 寄存器文件描述
+ * <p>集中说明每个寄存器在本编译器调用约定中的角色，寄存器分配器与后端的保存/恢复逻辑都从这里取，而不各自写死</p>
+ * <ul>
+ *   <li>调用者保存（caller-saved）：跨越 call 活跃时由调用点在 jal 前后保存/恢复</li>
+ *   <li>被调用者保存（callee-saved）：函数使用了才在序言保存、返回前恢复，调用点无需保护；
+ *       main 不返回，使用时也不必保存</li>
+ *   <li>临时寄存器（scratch）：后端按指令模式临时占用，从不分配给值，也不在本类的可分配列表中</li>
+ * </ul>
+ * <p>临时寄存器按用途命名，后端只通过这里的 SCRATCH_* 常量引用它们；
+ * 类加载时检查它们与可分配、传参寄存器互不相交，改动任何一组都不会让寄存器分配与后端悄悄失配</p>
+ */
+public final class RegisterFile {
+    /**
+     * 可分配的调用者保存寄存器
+     */
+    public static final List<Reg> CALLER_SAVED = Collections.unmodifiableList(Arrays.asList(
+            Reg.t3, Reg.t4, Reg.t5, Reg.t6, Reg.t7, Reg.t8, Reg.t9, Reg.v1
+    ));
+
+    /**
+     * 可分配的被调用者保存寄存器（$fp 不作帧指针使用，按 $s 寄存器对待）
+     */
+    public static final List<Reg> CALLEE_SAVED = Collections.unmodifiableList(Arrays.asList(
+            Reg.s0, Reg.s1, Reg.s2, Reg.s3, Reg.s4, Reg.s5, Reg.s6, Reg.s7, Reg.fp
+    ));
+
+    /**
+     * 传参寄存器：只在不调用用户函数的叶函数中分配给值（形参优先留在传入它的寄存器里），
+     * 其他函数中它们随时会被传参覆盖
+     */
+    public static final List<Reg> ARGUMENT = Collections.unmodifiableList(Arrays.asList(
+            Reg.a0, Reg.a1, Reg.a2, Reg.a3
+    ));
+
+    /**
+     * 全部可分配寄存器（不含传参寄存器），调用者保存的在前
+     */
+    public static final List<Reg> ALLOCATABLE;
+
+    /**
+     * 操作数中转：没分到寄存器的值在使用处装入、计算结果回写栈槽前暂存，
+     * 以及地址计算、zerofill 展开、switch 跳转表、第 5 个起的栈传参和输出运行时例程。
+     * 单操作数或结果用 SCRATCH_OPERAND0，第二个操作数用 SCRATCH_OPERAND1
+     */
+    public static final Reg SCRATCH_OPERAND0 = Reg.k0;
+    public static final Reg SCRATCH_OPERAND1 = Reg.k1;
+
+    /**
+     * 算术序列中转：常量乘除/取模展开的中间值、GEP 下标缩放，只在单条 IR 指令的展开内存活；
+     * 调用输出运行时时用 SCRATCH_ARITH0 暂存 $ra（例程不碰它）
+     */
+    public static final Reg SCRATCH_ARITH0 = Reg.t0;
+    public static final Reg SCRATCH_ARITH1 = Reg.t1;
+    public static final Reg SCRATCH_ARITH2 = Reg.t2;
+
+    /**
+     * 全部临时寄存器
+     */
+    public static final List<Reg> SCRATCH = Collections.unmodifiableList(Arrays.asList(
+            SCRATCH_OPERAND0, SCRATCH_OPERAND1, SCRATCH_ARITH0, SCRATCH_ARITH1, SCRATCH_ARITH2
+    ));
+
+    static {
+        List<Reg> all = new ArrayList<>(CALLER_SAVED);
+        all.addAll(CALLEE_SAVED);
+        ALLOCATABLE = Collections.unmodifiableList(all);
+
+        for (Reg reg : SCRATCH) {
+            if (ALLOCATABLE.contains(reg) || ARGUMENT.contains(reg)) {
+                throw new IllegalStateException("scratch register " + reg + " is also allocatable");
+            }
+        }
+    }
+
+    private RegisterFile() {}
+
+    public static boolean isCallerSaved(Reg reg) {
+        return CALLER_SAVED.contains(reg);
+    }
+
+    public static boolean isArgument(Reg reg) {
+        return ARGUMENT.contains(reg);
+    }
+
+    public static boolean isCalleeSaved(Reg reg) {
+        return CALLEE_SAVED.contains(reg);
+    }
+}
@@ -0,0 +1,69 @@
+package error;
+
+import java.util.*;
+
+/**
+ * 单次编译独占的错误收集器
+ * 与旧的全局ErrorManager语义一致：同一行只记录第一个错误，按行号升序输出。
+ * 每次编译各持有一个实例，彼此之间不共享任何锁或状态。
+ */
+public class ErrorCollector {
+    private final TreeMap<Integer, Error> errors = new TreeMap<>();
+    private boolean isRecording = true;
+
+    /**
+     * GetErrorList的快照，只在错误集合变化后重建
+     */
+    private ArrayList<Error> snapshot = null;
+
+    public boolean haveNoError() {
+        return errors.isEmpty();
+    }
+
+    public void addError(Error error) {
+        if (error == null) return;
+
+        if (isRecording && !errors.containsKey(error.GetLineNumber())) {
+            errors.put(error.GetLineNumber(), error);
+            snapshot = null;
+        }
+    }
+
+    public void setStopRecordError() {
+        isRecording = false;
+    }
+
+    public void setStartRecordError() {
+        isRecording = true;
+    }
+
+    /**
+     * 按行号升序返回全部错误
+     * 返回的列表是共享快照，调用方只读不改
+     */
+    public ArrayList<Error> getErrorList() {
+        if (snapshot == null) {
+            snapshot = new ArrayList<>(errors.values());
+        }
+        return snapshot;
+    }
+
+    public List<Error> getErrorsByType(ErrorType type) {
+        List<Error> res = new ArrayList<>();
+        for (Error error : errors.values()) {
+            if (error.GetErrorType() == type) {
+                res.add(error);
+            }
+        }
+        return res;
+    }
+
+    public void clearErrors() {
+        errors.clear();
+        snapshot = null;
+    }
+
+    public int getErrorCount() {
+        return errors.size();
+    }
+}
@@ -1,76 +1,59 @@
 package error;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.stream.Collectors;
 
+/**
+ * 错误管理的静态兼容层
+ * 实际的错误存放在每次编译独占的ErrorCollector中，这里只按线程转发，
+ * 因此并行编译之间不存在共享的锁。新代码可直接持有ErrorCollector实例。
+ */
 public class ErrorManager {
-    private static final NavigableMap<Integer, Error> errors = new ConcurrentSkipListMap<>();
-    private static volatile boolean isRecording = true;
-    private static final Object lock = new Object();
+    private static final ThreadLocal<ErrorCollector> collector = ThreadLocal.withInitial(ErrorCollector::new);
 
     // 私有构造函数防止实例化
     private ErrorManager() {}
 
-    public static boolean HaveNoError() {
-        synchronized (lock) {
-            return errors.isEmpty();
-        }
+    /**
+     * 为当前线程上的这次编译绑定错误收集器
+     */
+    public static void setCollector(ErrorCollector errorCollector) {
+        collector.set(errorCollector);
     }
 
-    public static void AddError(Error error) {
-        if (error == null) return;
+    public static ErrorCollector getCollector() {
+        return collector.get();
+    }
 
-        synchronized (lock) {
-            if (isRecording && !containsErrorAtLine(error.GetLineNumber())) {
-                errors.put(error.GetLineNumber(), error);
-            }
-        }
+    public static boolean HaveNoError() {
+        return collector.get().haveNoError();
     }
 
-    private static boolean containsErrorAtLine(int lineNumber) {
-        return errors.containsKey(lineNumber);
+    public static void AddError(Error error) {
+        collector.get().addError(error);
     }
 
     public static void SetStopRecordError() {
-        synchronized (lock) {
-            isRecording = false;
-        }
+        collector.get().setStopRecordError();
     }
 
     public static void SetStartRecordError() {
-        synchronized (lock) {
-            isRecording = true;
-        }
+        collector.get().setStartRecordError();
     }
 
     public static ArrayList<Error> GetErrorList() {
-        synchronized (lock) {
-            return errors.values()
-                    .stream()
-                    .collect(Collectors.toCollection(ArrayList::new));
-        }
+        return collector.get().getErrorList();
     }
 
     // 额外的辅助方法（保持向后兼容）
     public static List<Error> getErrorsByType(ErrorType type) {
-        synchronized (lock) {
-            return errors.values()
-                    .stream()
-                    .filter(e -> e.GetErrorType() == type)
-                    .collect(Collectors.toList());
-        }
+        return collector.get().getErrorsByType(type);
     }
 
     public static void clearErrors() {
-        synchronized (lock) {
-            errors.clear();
-        }
+        collector.get().clearErrors();
     }
 
     public static int getErrorCount() {
-        synchronized (lock) {
-            return errors.size();
-        }
+        return collector.get().getErrorCount();
     }
-}
\ No newline at end of file
+}
@@ -8,7 +8,10 @@ import front.parser.Parser;
 import front.parser.syntax.BranchNode;
 import utils.EnvInitializer;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 
 public class frontManager {
@@ -70,9 +73,6 @@ public class frontManager {
             // DEBUG
             // parser.getRoot().prettyPrint("|");
 
-            // parser.txt
-            String parserOutput = parser.getRoot().toString();
-
             // error.txt
             ArrayList<Error> parserErrors = ErrorManager.GetErrorList();
 
@@ -84,8 +84,10 @@ public class frontManager {
                 }
                 EnvInitializer.error.flush();
             } else {
-                EnvInitializer.parser.write(parserOutput.getBytes());
-                EnvInitializer.parser.flush();
+                // parser.txt，语法树直接流式写出
+                Writer writer = new BufferedWriter(new OutputStreamWriter(EnvInitializer.parser));
+                parser.getRoot().writeTo(writer);
+                writer.flush();
             }
 
         }
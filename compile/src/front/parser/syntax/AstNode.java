@@ -1,5 +1,8 @@
 package front.parser.syntax;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * 抽象语法树所有节点的基类。
  */
@@ -21,6 +24,13 @@ public abstract class AstNode {
     @Override
     public abstract String toString();
 
+    /**
+     * 把以该节点为根的子树按parser.txt格式直接写入输出流。
+     * 与toString输出逐字节相同，但不构造中间字符串，耗时与内存都与树的规模成线性。
+     * @param out 输出目标，调用方负责flush
+     */
+    public abstract void writeTo(Writer out) throws IOException;
+
     /**
      * 提供一个通用的遍历接口，子类可以重写以实现特定逻辑。
      * @param indent 用于格式化输出的缩进
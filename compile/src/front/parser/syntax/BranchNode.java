@@ -1,5 +1,9 @@
 package front.parser.syntax;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -60,17 +64,36 @@ public class BranchNode extends AstNode {
      * 答案输出
      */
     public String toString() {
-        StringBuilder resultBuilder = new StringBuilder();
+        StringWriter resultWriter = new StringWriter();
+        try {
+            writeTo(resultWriter);
+        } catch (IOException e) {
+            // StringWriter不会抛出IO异常
+            throw new UncheckedIOException(e);
+        }
+        return resultWriter.toString();
+    }
+
+    /**
+     * 流式输出：子节点依次直接写入out，不再逐层拼接字符串
+     */
+    @Override
+    public void writeTo(Writer out) throws IOException {
         SynType currentType = super.getNodeType();
         boolean shouldFormat = !isSpecialType(currentType);
 
-        appendChildrenText(resultBuilder, currentType, shouldFormat);
+        for (AstNode child : children) {
+            child.writeTo(out);
+            if (shouldFormat) {
+                out.write('\n');
+            }
+        }
 
         if (shouldFormat) {
-            appendTypeTag(resultBuilder, currentType);
+            out.write('<');
+            out.write(currentType.toString());
+            out.write('>');
         }
-
-        return resultBuilder.toString();
     }
 
     private boolean isSpecialType(SynType type) {
@@ -78,19 +101,4 @@ public class BranchNode extends AstNode {
                 || type == SynType.Decl
                 || type == SynType.BType;
     }
-
-    private void appendChildrenText(StringBuilder builder, SynType currentType, boolean shouldFormat) {
-        for (AstNode child : children) {
-            builder.append(child.toString());
-            if (shouldFormat) {
-                builder.append('\n');
-            }
-        }
-    }
-
-    private void appendTypeTag(StringBuilder builder, SynType type) {
-        builder.append('<')
-                .append(type)
-                .append('>');
-    }
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package front.parser.syntax;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * 代表语法树中的一个“叶子”节点（终结符）。
  * 它通常对应源代码中的一个词法单元（Token）。
@@ -38,4 +41,11 @@ public class TokenNode extends AstNode {
                 // this.lineNumber
         );
     }
-}
\ No newline at end of file
+
+    @Override
+    public void writeTo(Writer out) throws IOException {
+        out.write(super.getNodeType().toString());
+        out.write(' ');
+        out.write(String.valueOf(this.content));
+    }
+}
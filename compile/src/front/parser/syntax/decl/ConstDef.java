@@ -5,6 +5,7 @@ import front.parser.syntax.BranchNode;
 import front.parser.syntax.SynType;
 import front.parser.syntax.TokenNode;
 import front.parser.syntax.exp.ConstExp;
+import middle.checker.symbol.Symbol;
 
 /**
  * ConstDef → Ident [ '[' ConstExp ']' ] '=' ConstInitVal
@@ -14,6 +15,8 @@ public class ConstDef extends BranchNode {
     private TokenNode identifier;
     private java.util.ArrayList<ConstExp> innerExps;
     private ConstInitVal initValue;
+    // 语义分析时创建的符号，IR生成时在其上绑定IRValue
+    private Symbol symbol;
 
     public ConstDef() {
         super(SynType.ConstDef);
@@ -74,4 +77,15 @@ public class ConstDef extends BranchNode {
         return !innerExps.isEmpty();
     }
 
+    /**
+     * 获取语义分析阶段为该声明创建的符号
+     * @return 声明对应的符号，语义分析前为null
+     */
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(Symbol symbol) {
+        this.symbol = symbol;
+    }
 }
@@ -5,6 +5,7 @@ import front.parser.syntax.BranchNode;
 import front.parser.syntax.SynType;
 import front.parser.syntax.TokenNode;
 import front.parser.syntax.exp.ConstExp;
+import middle.checker.symbol.Symbol;
 
 import java.util.ArrayList;
 
@@ -20,6 +21,8 @@ public class VarDef extends BranchNode {
     private TokenNode identifier;
     private ArrayList<ConstExp> exps;
     private InitVal initVal;
+    // 语义分析时创建的符号，IR生成时在其上绑定IRValue
+    private Symbol symbol;
 
     public VarDef() {
         super(SynType.VarDef);
@@ -99,4 +102,16 @@ public class VarDef extends BranchNode {
     public boolean isGetintVariable() {
         return IS_GETINTK;
     }
+
+    /**
+     * 获取语义分析阶段为该声明创建的符号
+     * @return 声明对应的符号，语义分析前为null
+     */
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(Symbol symbol) {
+        this.symbol = symbol;
+    }
 }
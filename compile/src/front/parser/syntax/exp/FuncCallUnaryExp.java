@@ -4,6 +4,7 @@ package front.parser.syntax.exp;
 import front.parser.syntax.AstNode;
 import front.parser.syntax.SynType;
 import front.parser.syntax.TokenNode;
+import middle.checker.symbol.Symbol;
 
 /**
  * 为了方便UnaryExp的解析及翻译，对于原文法定义：
@@ -15,6 +16,8 @@ import front.parser.syntax.TokenNode;
 public class FuncCallUnaryExp extends UnaryExp {
     private TokenNode indentifier;
     private FuncRParams funcRParams;
+    // 语义分析时解析到的声明符号，IR生成直接解引用，无需再查符号表
+    private Symbol symbol;
 
     // TODO
     public FuncCallUnaryExp() {
@@ -53,4 +56,16 @@ public class FuncCallUnaryExp extends UnaryExp {
     public boolean hasParams() {
         return funcRParams != null;
     }
+
+    /**
+     * 获取语义分析阶段解析到的声明符号
+     * @return 标识符所引用的符号，未解析时为null
+     */
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(Symbol symbol) {
+        this.symbol = symbol;
+    }
 }
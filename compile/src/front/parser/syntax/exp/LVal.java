@@ -4,6 +4,7 @@ import front.parser.syntax.AstNode;
 import front.parser.syntax.BranchNode;
 import front.parser.syntax.SynType;
 import front.parser.syntax.TokenNode;
+import middle.checker.symbol.Symbol;
 
 import java.util.ArrayList;
 
@@ -15,6 +16,8 @@ import java.util.ArrayList;
 public class LVal extends BranchNode {
     private TokenNode identifier;
     private ArrayList<Exp> exps;
+    // 语义分析时解析到的声明符号，IR生成直接解引用，无需再查符号表
+    private Symbol symbol;
 
     public LVal() {
         super(SynType.LVal);
@@ -63,4 +66,16 @@ public class LVal extends BranchNode {
         }
         return null;
     }
+
+    /**
+     * 获取语义分析阶段解析到的声明符号
+     * @return 标识符所引用的符号，未解析时为null
+     */
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(Symbol symbol) {
+        this.symbol = symbol;
+    }
 }
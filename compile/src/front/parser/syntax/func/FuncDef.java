@@ -6,6 +6,7 @@ import front.parser.syntax.BranchNode;
 import front.parser.syntax.SynType;
 import front.parser.syntax.TokenNode;
 import front.parser.syntax.stmt.Block;
+import middle.checker.symbol.Symbol;
 
 /**
  * FuncDef → FuncType Ident '(' [FuncFParams] ')' Block
@@ -15,6 +16,8 @@ public class FuncDef extends BranchNode {
     private TokenNode identifier;
     private FuncFParams params;
     private Block body;
+    // 语义分析时创建的符号，IR生成时在其上绑定IRValue
+    private Symbol symbol;
 
     public FuncDef() {
         super(SynType.FuncDef);
@@ -67,4 +70,16 @@ public class FuncDef extends BranchNode {
     public int getLineNumber() {
         return identifier != null ? identifier.getLineNumber() : -1;
     }
+
+    /**
+     * 获取语义分析阶段为该声明创建的符号
+     * @return 声明对应的符号，语义分析前为null
+     */
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(Symbol symbol) {
+        this.symbol = symbol;
+    }
 }
@@ -7,6 +7,7 @@ import front.parser.syntax.SynType;
 import front.parser.syntax.TokenNode;
 import front.parser.syntax.decl.BType;
 import front.parser.syntax.exp.ConstExp;
+import middle.checker.symbol.Symbol;
 
 import java.util.ArrayList;
 
@@ -20,6 +21,8 @@ public class FuncFParam extends BranchNode {
     private TokenNode identifier;
     private ArrayList<ConstExp> exps;
     private int layerNumber;
+    // 语义分析时创建的符号，IR生成时在其上绑定IRValue
+    private Symbol symbol;
 
     public FuncFParam() {
         super(SynType.FuncFParam);
@@ -78,4 +81,16 @@ public class FuncFParam extends BranchNode {
     public TokenNode getBaseType() {
         return type != null ? type.getType() : null;
     }
+
+    /**
+     * 获取语义分析阶段为该声明创建的符号
+     * @return 声明对应的符号，语义分析前为null
+     */
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(Symbol symbol) {
+        this.symbol = symbol;
+    }
 }
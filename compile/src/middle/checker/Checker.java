@@ -100,6 +100,7 @@ public class Checker {
     private static void visitConstDef(BranchNode constDef, String type) {
         String name = ((ConstDef) constDef).getIdentifier().getContent();
         ConstExp constExp = ((ConstDef) constDef).getConstExp();
+        ArrayList<ConstExp> constExps = ((ConstDef) constDef).getConstExps();
         ConstInitVal constInitVal = ((ConstDef) constDef).getInitValue();
         int lineNumber = ((ConstDef) constDef).getIdentifier().getLineNumber();
 
@@ -114,9 +115,10 @@ public class Checker {
                 SymbolType.CONST_INT : SymbolType.CONST_INT_ARRAY;
         ValueSymbol symbol = new ValueSymbol(name, symbolType);
         SymbolManager.addSymbol(symbol, lineNumber);
+        ((ConstDef) constDef).setSymbol(symbol);
 
-        if (constExp != null) {
-            visitConstExp(constExp);
+        for (ConstExp dimExp : constExps) {
+            visitConstExp(dimExp);
         }
 
         visitConstInitVal(constInitVal);
@@ -205,9 +207,10 @@ public class Checker {
         }
         ValueSymbol symbol = new ValueSymbol(name, symbolType);
         SymbolManager.addSymbol(symbol, lineNumber);
+        ((VarDef) varDef).setSymbol(symbol);
 
-        if (!constExps.isEmpty()) {
-            visitConstExp(constExps.get(0));
+        for (ConstExp dimExp : constExps) {
+            visitConstExp(dimExp);
         }
         if (initVal != null) {
             visitInitVal(initVal);
@@ -261,6 +264,7 @@ public class Checker {
         SymbolType symbolType = SymbolType.getFuncType(funcType);
         FuncSymbol symbol = new FuncSymbol(funcName, symbolType, funcDef.getParams());
         SymbolManager.addSymbol(symbol, lineNumber);
+        funcDef.setSymbol(symbol);
 
         SymbolManager.enterFunc(funcType);
         SymbolManager.createSonSymbolTable();
@@ -365,6 +369,7 @@ public class Checker {
         SymbolType symbolType = isArray ? SymbolType.INT_ARRAY : SymbolType.INT;
         ValueSymbol param = new ValueSymbol(name, symbolType);
         SymbolManager.addSymbol(param, lineNumber);
+        ((FuncFParam) funcFParam).setSymbol(param);
     }
 
     /**
@@ -391,7 +396,7 @@ public class Checker {
         for (AstNode child : children) {
             if (child.getNodeType() == SynType.Decl) {
                 visitDecl((Decl) child);
-            } else if (child.getNodeType() == SynType.Stmt) {
+            } else if (child instanceof Stmt) {
                 visitStmt((BranchNode) child);
             }
         }
@@ -511,7 +516,7 @@ public class Checker {
                 if (child.getNodeType() == SynType.Cond) {
                     // 处理if条件表达式，进行语义检查
                     visitCond((BranchNode) child);
-                } else if (child.getNodeType() == SynType.Stmt) {
+                } else if (child instanceof Stmt) {
                     // 递归处理if分支和else分支的语句
                     // 可能有两个Stmt子节点：then分支和else分支
                     visitStmt((BranchNode) child);
@@ -536,7 +541,13 @@ public class Checker {
                 // 处理表达式
                 // 可能出现在：赋值语句的右侧、表达式语句、return语句
                 visitExp((BranchNode) child);
-            } else if (child.getNodeType() == SynType.Stmt) {
+            } else if (child.getNodeType() == SynType.ConstExp) {
+                // case标签的常量表达式
+                visitConstExp((BranchNode) child);
+            } else if (child.getNodeType() == SynType.Cond) {
+                // repeat-until的条件
+                visitCond((BranchNode) child);
+            } else if (child instanceof Stmt) {
                 // 处理嵌套的语句（如if/else中的嵌套语句）
                 visitStmt((BranchNode) child);
             } else if (child.getNodeType() == SynType.Block) {
@@ -665,11 +676,12 @@ public class Checker {
                 name = identifierNode.getContent();
                 lineNumber = identifierNode.getLineNumber();
 
-                // 检查标识符是否已定义
+                // 检查标识符是否已定义，并把解析结果记录在LVal上供IR生成使用
                 Symbol symbol = SymbolManager.getSymbol(name);
                 if (symbol == null) {
                     ErrorManager.AddError(Error.createError(ErrorType.NAME_UNDEFINED, lineNumber));
                 }
+                ((LVal) lVal).setSymbol(symbol);
             } else if (child.getNodeType() == SynType.Exp) {
                 visitExp((BranchNode) child);
             }
@@ -686,6 +698,12 @@ public class Checker {
         for (AstNode child : children) {
             if (child.getNodeType() == SynType.AddExp) {
                 visitAddExp((AddExp) child);
+            } else if (child.getNodeType() == SynType.EqExp) {
+                // 位运算层级（& ^ |）以通用Exp节点包裹EqExp
+                visitEqExp((BranchNode) child);
+            } else if (child.getNodeType() == SynType.Exp) {
+                // 移位/位运算层级的嵌套
+                visitExp((BranchNode) child);
             }
         }
     }
@@ -792,6 +810,7 @@ public class Checker {
         }
 
         FuncSymbol funcSymbol = (FuncSymbol) symbol;
+        funcCallUnaryExp.setSymbol(funcSymbol);
 
         // 处理函数参数并检查参数匹配
         List<AstNode> children = funcCallUnaryExp.getChildren();
@@ -883,6 +902,8 @@ public class Checker {
                 visitEqExp((BranchNode) child);
             } else if (child.getNodeType() == SynType.LAndExp) {
                 visitLAndExp((BranchNode) child);
+            } else if (child.getNodeType() == SynType.Exp) {
+                visitExp((BranchNode) child);
             }
         }
     }
@@ -915,6 +936,8 @@ public class Checker {
                 visitAddExp((AddExp) child);
             } else if (child.getNodeType() == SynType.RelExp) {
                 visitRelExp((BranchNode) child);
+            } else if (child.getNodeType() == SynType.Exp) {
+                visitExp((BranchNode) child);
             }
         }
     }
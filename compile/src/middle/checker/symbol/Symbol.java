@@ -1,15 +1,23 @@
 package middle.checker.symbol;
 
+import middle.llvm.value.IRValue;
+
 import java.util.Objects;
 
 /**
  * 符号基类 - 表示编译器中的符号实体
- * 采用不可变设计模式，确保符号信息的稳定性
+ * 标识符与类别采用不可变设计，确保符号信息的稳定性；
+ * 唯一可变的是IR生成阶段绑定的IRValue，供Visitor直接解引用
  */
 public class Symbol {
     // 使用私有字段和访问器模式
     private final String identifier;
     private final SymbolType category;
+
+    /**
+     * IR生成时与该符号绑定的值（alloca / 全局变量 / 常量 / 函数）
+     */
+    private IRValue irValue;
     
     /**
      * 构造符号实例
@@ -37,6 +45,22 @@ public class Symbol {
         return this.category;
     }
 
+    /**
+     * 获取绑定的IR值
+     * @return 声明处生成的IRValue，未绑定时为null
+     */
+    public IRValue getIRValue() {
+        return this.irValue;
+    }
+
+    /**
+     * 绑定IR值，由Visitor在处理声明时调用
+     * @param irValue 声明处生成的IRValue
+     */
+    public void setIRValue(IRValue irValue) {
+        this.irValue = irValue;
+    }
+
     /**
      * 生成符号的字符串表示
      * 格式: "标识符 类型"
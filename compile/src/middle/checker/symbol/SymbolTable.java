@@ -4,6 +4,10 @@ import error.Error;
 import error.ErrorManager;
 import error.ErrorType;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -115,18 +119,37 @@ public class SymbolTable {
      */
     @Override
     public String toString() {
-        StringBuilder output = new StringBuilder();
-        
+        StringWriter output = new StringWriter();
+        try {
+            writeTo(output);
+        } catch (IOException e) {
+            // StringWriter不会抛出IO异常
+            throw new UncheckedIOException(e);
+        }
+        return output.toString();
+    }
+
+    /**
+     * 按symbol.txt格式把当前表及所有子表直接写入输出流
+     * 每个符号一行："作用域序号 标识符 类型"，与toString逐字节一致
+     * @param out 输出目标，调用方负责flush
+     */
+    public void writeTo(Writer out) throws IOException {
+        String level = Integer.toString(this.scopeLevel);
+
         // 输出当前作用域的所有符号
         for (Symbol symbol : this.symbolSequence) {
-            output.append(String.format("%d %s%n", this.scopeLevel, symbol));
+            out.write(level);
+            out.write(' ');
+            out.write(symbol.getSymbolName());
+            out.write(' ');
+            out.write(symbol.getSymbolType().toString());
+            out.write(System.lineSeparator());
         }
 
         // 递归输出所有子作用域
         for (SymbolTable childScope : this.childScopes) {
-            output.append(childScope.toString());
+            childScope.writeTo(out);
         }
-
-        return output.toString();
     }
-}
\ No newline at end of file
+}
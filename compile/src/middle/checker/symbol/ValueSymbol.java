@@ -48,6 +48,15 @@ public class ValueSymbol extends Symbol {
         this.globalFlag = isGlobal;
     }
 
+    /**
+     * 检查是否为全局变量
+     * 
+     * @return 如果是全局作用域中声明的返回true，否则返回false
+     */
+    public boolean isGlobal() {
+        return this.globalFlag;
+    }
+
     /**
      * 检查是否为常量
      * 
@@ -6,9 +6,7 @@ import middle.llvm.value.constant.*;
 import middle.llvm.value.instruction.*;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * LLVM IR指令和值的创建工厂
@@ -61,11 +59,6 @@ public class IRInstructionFactory {
      */
     private int nameCounter;
 
-    /**
-     * 字符串字面量计数器
-     */
-    private int stringLiteralCounter;
-    
     /**
      * Phi指令计数器
      */
@@ -80,11 +73,6 @@ public class IRInstructionFactory {
      * 当前正在构建的基本块
      */
     protected IRBasicBlock currentBasicBlock;
-    
-    /**
-     * 字符串字面量缓存池，避免重复创建相同的字符串
-     */
-    private final Map<String, IRStringLiteral> stringLiteralPool;
 
     /**
      * 构造函数，初始化工厂实例
@@ -92,11 +80,9 @@ public class IRInstructionFactory {
      */
     public IRInstructionFactory() {
         this.nameCounter = 0;
-        this.stringLiteralCounter = 0;
         this.phiCounter = 0;
         this.currentFunction = null;
         this.currentBasicBlock = null;
-        this.stringLiteralPool = new HashMap<>();
     }
     
     /**
@@ -398,6 +384,21 @@ public class IRInstructionFactory {
         return branch;
     }
     
+    /**
+     * 创建多路分支指令（case由调用者通过addCase追加）
+     * 
+     * @param condition 分支条件
+     * @param defaultBlock 没有匹配的case时的目标块
+     * @return 创建的switch指令
+     */
+    public SwitchInstruction createSwitch(IRValue condition, IRBasicBlock defaultBlock) {
+        validateCurrentBasicBlock();
+        
+        SwitchInstruction switchInstr = new SwitchInstruction(currentBasicBlock, condition, defaultBlock);
+        currentBasicBlock.addInstructionToTail(switchInstr);
+        return switchInstr;
+    }
+    
     /**
      * 创建返回指令（有返回值）
      * 
@@ -498,18 +499,8 @@ public class IRInstructionFactory {
      * @return 字符串字面量对象
      */
     public IRStringLiteral createStringLiteral(String literal) {
-        // 检查缓存池中是否已存在相同的字符串
-        IRStringLiteral existing = stringLiteralPool.get(literal);
-        if (existing != null) {
-            return existing;
-        }
-        
-        // 创建新的字符串字面量
-        IRStringLiteral stringLiteral = new IRStringLiteral(stringLiteralCounter++, literal);
-        stringLiteralPool.put(literal, stringLiteral);
-        module.registerStringLiteral(stringLiteral);
-        
-        return stringLiteral;
+        // 由模块的字符串常量池负责去重和后缀共享
+        return module.registerStringLiteral(literal);
     }
     
     // ==================== 辅助方法 ====================
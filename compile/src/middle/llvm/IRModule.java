@@ -5,7 +5,12 @@ import middle.llvm.value.IRGlobalVariable;
 import middle.llvm.value.IRStaticVariable;
 import middle.llvm.value.IRStringLiteral;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +73,12 @@ public class IRModule {
      */
     private final List<IRStringLiteral> stringLiterals;
     
+    /**
+     * 字符串常量池
+     * 以转义处理后的内容为键，相同内容的字符串只创建一次
+     */
+    private final Map<String, IRStringLiteral> stringLiteralPool;
+    
     /**
      * 全局变量存储容器
      * 包括全局变量、全局常量
@@ -99,6 +110,7 @@ public class IRModule {
      */
     public IRModule() {
         this.stringLiterals = new ArrayList<>();
+        this.stringLiteralPool = new HashMap<>();
         this.globalVariables = new ArrayList<>();
         this.staticVariables = new ArrayList<>();
         this.functionDefinitions = new ArrayList<>();
@@ -106,19 +118,89 @@ public class IRModule {
         this.stringLiteralCounter = 0;
     }
     
+    /**
+     * 取得内容为literal的字符串字面量
+     * 
+     * <p>先查常量池，内容相同（按转义处理后比较）的字符串直接复用；
+     * 否则按模块计数器命名新建并注册
+     * 
+     * @param literal 字符串内容（可能包含转义字符）
+     * @return 池中的字符串字面量
+     */
+    public IRStringLiteral registerStringLiteral(String literal) {
+        IRStringLiteral existing = stringLiteralPool.get(IRStringLiteral.processEscapeSequences(literal));
+        if (existing != null) {
+            return existing;
+        }
+        return registerStringLiteral(new IRStringLiteral(getNextStringLiteralId(), literal));
+    }
+    
     /**
      * 向模块中添加字符串字面量
      * 
+     * <p>内容已在池中时返回池中的对象，不重复添加。
+     * 新字符串与已有的独立存储字符串之间做后缀共享：
+     * <ul>
+     *   <li>新字符串是某个已有字符串的后缀时，直接指向其内部</li>
+     *   <li>已有字符串是新字符串的后缀时，改为指向新字符串内部（连同借用它存储的字符串）</li>
+     * </ul>
+     * 
      * @param stringLiteral 要添加的字符串字面量
+     * @return 池中内容相同的字符串字面量
      * @throws IllegalArgumentException 如果字符串字面量为null
      */
-    public void registerStringLiteral(IRStringLiteral stringLiteral) {
+    public IRStringLiteral registerStringLiteral(IRStringLiteral stringLiteral) {
         if (stringLiteral == null) {
             throw new IllegalArgumentException("字符串字面量不能为null");
         }
+        String content = stringLiteral.getProcessedLiteral();
+        IRStringLiteral existing = stringLiteralPool.get(content);
+        if (existing != null) {
+            return existing;
+        }
+        
+        for (IRStringLiteral host : stringLiterals) {
+            if (!host.isSharedSuffix() && host.getProcessedLiteral().endsWith(content)) {
+                stringLiteral.shareStorageWith(host, host.getLength() - stringLiteral.getLength());
+                break;
+            }
+        }
+        if (!stringLiteral.isSharedSuffix()) {
+            for (IRStringLiteral other : stringLiterals) {
+                IRStringLiteral root = other.isSharedSuffix() ? other.getSuffixHost() : other;
+                if (content.endsWith(root.getProcessedLiteral())) {
+                    other.shareStorageWith(stringLiteral, stringLiteral.getLength() - other.getLength());
+                }
+            }
+        }
         
         stringLiterals.add(stringLiteral);
+        stringLiteralPool.put(content, stringLiteral);
         symbolTable.put(stringLiteral.getName(), stringLiteral);
+        return stringLiteral;
+    }
+    
+    /**
+     * 删除不再被任何指令引用的字符串字面量
+     * 
+     * <p>幸存的字符串保持原名和原顺序重新入池，后缀共享关系随之重新计算
+     * （被删除的字符串可能正是某些后缀的宿主）
+     */
+    public void removeUnusedStringLiterals() {
+        List<IRStringLiteral> survivors = new ArrayList<>();
+        for (IRStringLiteral literal : stringLiterals) {
+            if (!literal.getUseList().isEmpty()) {
+                survivors.add(literal);
+            } else {
+                symbolTable.remove(literal.getName());
+            }
+        }
+        stringLiterals.clear();
+        stringLiteralPool.clear();
+        for (IRStringLiteral literal : survivors) {
+            literal.shareStorageWith(null, 0);
+            registerStringLiteral(literal);
+        }
     }
     
     /**
@@ -240,6 +322,7 @@ public class IRModule {
      */
     public void clear() {
         stringLiterals.clear();
+        stringLiteralPool.clear();
         globalVariables.clear();
         functionDefinitions.clear();
         symbolTable.clear();
@@ -261,62 +344,80 @@ public class IRModule {
      */
     @Override
     public String toString() {
-        StringBuilder moduleBuilder = new StringBuilder();
-        
+        StringWriter output = new StringWriter();
+        try {
+            writeTo(output);
+        } catch (IOException e) {
+            // StringWriter不会抛出IO异常
+            throw new UncheckedIOException(e);
+        }
+        return output.toString();
+    }
+
+    /**
+     * 流式输出整个模块，与toString逐字节一致
+     * 全局/静态变量的初值直接写入out，大数组不再先拼出整个模块的字符串
+     * 
+     * @param out 输出目标，调用方负责flush
+     */
+    public void writeTo(Writer out) throws IOException {
         // 1. 输出标准库函数声明
-        appendLibraryDeclarations(moduleBuilder);
+        writeLibraryDeclarations(out);
         
         // 2. 输出全局字符串字面量
         if (!stringLiterals.isEmpty()) {
-            moduleBuilder.append("; 全局字符串字面量\n");
+            out.write("; 全局字符串字面量\n");
             for (IRStringLiteral literal : stringLiterals) {
-                moduleBuilder.append(literal.toString()).append("\n");
+                out.write(literal.toString());
+                out.write("\n");
             }
-            moduleBuilder.append("\n");
+            out.write("\n");
         }
         
         // 3. 输出全局变量定义
         if (!globalVariables.isEmpty()) {
-            moduleBuilder.append("; 全局变量定义\n");
+            out.write("; 全局变量定义\n");
             for (IRGlobalVariable variable : globalVariables) {
-                moduleBuilder.append(variable.toString()).append("\n");
+                variable.writeTo(out);
+                out.write("\n");
             }
-            moduleBuilder.append("\n");
+            out.write("\n");
         }
 
         // 4. 输出静态局部变量定义
         if (!staticVariables.isEmpty()) {
-            moduleBuilder.append(";静态局部变量定义\n");
+            out.write(";静态局部变量定义\n");
             for (IRStaticVariable variable : staticVariables) {
-                moduleBuilder.append(variable.toString()).append("\n");
+                variable.writeTo(out);
+                out.write("\n");
             }
-            moduleBuilder.append("\n");
+            out.write("\n");
         }
         
         // 5. 输出函数定义
         if (!functionDefinitions.isEmpty()) {
-            moduleBuilder.append("; 函数定义\n");
+            out.write("; 函数定义\n");
             for (IRFunction function : functionDefinitions) {
-                moduleBuilder.append(function.toString()).append("\n\n");
+                out.write(function.toString());
+                out.write("\n\n");
             }
         }
-        
-        return moduleBuilder.toString();
     }
     
     /**
-     * 添加标准库函数声明到模块输出
+     * 输出标准库函数声明
      * 
-     * @param builder 字符串构建器
+     * @param out 输出目标
      */
-    private void appendLibraryDeclarations(StringBuilder builder) {
-        builder.append("; 标准库函数声明\n");
-        builder.append("declare i32 @getint()\n");
-        builder.append("declare i32 @getchar()\n");
-        builder.append("declare void @putint(i32)\n");
-        builder.append("declare void @putch(i8)\n");
-        builder.append("declare void @putstr(i8*)\n");
-        builder.append("\n");
+    private void writeLibraryDeclarations(Writer out) throws IOException {
+        out.write("; 标准库函数声明\n");
+        out.write("declare i32 @getint()\n");
+        out.write("declare i32 @getchar()\n");
+        out.write("declare void @putint(i32)\n");
+        out.write("declare void @putch(i8)\n");
+        out.write("declare void @putstr(i8*)\n");
+        out.write("declare void @zerofill(i32*, i32)\n");
+        out.write("\n");
     }
     
     /**
@@ -57,7 +57,8 @@ import front.parser.syntax.stmt.ReturnStmt;
 import front.parser.syntax.stmt.Stmt;
 import front.parser.syntax.stmt.SwitchStmt;
 import front.parser.syntax.stmt.WhileStmt;
-import middle.llvm.IR_Symbol.IRSymTable;
+import middle.checker.symbol.Symbol;
+import middle.checker.symbol.ValueSymbol;
 import middle.llvm.type.ArrayType;
 import middle.llvm.type.IRType;
 import middle.llvm.type.IntegerType;
@@ -84,16 +85,6 @@ public class Visitor extends IRInstructionFactory {
      */
     private static Visitor visitor;
 
-    /**
-     * 根符号表
-     */
-    private IRSymTable rootSymbolTable;
-
-    /**
-     * 当前符号表
-     */
-    private IRSymTable curSymbolTable;
-
     /**
      * 管理所有循环的栈
      */
@@ -131,6 +122,11 @@ public class Visitor extends IRInstructionFactory {
      */
     private boolean ptrParam = false;
 
+    /**
+     * 局部数组初值中连续0的个数达到该值时改用@zerofill
+     */
+    private static final int ZERO_FILL_THRESHOLD = 16;
+
     /**
      * Visitor实例生成
      * @return Visitor的唯一实例
@@ -141,8 +137,6 @@ public class Visitor extends IRInstructionFactory {
 
     private Visitor() {
         super();
-        this.rootSymbolTable = new IRSymTable(null);
-        this.curSymbolTable = this.rootSymbolTable;
         this.loops = new ArrayDeque<>();
         this.switches = new ArrayDeque<>();
         this.controlStack = new ArrayDeque<>();
@@ -220,13 +214,15 @@ public class Visitor extends IRInstructionFactory {
         ArrayList<ConstExp> constExp = ((VarDef) varDef).getConstExps();
         InitVal initVal = ((VarDef) varDef).getInitValue();
         boolean isGetInt = ((VarDef) varDef).isGetintVariable();
+        // 语义分析阶段为该定义创建的符号，IRValue直接绑定在其上
+        Symbol symbol = ((VarDef) varDef).getSymbol();
         // initVal具体是什么
         ArrayList<IRValue> initVals;
 
         // 非数组的普通变量
         if (constExp.isEmpty()) {
             // 全局变量
-            if (isGlobal()) {
+            if (isGlobal(symbol)) {
                 IRGlobalVariable globalVariable;
                 // 不带初始值，自动补0
                 if (initVal == null) {
@@ -247,7 +243,7 @@ public class Visitor extends IRInstructionFactory {
                     globalVariable = createGlobalVariable(varName,init,false);
                 }
                 // 在符号表里存
-                curSymbolTable.insertSymbol(varName,globalVariable);
+                symbol.setIRValue(globalVariable);
             }
             // static静态局部变量
             else if (isStatic) {
@@ -270,12 +266,12 @@ public class Visitor extends IRInstructionFactory {
                             ((IntegerConstant) initVals.get(0)).getConstantValue());
                     staticVariable = createStaticVariable(varName,init);
                 }
-                curSymbolTable.insertSymbol(varName,staticVariable);
+                symbol.setIRValue(staticVariable);
             }
             // getint的变量
             else if (isGetInt) {
                 AllocaInstruction alloc = createAlloca(getIntType(bType));
-                curSymbolTable.insertSymbol(varName,alloc);
+                symbol.setIRValue(alloc);
 
                 ArrayList<IRValue> params = new ArrayList<>();
                 CallInstruction getIntCall = createCall(IRFunction.GETINT, params);
@@ -286,7 +282,7 @@ public class Visitor extends IRInstructionFactory {
             // 普通非静态局部变量
             else {
                 AllocaInstruction alloc = createAlloca(getIntType(bType));
-                curSymbolTable.insertSymbol(varName,alloc);
+                symbol.setIRValue(alloc);
 
                 // 有初值
                 if (initVal != null) {
@@ -314,40 +310,24 @@ public class Visitor extends IRInstructionFactory {
             ArrayType arrayType = (ArrayType) currentType;
             
             // 全局数组
-            if (isGlobal()) {
+            if (isGlobal(symbol)) {
                 IRGlobalVariable globalVariable;
                 // 不带初始值，自动补0
                 if (initVal == null) {
                     IRConstant initializer = new ArrayConstant(arrayType);
                     globalVariable = createGlobalVariable(varName,initializer,false);
-                    curSymbolTable.insertSymbol(varName,globalVariable);
+                    symbol.setIRValue(globalVariable);
                 }
                 // 有初始值
                 else {
                     culWhileCompiling = true;
-                    // 计算总元素个数用于扁平化初始化
-                    int totalSize = 1;
-                    IRType temp = arrayType;
-                    while (temp instanceof ArrayType) {
-                        totalSize *= ((ArrayType) temp).getArrayLenth();
-                        temp = ((ArrayType) temp).getElementType();
-                    }
-                    
-                    initVals = visitInitVal(initVal, getIntType(bType) == IntegerType.I8, totalSize);
+                    // 只展开非零初值，补0的部分不生成常量
+                    ArrayConstant constArray = visitSparseInitVal(initVal, arrayType, getIntType(bType));
                     culWhileCompiling = false;
 
-                    ArrayList<Integer> initInts = new ArrayList<>();
-                    if (initVals != null) {
-                        for (IRValue value : initVals) {
-                            IntegerConstant constInt = (IntegerConstant) value;
-                            initInts.add(constInt.getConstantValue());
-                        }
-                    }
-
-                    ArrayConstant constArray = new ArrayConstant(arrayType, initInts);
                     globalVariable = createGlobalVariable(varName,constArray,false);
 
-                    curSymbolTable.insertSymbol(varName,globalVariable);
+                    symbol.setIRValue(globalVariable);
                 }
             }
             // static静态局部变量
@@ -357,40 +337,24 @@ public class Visitor extends IRInstructionFactory {
                 if (initVal == null) {
                     IRConstant initializer = new ArrayConstant(arrayType);
                     staticVariable = createStaticVariable(varName,initializer);
-                    curSymbolTable.insertSymbol(varName,staticVariable);
+                    symbol.setIRValue(staticVariable);
                 }
                 // 有初始值
                 else {
                     culWhileCompiling = true;
-                    // 计算总元素个数
-                    int totalSize = 1;
-                    IRType temp = arrayType;
-                    while (temp instanceof ArrayType) {
-                        totalSize *= ((ArrayType) temp).getArrayLenth();
-                        temp = ((ArrayType) temp).getElementType();
-                    }
-                    
-                    initVals = visitInitVal(initVal, getIntType(bType) == IntegerType.I8, totalSize);
+                    // 只展开非零初值，补0的部分不生成常量
+                    ArrayConstant constArray = visitSparseInitVal(initVal, arrayType, getIntType(bType));
                     culWhileCompiling = false;
 
-                    ArrayList<Integer> initInts = new ArrayList<>();
-                    if (initVals != null) {
-                        for (IRValue value : initVals) {
-                            IntegerConstant constInt = (IntegerConstant) value;
-                            initInts.add(constInt.getConstantValue());
-                        }
-                    }
-
-                    ArrayConstant constArray = new ArrayConstant(arrayType, initInts);
                     staticVariable = createStaticVariable(varName,constArray);
 
-                    curSymbolTable.insertSymbol(varName,staticVariable);
+                    symbol.setIRValue(staticVariable);
                 }
             }
             // 普通非静态局部数组
             else {
                 AllocaInstruction alloc = createAlloca(arrayType);
-                curSymbolTable.insertSymbol(varName,alloc);
+                symbol.setIRValue(alloc);
                 // 处理初始值
                 if (initVal != null) {
                     // 计算总元素个数
@@ -416,31 +380,71 @@ public class Visitor extends IRInstructionFactory {
                     }
                     
                     GetElementPtrInstruction basePtr = createGetElementPtr(alloc, indices);
-                    
-                    // 处理位数不匹配
-                    IRInstruction instruction = ensureIntegerType(initVals.get(0),getIntType(bType));
-                    if (instruction != null) {
-                        createStore(instruction,basePtr);
-                    } else {
-                        createStore(initVals.get(0),basePtr);
-                    }
-                    // 处理后续元素
-                    GetElementPtrInstruction ptr = null;
-                    for (int i = 1; i < initVals.size(); i ++) {
-                        ptr = createGetElementPtr(basePtr,new IntegerConstant(IntegerType.I32,i));
-                        // 处理位数不匹配
-                        instruction = ensureIntegerType(initVals.get(i),getIntType(bType));
-                        if (instruction != null) {
-                            createStore(instruction,ptr);
-                        } else {
-                            createStore(initVals.get(i),ptr);
-                        }
-                    }
+
+                    // 非零元素逐个store，成段的0用清零循环
+                    storeArrayInitVals(basePtr, initVals, getIntType(bType));
                 }
             }
         }
     }
 
+    /**
+     * 局部数组初值的聚合写入
+     * 扁平化后的初值中，非零元素逐个GEP+store；连续ZERO_FILL_THRESHOLD个以上的0
+     * 不再逐个展开，而是调用内建的@zerofill(ptr, n)，由后端展开成紧凑的清零循环，
+     * 使IR规模只与非零初值个数成正比。
+     * 限制：@zerofill 按字清零，只用于 i32 元素；i8 元素仍逐个 store。当前文法没有 char 类型
+     * （getIntType 只产生 i32），i8 数组不会出现在这里，支持 char 时需补一个按字节清零的变体。
+     *
+     * C示例：int a[10000] = {1};
+     *     store 1, a[0]
+     *     call @zerofill(a + 1, 9999)
+     *
+     * @param basePtr 指向首元素的指针
+     * @param initVals 扁平化后的全部初值
+     * @param eleType 元素类型
+     */
+    private void storeArrayInitVals(GetElementPtrInstruction basePtr, ArrayList<IRValue> initVals, IntegerType eleType) {
+        int i = 0;
+        while (i < initVals.size()) {
+            if (!isZeroConstant(initVals.get(i))) {
+                storeArrayElement(basePtr, i, initVals.get(i), eleType);
+                i++;
+                continue;
+            }
+            // 找出这一段连续的0
+            int end = i;
+            while (end < initVals.size() && isZeroConstant(initVals.get(end))) {
+                end++;
+            }
+            // 见上方限制：i8 的零段不走 @zerofill
+            if (end - i >= ZERO_FILL_THRESHOLD && eleType == IntegerType.I32) {
+                ArrayList<IRValue> args = new ArrayList<>();
+                args.add(i == 0 ? basePtr : createGetElementPtr(basePtr, new IntegerConstant(IntegerType.I32, i)));
+                args.add(new IntegerConstant(IntegerType.I32, end - i));
+                createCallVoid(IRFunction.ZEROFILL, args);
+            } else {
+                for (int k = i; k < end; k++) {
+                    storeArrayElement(basePtr, k, initVals.get(k), eleType);
+                }
+            }
+            i = end;
+        }
+    }
+
+    /**
+     * 把初值写入basePtr[index]，处理位数不匹配
+     */
+    private void storeArrayElement(GetElementPtrInstruction basePtr, int index, IRValue value, IntegerType eleType) {
+        IRValue ptr = index == 0 ? basePtr : createGetElementPtr(basePtr, new IntegerConstant(IntegerType.I32, index));
+        IRInstruction instruction = ensureIntegerType(value, eleType);
+        createStore(instruction == null ? value : instruction, ptr);
+    }
+
+    private boolean isZeroConstant(IRValue value) {
+        return value instanceof IntegerConstant constant && constant.getConstantValue() == 0;
+    }
+
     /**
      * InitVal → Exp | '{' [ Exp { ',' Exp } ] '}' | StringConst
      */
@@ -505,6 +509,75 @@ public class Visitor extends IRInstructionFactory {
         return res;
     }
 
+    /**
+     * 全局/静态数组的初值常量
+     * 展平规则与visitInitVal(initVal, isChar, totalSize)一致，但只收集非零元素的(展平下标, 值)，
+     * 补0的位置只推进下标，直接构造稀疏的ArrayConstant，
+     * 前端开销只与初值个数成正比，与数组长度无关。
+     *
+     * C示例：int g[2000000] = {1,2,3};
+     *     indices = [0, 1, 2], values = [1, 2, 3]
+     *
+     * @param arrayType 数组类型
+     * @param eleType 元素类型
+     */
+    private ArrayConstant visitSparseInitVal(InitVal initVal, ArrayType arrayType, IntegerType eleType) {
+        int totalSize = getFlatLength(arrayType);
+        IRType type = totalSize == 1 ? eleType : new ArrayType(eleType, totalSize);
+        ArrayList<Integer> indices = new ArrayList<>();
+        ArrayList<Integer> values = new ArrayList<>();
+        visitSparseInitVal(initVal, type, 0, indices, values);
+        return new ArrayConstant(arrayType, indices, values);
+    }
+
+    /**
+     * @param offset 本初值的首个元素在展平后的下标
+     * @return 下一个初值的展平下标
+     */
+    private int visitSparseInitVal(InitVal initVal, IRType type, int offset,
+                                   ArrayList<Integer> indices, ArrayList<Integer> values) {
+        if (type.isBasicIntegerType()) {
+            if (initVal.isLeaf()) {
+                int value = ((IntegerConstant) visitExp(initVal.getExp())).getConstantValue();
+                addNonZero(offset, value, indices, values);
+                return offset + 1;
+            }
+            // '{' Exp '}' 形式
+            if (!initVal.getInitVals().isEmpty()) {
+                return visitSparseInitVal(initVal.getInitVals().get(0), type, offset, indices, values);
+            }
+        } else if (type.isArrayType() && !initVal.isLeaf()) {
+            ArrayType arrType = (ArrayType) type;
+            ArrayList<InitVal> children = initVal.getInitVals();
+            int count = Math.min(children.size(), arrType.getArrayLenth());
+            for (int i = 0; i < count; i++) {
+                offset = visitSparseInitVal(children.get(i), arrType.getElementType(), offset, indices, values);
+            }
+            // 其余元素补0
+            offset += (arrType.getArrayLenth() - count) * getFlatLength(arrType.getElementType());
+        }
+        return offset;
+    }
+
+    private void addNonZero(int index, int value, ArrayList<Integer> indices, ArrayList<Integer> values) {
+        if (value != 0) {
+            indices.add(index);
+            values.add(value);
+        }
+    }
+
+    /**
+     * 类型展平后的基础元素个数
+     */
+    private int getFlatLength(IRType type) {
+        int length = 1;
+        while (type instanceof ArrayType) {
+            length *= ((ArrayType) type).getArrayLenth();
+            type = ((ArrayType) type).getElementType();
+        }
+        return length;
+    }
+
     /**
      * 辅助方法：生成指定类型的零值列表（Integer）
      */
@@ -560,6 +633,38 @@ public class Visitor extends IRInstructionFactory {
         return res;
     }
 
+    /**
+     * 全局常量数组的初值常量，与visitSparseInitVal相同，只收集非零元素
+     */
+    private ArrayConstant visitSparseConstInitVal(ConstInitVal initVal, ArrayType arrayType) {
+        ArrayList<Integer> indices = new ArrayList<>();
+        ArrayList<Integer> values = new ArrayList<>();
+        visitSparseConstInitVal(initVal, arrayType, 0, indices, values);
+        return new ArrayConstant(arrayType, indices, values);
+    }
+
+    private int visitSparseConstInitVal(ConstInitVal initVal, IRType type, int offset,
+                                        ArrayList<Integer> indices, ArrayList<Integer> values) {
+        if (type.isBasicIntegerType()) {
+            if (initVal.isLeaf()) {
+                addNonZero(offset, visitConstExp(initVal.getConstExp()), indices, values);
+                return offset + 1;
+            }
+            if (!initVal.getInitVals().isEmpty()) {
+                return visitSparseConstInitVal(initVal.getInitVals().get(0), type, offset, indices, values);
+            }
+        } else if (type.isArrayType() && !initVal.isLeaf()) {
+            ArrayType arrType = (ArrayType) type;
+            ArrayList<ConstInitVal> children = initVal.getInitVals();
+            int count = Math.min(children.size(), arrType.getArrayLenth());
+            for (int i = 0; i < count; i++) {
+                offset = visitSparseConstInitVal(children.get(i), arrType.getElementType(), offset, indices, values);
+            }
+            offset += (arrType.getArrayLenth() - count) * getFlatLength(arrType.getElementType());
+        }
+        return offset;
+    }
+
     /**
      * ConstExp → AddExp
      */
@@ -591,6 +696,7 @@ public class Visitor extends IRInstructionFactory {
         TokenNode ident = ((ConstDef)constDef).getIdentifier();
         ArrayList<ConstExp> constExps = ((ConstDef)constDef).getConstExps();
         ConstInitVal initVal = ((ConstDef) constDef).getInitValue();
+        Symbol symbol = ((ConstDef) constDef).getSymbol();
 
         // 非数组的普通定义
         if (constExps.isEmpty()) {
@@ -599,7 +705,7 @@ public class Visitor extends IRInstructionFactory {
             int val = initInts.isEmpty() ? 0 : initInts.get(0);
             IntegerConstant constInits = new IntegerConstant(type, val);
 
-            curSymbolTable.insertSymbol(ident.getContent(),constInits);
+            symbol.setIRValue(constInits);
         }
         // 数组
         else {
@@ -611,27 +717,25 @@ public class Visitor extends IRInstructionFactory {
             }
             ArrayType arrayType = (ArrayType) currentType;
             
-            ArrayList<Integer> initInts = visitConstInitVal(initVal, arrayType);
-            ArrayConstant constArray = new ArrayConstant(arrayType, initInts);
-
-            if (isGlobal()) {
-                // 全局数组无需alloca，直接初始化
+            if (isGlobal(symbol)) {
+                // 全局数组无需alloca，直接初始化；只展开非零初值
+                ArrayConstant constArray = visitSparseConstInitVal(initVal, arrayType);
                 IRGlobalVariable globalVariable = createGlobalVariable(ident.getContent(),constArray,true);
-                curSymbolTable.insertSymbol(ident.getContent(),globalVariable);
+                symbol.setIRValue(globalVariable);
             } else {
                 // 局部数组
+                ArrayList<Integer> initInts = visitConstInitVal(initVal, arrayType);
+                ArrayConstant constArray = new ArrayConstant(arrayType, initInts);
                 AllocaInstruction alloc = createAlloca(arrayType,constArray);
-                curSymbolTable.insertSymbol(ident.getContent(),alloc);
+                symbol.setIRValue(alloc);
                 // GEP得到int*指针
                 GetElementPtrInstruction basePtr = createGetElementPtr(alloc);
-                // 存constArray的首元素
-                createStore(constArray.getElementConstant(0),basePtr);
-                // 存constArray的后续元素
-                GetElementPtrInstruction ptr = null;
-                for (int i = 1; i < initInts.size(); i ++) {
-                    ptr = createGetElementPtr(basePtr,new IntegerConstant(IntegerType.I32,i));
-                    createStore(constArray.getElementConstant(i),ptr);
+                // 存constArray的各元素，成段的0用清零循环
+                ArrayList<IRValue> constVals = new ArrayList<>();
+                for (int i = 0; i < initInts.size(); i ++) {
+                    constVals.add(constArray.getElementConstant(i));
                 }
+                storeArrayInitVals(basePtr, constVals, getIntType(bType.getType()));
             }
         }
     }
@@ -663,7 +767,7 @@ public class Visitor extends IRInstructionFactory {
             }
         }
         currentFunction = createFunction(indent.getContent(),returnType,paramTypes);
-        curSymbolTable.insertSymbol(indent.getContent(),currentFunction);
+        ((FuncDef)funcDef).getSymbol().setIRValue(currentFunction);
 
         /**
          * ; 有返回值函数 - 展现所有三个特性
@@ -733,8 +837,6 @@ public class Visitor extends IRInstructionFactory {
          *     ret void                           ; 人工补充的ret void指令
          * }
          */
-        // currentFunction的符号表
-        enter();
         // entryBlock应该是先alloca再store
         currentBasicBlock = createBasicBlock();
         visitFuncFParams(fParams);
@@ -748,8 +850,6 @@ public class Visitor extends IRInstructionFactory {
                 createReturnVoid();
             }
         }
-        // 退出currentFunction的符号表
-        leave();
     }
 
     /**
@@ -760,11 +860,8 @@ public class Visitor extends IRInstructionFactory {
         Block mainBody = ((MainFuncDef)mainFuncDef).getBody();
         ArrayList<IntegerType> paramTypes = new ArrayList<>();
         currentFunction = createFunction("main",IntegerType.I32,paramTypes);
-        curSymbolTable.insertSymbol("main",currentFunction);
-        enter();
         currentBasicBlock = createBasicBlock();
         visitBlock(mainBody);
-        leave();
     }
 
     /**
@@ -824,31 +921,18 @@ public class Visitor extends IRInstructionFactory {
         }
         
         // 7. 回填分发逻辑 (Dispatch Logic)
-        // 将currentBasicBlock切回到startBlock，在其中插入级联比较指令
+        // 将currentBasicBlock切回到startBlock，在其末尾放一条switch终结指令，
+        // 具体是跳转表还是二分比较由后端按case的疏密决定
         currentBasicBlock = startBlock;
         
+        // 8. 如果没有匹配任何case，跳转到default块（如果没有default，则跳到exitBlock）
+        // 注意：SwitchStructure在没有default时，getDefaultBlock()通常返回exitBlock
         IRBasicBlock defaultBlock = switchStruct.getDefaultBlock();
-        
-        // 遍历所有case，生成 if-else if 风格的级联比较
+        SwitchInstruction switchInstr = createSwitch(cond, defaultBlock);
         for (Map.Entry<Integer, IRBasicBlock> entry : switchStruct.getCases().entrySet()) {
-            int val = entry.getKey(); // case的值
-            IRBasicBlock target = entry.getValue(); // case对应的跳转目标块
-            IRBasicBlock nextCheck = createBasicBlock(); // 下一次比较的块
-            
-            // 生成比较指令: %cmp = icmp eq %cond, val
-            IRInstruction cmp = createCompare(CompareInstruction.CompareCondition.EQ, cond, new IntegerConstant(IntegerType.I32, val));
-            // 生成条件跳转: br %cmp, label %target, label %nextCheck
-            createBranch(cmp, target, nextCheck);
-            
-            // 切换到下一个比较块继续生成
-            currentBasicBlock = nextCheck;
+            switchInstr.addCase(entry.getKey(), entry.getValue());
         }
         
-        // 8. 处理default分支
-        // 如果没有匹配任何case，跳转到default块（如果没有default，则跳到exitBlock）
-        // 注意：SwitchStructure在没有default时，getDefaultBlock()通常返回exitBlock
-        createJump(defaultBlock);
-        
         // 9. 恢复上下文
         currentBasicBlock = exitBlock; // switch语句结束后，控制流停在exitBlock
         switches.pop();
@@ -1109,13 +1193,11 @@ public class Visitor extends IRInstructionFactory {
     }
 
     /**
-     * Block,重点在于要进入到子符号表中
+     * Block，作用域已由语义分析解析到各LVal上，这里直接访问
      */
     private void visitBlockStmt(BlockStmt stmt) {
         Block block = stmt.getBlock();
-        enter();
         visitBlock(block);
-        leave();
     }
 
     /**
@@ -1149,12 +1231,6 @@ public class Visitor extends IRInstructionFactory {
             visitCond(cond,bb_if,bb_end);
 
             // 把当前 IR 写入位置切换到 if 分支对应的基本块
-                /*
-                如果 if 分支体是一个 Block，
-                作用域是在 visitStmt(ifStmt) 的分派中由 visitBlockStmt 内部，
-                调用 enter()/leave() 自动管理的；
-                如果分支体不是 Block，则本就不应该新建作用域
-                 */
             currentBasicBlock = bb_if;
             visitStmt(ifStmt);
             createJump(bb_end);
@@ -2042,7 +2118,7 @@ public class Visitor extends IRInstructionFactory {
         if (funcName.equals("getint")) {
             function = IRFunction.GETINT;
         } else {
-            function = (IRFunction) curSymbolTable.lookupSymbol(funcName);
+            function = (IRFunction) unaryExp.getSymbol().getIRValue();
         }
 
 
@@ -2208,9 +2284,9 @@ public class Visitor extends IRInstructionFactory {
      */
     public IRValue visitLVal(LVal lVal) {
         Exp exp = lVal.getExp(0);
-        String indentifier = lVal.getIdentifierName();
 
-        IRValue value = curSymbolTable.lookupSymbol(indentifier);
+        // 语义分析已解析出声明，直接取其绑定的IRValue
+        IRValue value = lVal.getSymbol().getIRValue();
 
         // 非数组常量或已折叠为"立即数"的标识符：直接是 i32/i8 值，不是地址
         // C示例：const int c = 3;  在表达式里使用 c（不是取地址）=> 直接用 3
@@ -2431,24 +2507,10 @@ public class Visitor extends IRInstructionFactory {
     // ==================== 辅助方法 ====================
 
     /**
-     * 进入新的符号表作用域
-     */
-    private void enter() {
-        curSymbolTable = new IRSymTable(curSymbolTable);
-    }
-
-    /**
-     * 退出当前符号表作用域
-     */
-    private void leave() {
-        curSymbolTable = curSymbolTable.getParentScope();
-    }
-
-    /**
-     * 判断是否在全局作用域
+     * 判断声明是否位于全局作用域，由语义分析登记符号时记录
      */
-    private boolean isGlobal() {
-        return curSymbolTable == rootSymbolTable;
+    private boolean isGlobal(Symbol symbol) {
+        return symbol instanceof ValueSymbol valueSymbol && valueSymbol.isGlobal();
     }
 
     /**
@@ -2492,9 +2554,8 @@ public class Visitor extends IRInstructionFactory {
         // 1. 为形参分配栈空间
         AllocaInstruction alloc = createAlloca(integerType);
 
-        // 2. 符号表中存储alloca，而不是FParam
-        String name = ((FuncFParam)funcFParam).getParamName();
-        curSymbolTable.insertSymbol(name, alloc);
+        // 2. 符号上绑定alloca，而不是FParam
+        ((FuncFParam)funcFParam).getSymbol().setIRValue(alloc);
 
         // 3. 将FParam的值存储到alloca中
         // 对于多维数组参数，integerType已经是PointerType了
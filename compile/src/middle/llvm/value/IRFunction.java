@@ -262,6 +262,7 @@ public class IRFunction extends IRValue {
      * declare void @putint(i32)
      * declare void @putch(i32)
      * declare void @putstr(i8*)
+     * declare void @zerofill(i32*, i32)   ; 内建：把连续n个i32清零，后端内联展开
      */
     public static final IRFunction GETINT = new IRFunction("getint", IntegerType.I32);
     public static final IRFunction GETCHAR = new IRFunction("getchar", IntegerType.I8);
@@ -272,4 +273,10 @@ public class IRFunction extends IRValue {
             add(new PointerType(IntegerType.I8));
         }
     });
+    public static final IRFunction ZEROFILL = new IRFunction("zerofill", new VoidType(), new ArrayList<>(){
+        {
+            add(new PointerType(IntegerType.I32));
+            add(IntegerType.I32);
+        }
+    });
 }
\ No newline at end of file
@@ -4,6 +4,11 @@ import middle.llvm.type.IRType;
 import middle.llvm.type.PointerType;
 import middle.llvm.value.constant.IRConstant;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
 public class IRStaticVariable extends IRValue {
     /**
      * 全局变量的初始值
@@ -63,27 +68,40 @@ public class IRStaticVariable extends IRValue {
      */
     @Override
     public String toString() {
-        StringBuilder builder = new StringBuilder();
+        StringWriter output = new StringWriter();
+        try {
+            writeTo(output);
+        } catch (IOException e) {
+            // StringWriter不会抛出IO异常
+            throw new UncheckedIOException(e);
+        }
+        return output.toString();
+    }
 
-        builder.append(getName()).append(" = internal ");
+    /**
+     * 流式输出：初始值直接写入out，大数组初值不再先拼出整个字符串
+     * @param out 输出目标，调用方负责flush
+     */
+    public void writeTo(Writer out) throws IOException {
+        out.write(getName());
+        out.write(" = internal ");
 
-        builder.append("global ");
+        out.write("global ");
 
         IRType pointeeType = getPointeeType();
-        builder.append(pointeeType.toString()).append(" ");
+        out.write(pointeeType.toString());
+        out.write(" ");
 
         // 初始值
         if (initializer != null) {
-            builder.append(initializer.toString());
+            initializer.writeTo(out);
         } else {
             // 零初始化
             if (pointeeType instanceof middle.llvm.type.ArrayType) {
-                builder.append("zeroinitializer");
+                out.write("zeroinitializer");
             } else {
-                builder.append("0");
+                out.write("0");
             }
         }
-
-        return builder.toString();
     }
 }
\ No newline at end of file
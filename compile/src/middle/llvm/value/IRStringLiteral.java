@@ -64,6 +64,17 @@ public class IRStringLiteral extends IRValue {
      */
     private final String processedLiteral;
     
+    /**
+     * 共享存储的宿主字符串
+     * 本字符串是宿主的后缀时不单独分配存储，而是指向宿主内部；为null表示独立存储
+     */
+    private IRStringLiteral suffixHost;
+    
+    /**
+     * 本字符串在宿主中的起始字节偏移
+     */
+    private int suffixOffset;
+    
     /**
      * 构造字符串字面量
      * 
@@ -97,6 +108,32 @@ public class IRStringLiteral extends IRValue {
         return processedLiteral;
     }
     
+    /**
+     * 让本字符串作为host的后缀共享存储
+     * 
+     * @param host 宿主字符串（自身必须独立存储）
+     * @param offset 本字符串在宿主中的起始字节偏移
+     */
+    public void shareStorageWith(IRStringLiteral host, int offset) {
+        this.suffixHost = host;
+        this.suffixOffset = offset;
+    }
+    
+    /**
+     * 是否与其他字符串共享存储（即作为某个字符串的后缀）
+     */
+    public boolean isSharedSuffix() {
+        return suffixHost != null;
+    }
+    
+    public IRStringLiteral getSuffixHost() {
+        return suffixHost;
+    }
+    
+    public int getSuffixOffset() {
+        return suffixOffset;
+    }
+    
     /**
      * 获取字符串的总长度（包含null终止符）
      * 
@@ -141,7 +178,7 @@ public class IRStringLiteral extends IRValue {
      * @param input 包含转义字符的原始字符串
      * @return 处理后的字符串，转义字符已转换为实际字符
      */
-    private static String processEscapeSequences(String input) {
+    public static String processEscapeSequences(String input) {
         if (input == null) {
             return "";
         }
@@ -231,11 +268,20 @@ public class IRStringLiteral extends IRValue {
      *   <li>{@code align 1} - 按字节对齐</li>
      * </ul>
      * 
+     * <p>共享存储的后缀字符串输出为指向宿主内部的别名：
+     * {@code @str.1 = alias [3 x i8], [3 x i8]* bitcast (i8* getelementptr inbounds ([6 x i8], [6 x i8]* @str.0, i32 0, i32 3) to [3 x i8]*)}
+     * 
      * @return 字符串字面量的完整LLVM IR声明
      */
     @Override
     public String toString() {
         ArrayType arrayType = (ArrayType) ((PointerType) getType()).getPointeeType();
+        if (suffixHost != null) {
+            ArrayType hostType = (ArrayType) ((PointerType) suffixHost.getType()).getPointeeType();
+            return getName() + " = alias " + arrayType + ", " + arrayType + "* bitcast (i8* getelementptr inbounds (" +
+                   hostType + ", " + hostType + "* " + suffixHost.getName() + ", i32 0, i32 " + suffixOffset +
+                   ") to " + arrayType + "*)";
+        }
         return getName() + " = constant " +
                arrayType.toString() + " " + toLLVMString();
     }
@@ -4,7 +4,12 @@ import middle.llvm.type.ArrayType;
 import middle.llvm.type.IRType;
 import middle.llvm.type.IntegerType;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -35,35 +40,83 @@ import java.util.List;
  * - 自动填充：未指定的元素自动填充为0
  * - 类型一致：所有元素必须是相同类型
  * - 内存布局：元素在内存中连续存储
+ * 
+ * 存储方式：
+ * 只按下标升序记录非零元素（nonZeroIndices / nonZeroValues 两个平行数组），
+ * 其余位置隐含为0。int g[1000000] = {1,2,3} 只占3个槽位，
+ * 内存和遍历开销都随非零元素个数增长，而不是随数组长度增长。
  */
 public class ArrayConstant extends IRConstant {
     
     /**
-     * 数组元素值列表
-     * 存储数组中每个元素的整数值
+     * 展平后的元素总个数（多维数组按各维长度之积计算）
      */
-    private final List<Integer> elementValues;
+    private final int elementCount;
+    
+    /**
+     * 非零元素的下标，严格升序
+     */
+    private final int[] nonZeroIndices;
+    
+    /**
+     * 非零元素的值，与nonZeroIndices一一对应
+     */
+    private final int[] nonZeroValues;
     
     /**
      * 构造数组常量（指定初始值）
      * 
-     * 如果提供的初始值少于数组长度，剩余元素自动填充为0
+     * 如果提供的初始值少于数组长度，剩余元素自动视为0；
+     * 初始值列表只扫描一遍，其中的0不会被保存
      * 
      * @param type 数组类型
-     * @param elementValues 初始元素值列表
+     * @param elementValues 初始元素值列表（展平后的顺序）
      */
     public ArrayConstant(ArrayType type, List<Integer> elementValues) {
         super(type);
-        this.elementValues = new ArrayList<>(elementValues);
+        // 多数情况下初值列表本身就按总长度补过0，这里取两者较大值以兼容
+        this.elementCount = Math.max(getFlatLength(type), elementValues.size());
         
-        // 数组常量用于全局数组初始化，元素个数可能少于数组长度，需要用0填充
-        int requiredLength = type.getArrayLenth();
-        int currentLength = this.elementValues.size();
-        for (int i = 0; i < requiredLength - currentLength; i++) {
-            this.elementValues.add(0);
+        int nonZero = 0;
+        for (Integer value : elementValues) {
+            if (value != 0) {
+                nonZero++;
+            }
+        }
+        this.nonZeroIndices = new int[nonZero];
+        this.nonZeroValues = new int[nonZero];
+        int slot = 0;
+        for (int i = 0; i < elementValues.size(); i++) {
+            int value = elementValues.get(i);
+            if (value != 0) {
+                nonZeroIndices[slot] = i;
+                nonZeroValues[slot] = value;
+                slot++;
+            }
         }
     }
     
+    /**
+     * 构造数组常量（直接给出非零元素）
+     *
+     * 调用方已按展平下标升序给出全部非零元素，其余位置视为0，
+     * 不需要先展开成按数组长度补0的完整列表
+     *
+     * @param type 数组类型
+     * @param nonZeroIndices 非零元素的展平下标，严格升序
+     * @param nonZeroValues 与nonZeroIndices一一对应的非零值
+     */
+    public ArrayConstant(ArrayType type, List<Integer> nonZeroIndices, List<Integer> nonZeroValues) {
+        super(type);
+        this.elementCount = getFlatLength(type);
+        this.nonZeroIndices = new int[nonZeroIndices.size()];
+        this.nonZeroValues = new int[nonZeroValues.size()];
+        for (int slot = 0; slot < this.nonZeroIndices.length; slot++) {
+            this.nonZeroIndices[slot] = nonZeroIndices.get(slot);
+            this.nonZeroValues[slot] = nonZeroValues.get(slot);
+        }
+    }
+
     /**
      * 构造全零数组常量
      * 
@@ -74,29 +127,78 @@ public class ArrayConstant extends IRConstant {
      */
     public ArrayConstant(ArrayType type) {
         super(type);
-        this.elementValues = new ArrayList<>();
-        int requiredLength = type.getArrayLenth();
-        for (int i = 0; i < requiredLength; i++) {
-            this.elementValues.add(0);
+        this.elementCount = getFlatLength(type);
+        this.nonZeroIndices = new int[0];
+        this.nonZeroValues = new int[0];
+    }
+    
+    /**
+     * 计算数组类型展平后的基础元素个数
+     */
+    private static int getFlatLength(ArrayType type) {
+        int length = 1;
+        IRType temp = type;
+        while (temp instanceof ArrayType) {
+            length *= ((ArrayType) temp).getArrayLenth();
+            temp = ((ArrayType) temp).getElementType();
         }
+        return length;
     }
     
     /**
      * 获取数组长度
      * 
-     * @return 数组元素个数
+     * @return 展平后的数组元素个数
      */
     public int getArrayLenth() {
-        return elementValues.size();
+        return elementCount;
+    }
+    
+    /**
+     * 获取非零元素个数
+     * 
+     * @return 非零元素个数
+     */
+    public int getNonZeroCount() {
+        return nonZeroIndices.length;
+    }
+    
+    /**
+     * 获取第k个非零元素的下标（k按下标升序编号）
+     */
+    public int getNonZeroIndex(int k) {
+        return nonZeroIndices[k];
+    }
+    
+    /**
+     * 获取第k个非零元素的值（k按下标升序编号）
+     */
+    public int getNonZeroValue(int k) {
+        return nonZeroValues[k];
+    }
+    
+    /**
+     * 获取指定下标的元素值
+     * 
+     * 在非零下标中二分查找，找不到即为0
+     * 
+     * @param index 元素索引（展平后的顺序）
+     * @return 元素值
+     */
+    public int getValueAt(int index) {
+        int slot = Arrays.binarySearch(nonZeroIndices, index);
+        return slot >= 0 ? nonZeroValues[slot] : 0;
     }
     
     /**
      * 获取元素值列表
      * 
+     * 会按数组长度展开成完整列表，大数组请改用getNonZeroCount / getNonZeroIndex / getNonZeroValue
+     * 
      * @return 所有元素值的副本
      */
     public List<Integer> getElementValues() {
-        return new ArrayList<>(elementValues);
+        return getAllNumbers();
     }
     
     /**
@@ -109,7 +211,7 @@ public class ArrayConstant extends IRConstant {
      */
     @Override
     public boolean isZeroValue() {
-        return elementValues.stream().allMatch(value -> value == 0);
+        return nonZeroIndices.length == 0;
     }
     
     /**
@@ -127,130 +229,138 @@ public class ArrayConstant extends IRConstant {
     /**
      * 获取常量的所有数值
      * 
-     * 返回数组中所有元素的值
+     * 返回数组中所有元素的值，0按数组长度补齐
      * 
      * @return 所有元素值的列表
      */
     @Override
     public List<Integer> getAllNumbers() {
-        return new ArrayList<>(elementValues);
+        ArrayList<Integer> values = new ArrayList<>(elementCount);
+        int slot = 0;
+        for (int i = 0; i < elementCount; i++) {
+            if (slot < nonZeroIndices.length && nonZeroIndices[slot] == i) {
+                values.add(nonZeroValues[slot++]);
+            } else {
+                values.add(0);
+            }
+        }
+        return values;
     }
     
     /**
      * 获取指定位置的元素常量
      * 
      * 将数组元素包装为IntegerConstant对象，
-     * 用于访问数组中的单个元素
+     * 用于访问数组中的单个元素；多维数组按展平下标访问，类型取最内层的基础类型
      * 
      * @param index 元素索引
      * @return 对应位置的整数常量，索引越界返回null
      */
     public IntegerConstant getElementConstant(int index) {
-        if (index >= 0 && index < elementValues.size()) {
-            ArrayType arrayType = (ArrayType) getType();
-            // 确保elementType是IntegerType，如果是ArrayType（多维数组），这里可能不适用，
-            // 但目前的实现是展平的elementValues，所以可能是合理的，取决于elementType是否真的是基础类型。
-            // 实际上ArrayType的构造函数允许elementType是IRType。
-            // 如果elementType是IntegerType，可以强制转换。
-            if (arrayType.getElementType() instanceof IntegerType) {
-                return new IntegerConstant((IntegerType) arrayType.getElementType(), elementValues.get(index));
-            } else {
-                // 如果是多维数组，这里应该怎么做？
-                // 目前elementValues是扁平化的整数列表。
-                // 如果是多维数组，getElementType()返回的是子数组类型。
-                // 那么我们无法创建一个IntegerConstant(ArrayType, val)。
-                // 我们应该递归获取基础类型。
-                IRType baseType = arrayType.getElementType();
-                while (baseType instanceof ArrayType) {
-                    baseType = ((ArrayType) baseType).getElementType();
-                }
-                if (baseType instanceof IntegerType) {
-                    return new IntegerConstant((IntegerType) baseType, elementValues.get(index));
-                }
+        if (index >= 0 && index < elementCount) {
+            IRType baseType = ((ArrayType) getType()).getElementType();
+            while (baseType instanceof ArrayType) {
+                baseType = ((ArrayType) baseType).getElementType();
+            }
+            if (baseType instanceof IntegerType) {
+                return new IntegerConstant((IntegerType) baseType, getValueAt(index));
             }
         }
         return null;
     }
     
+    /**
+     * 判断展平下标区间[from, to)内是否全为0
+     */
+    private boolean isZeroRange(int from, int to) {
+        int slot = Arrays.binarySearch(nonZeroIndices, from);
+        if (slot < 0) {
+            slot = -slot - 1;
+        }
+        return slot >= nonZeroIndices.length || nonZeroIndices[slot] >= to;
+    }
+    
     /**
      * 生成LLVM IR格式的数组常量字符串
      * 
      * 格式：
      * - 全零数组：zeroinitializer
      * - 普通数组：[elementType value1, elementType value2, ...]
+     * - 多维数组按类型结构嵌套输出，全零的子数组同样输出为zeroinitializer
      * 
      * 示例：
      * - [i32 1, i32 2, i32 3]
      * - [i8 65, i8 66, i8 67, i8 0]  ; "ABC\0"
+     * - [[2 x i32] [i32 1, i32 2], [2 x i32] zeroinitializer]
      * 
      * @return LLVM IR格式的数组常量定义
      */
     @Override
     public String toString() {
-        // 全零数组使用特殊表示
-        if (isZeroValue()) {
-            return "zeroinitializer";
+        StringWriter output = new StringWriter();
+        try {
+            writeTo(output);
+        } catch (IOException e) {
+            // StringWriter不会抛出IO异常
+            throw new UncheckedIOException(e);
+        }
+        return output.toString();
+    }
+    
+    /**
+     * 流式输出：元素逐个写入out，大数组不再先拼出整个字符串
+     */
+    @Override
+    public void writeTo(Writer out) throws IOException {
+        writeRange(out, (ArrayType) getType(), 0);
+    }
+    
+    /**
+     * 输出从展平下标offset开始、类型为arrayType的一段子数组
+     */
+    private void writeRange(Writer out, ArrayType arrayType, int offset) throws IOException {
+        int length = getFlatLength(arrayType);
+        // 全零数组（或全零的子数组）使用特殊表示
+        if (isZeroRange(offset, offset + length)) {
+            out.write("zeroinitializer");
+            return;
         }
         
-        StringBuilder builder = new StringBuilder();
-        builder.append("[");
-        
-        ArrayType arrayType = (ArrayType) getType();
-        // 修正：elementType可能是ArrayType，如果是多维数组
         IRType elementType = arrayType.getElementType();
-        
-        // 如果是多维数组，我们需要递归构建字符串，还是说elementValues是扁平的？
-        // ArrayConstant的设计似乎是基于扁平的elementValues。
-        // 但是LLVM IR中多维数组必须是嵌套的结构：[2 x [2 x i32]] [[2 x i32] [i32 1, i32 2], [2 x i32] [i32 3, i32 4]]
-        // 如果我们这里只输出扁平列表，那就是错的。
-        
-        // 必须根据类型结构重构数据。
+        int count = arrayType.getArrayLenth();
+        out.write("[");
         if (elementType instanceof ArrayType) {
-            // 这是一个多维数组的层级
+            // 多维数组：逐个子数组递归输出
             ArrayType subArrayType = (ArrayType) elementType;
-            int subLength = subArrayType.getArrayLenth(); // 第一维长度？不，是子元素的长度
-            // arrayType = [M x SubType]
-            // elementValues has M * sizeof(SubType) items.
-            
-            // 我们需要把 elementValues 切分成 M 个块，每个块用于构建一个子 ArrayConstant
-            // 这是一个递归过程。
-            // 但是我们并没有存储子 ArrayConstant 对象，只存储了扁平的 int list。
-            // 所以我们需要动态生成子 ArrayConstant 的字符串表示。
-            
-            // 计算子元素（也是数组）包含的基础元素个数
-            int subElementCount = 1;
-            IRType temp = subArrayType;
-            while (temp instanceof ArrayType) {
-                subElementCount *= ((ArrayType) temp).getArrayLenth();
-                temp = ((ArrayType) temp).getElementType();
-            }
-            
-            int currentLength = arrayType.getArrayLenth();
-            for (int i = 0; i < currentLength; i++) {
-                // 提取子列表
-                int start = i * subElementCount;
-                int end = start + subElementCount;
-                List<Integer> subList = elementValues.subList(start, end);
-                
-                // 递归创建子常量并获取字符串
-                ArrayConstant subConst = new ArrayConstant(subArrayType, subList);
-                builder.append(subArrayType.toString()).append(" ").append(subConst.toString());
-                
-                if (i < currentLength - 1) {
-                    builder.append(", ");
+            int subLength = getFlatLength(subArrayType);
+            for (int i = 0; i < count; i++) {
+                out.write(subArrayType.toString());
+                out.write(" ");
+                writeRange(out, subArrayType, offset + i * subLength);
+                if (i < count - 1) {
+                    out.write(", ");
                 }
             }
         } else {
-            // 基础类型数组 (i32, i8)
-            for (int i = 0; i < elementValues.size(); i++) {
-                builder.append(elementType.toString()).append(" ").append(elementValues.get(i));
-                if (i < elementValues.size() - 1) {
-                    builder.append(", ");
+            // 基础类型数组 (i32, i8)，顺序扫描非零下标即可
+            int slot = Arrays.binarySearch(nonZeroIndices, offset);
+            if (slot < 0) {
+                slot = -slot - 1;
+            }
+            for (int i = 0; i < count; i++) {
+                int index = offset + i;
+                int value = 0;
+                if (slot < nonZeroIndices.length && nonZeroIndices[slot] == index) {
+                    value = nonZeroValues[slot++];
+                }
+                out.write(elementType.toString());
+                out.write(" ");
+                out.write(Integer.toString(value));
+                if (i < count - 1) {
+                    out.write(", ");
                 }
             }
         }
-        
-        builder.append("]");
-        return builder.toString();
+        out.write("]");
     }
-}
\ No newline at end of file
+}
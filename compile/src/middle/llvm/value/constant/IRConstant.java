@@ -3,6 +3,8 @@ package middle.llvm.value.constant;
 import middle.llvm.type.IRType;
 import middle.llvm.value.IRValue;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 /**
@@ -59,6 +61,17 @@ public abstract class IRConstant extends IRValue {
         return false;
     }
     
+    /**
+     * 把常量的LLVM IR文本直接写入输出流，与toString逐字节一致
+     * 
+     * 数组常量覆盖此方法逐元素写出，不先拼接整个字符串
+     * 
+     * @param out 输出目标，调用方负责flush
+     */
+    public void writeTo(Writer out) throws IOException {
+        out.write(toString());
+    }
+    
     /**
      * 获取常量的所有数值
      * 
@@ -0,0 +1,102 @@
+package middle.llvm.value.instruction;
+
+import middle.llvm.type.VoidType;
+import middle.llvm.value.IRBasicBlock;
+import middle.llvm.value.IRValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LLVM IR多路分支指令
+ * switch i32 <value>, label <default> [ i32 <val0>, label <dest0> i32 <val1>, label <dest1> ... ]
+ *
+ * 操作数布局：[条件, default块, case0块, case1块, ...]，case的值按同样顺序存放在caseValues中
+ */
+public class SwitchInstruction extends IRInstruction {
+    private final List<Integer> caseValues = new ArrayList<>();
+
+    public SwitchInstruction(IRValue parentBlock, IRValue condition, IRValue defaultBlock) {
+        super(parentBlock, new VoidType());
+        addOperand(condition);
+        addOperand(defaultBlock);
+    }
+
+    /**
+     * 追加一个case
+     */
+    public void addCase(int value, IRValue targetBlock) {
+        caseValues.add(value);
+        addOperand(targetBlock);
+    }
+
+    public IRValue getCondition() {
+        return getOperand(0);
+    }
+
+    public IRValue getDefaultBlock() {
+        return getOperand(1);
+    }
+
+    public int getCaseCount() {
+        return caseValues.size();
+    }
+
+    public int getCaseValue(int index) {
+        return caseValues.get(index);
+    }
+
+    public IRValue getCaseBlock(int index) {
+        return getOperand(index + 2);
+    }
+
+    /**
+     * 获取所有跳转目标（default在前，可能重复）
+     */
+    public List<IRBasicBlock> getTargetBlocks() {
+        List<IRBasicBlock> targets = new ArrayList<>();
+        for (int i = 1; i < getOperandCount(); i++) {
+            targets.add((IRBasicBlock) getOperand(i));
+        }
+        return targets;
+    }
+
+    /**
+     * 将所有指向oldBlock的目标（含default）改为newBlock
+     *
+     * @return 是否有目标被替换
+     */
+    public boolean replaceTargetBlock(IRValue oldBlock, IRValue newBlock) {
+        boolean replaced = false;
+        for (int i = 1; i < getOperandCount(); i++) {
+            if (getOperand(i) == oldBlock) {
+                replaceOperand(i, newBlock);
+                replaced = true;
+            }
+        }
+        return replaced;
+    }
+
+    @Override
+    public boolean isTerminatorInstruction() {
+        return true;
+    }
+
+    @Override
+    public String getOpcodeName() {
+        return "switch";
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("switch ").append(getCondition().getType()).append(" ").append(getCondition().getName());
+        builder.append(", label ").append(getDefaultBlock().getName()).append(" [");
+        for (int i = 0; i < caseValues.size(); i++) {
+            builder.append("\n    ").append(getCondition().getType()).append(" ").append(caseValues.get(i));
+            builder.append(", label ").append(getCaseBlock(i).getName());
+        }
+        builder.append("\n  ]");
+        return builder.toString();
+    }
+}
@@ -12,7 +12,11 @@ import middle.llvm.Visitor;
 import middle.optimize.OptimizeManager;
 import utils.EnvInitializer;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 public class middleManager {
     private static IRModule module;
@@ -50,14 +54,23 @@ public class middleManager {
     private static void outputSymbolTable() throws IOException {
         SymbolTable rootTable = SymbolManager.getSymbolTable();
         if (rootTable != null) {
-            String symbolOutput = rootTable.toString();
-            if (!symbolOutput.isEmpty()) {
-                EnvInitializer.symbol.write(symbolOutput.getBytes());
-                EnvInitializer.symbol.flush();
-            }
+            // 直接流式写出，不再先拼接整张符号表的字符串
+            Writer writer = new BufferedWriter(new OutputStreamWriter(EnvInitializer.symbol));
+            rootTable.writeTo(writer);
+            writer.flush();
         }
     }
     
+    /**
+     * 输出llvm_ir到文件
+     * 直接流式写出，不再先拼接整个模块的字符串
+     */
+    private static void outputModule(OutputStream stream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream));
+        module.writeTo(writer);
+        writer.flush();
+    }
+
     /**
      * 输出错误信息到文件
      * 返回true表示有错误
@@ -91,9 +104,7 @@ public class middleManager {
         module = visitor.visit(astRoot);
 
         if (putOut) {
-            String llvm_IR_init = module.toString();
-            EnvInitializer.llvm_ir_init.write(llvm_IR_init.getBytes());
-            EnvInitializer.llvm_ir_init.flush();
+            outputModule(EnvInitializer.llvm_ir_init);
         }
     }
 
@@ -103,9 +114,7 @@ public class middleManager {
         OptimizeManager.optimize(debug);
 
         if (putOut) {
-            String llvm_IR_optimize = module.toString();
-            EnvInitializer.llvm_ir.write(llvm_IR_optimize.getBytes());
-            EnvInitializer.llvm_ir.flush();
+            outputModule(EnvInitializer.llvm_ir);
         }
     }
 
@@ -5,6 +5,7 @@ import middle.llvm.value.IRFunction;
 import middle.llvm.value.instruction.BranchInstruction;
 import middle.llvm.value.instruction.IRInstruction;
 import middle.llvm.value.instruction.JumpInstruction;
+import middle.llvm.value.instruction.SwitchInstruction;
 
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -58,6 +59,12 @@ public class BuildCFG extends Optimizer {
                     visitBlock.addSuccessor(falseBlock);
                     trueBlock.addPredecessor(visitBlock);
                     falseBlock.addPredecessor(visitBlock);
+                } else if (lastInstr instanceof SwitchInstruction switchInstr) {
+                    // 多路分支：default与所有case块
+                    for (IRBasicBlock targetBlock : switchInstr.getTargetBlocks()) {
+                        visitBlock.addSuccessor(targetBlock);
+                        targetBlock.addPredecessor(visitBlock);
+                    }
                 }
             }
         }
@@ -0,0 +1,420 @@
+package middle.optimize;
+
+import middle.llvm.IRInstructionFactory;
+import middle.llvm.type.ArrayType;
+import middle.llvm.type.IRType;
+import middle.llvm.value.IRBasicBlock;
+import middle.llvm.value.IRFunction;
+import middle.llvm.value.IRFunctionParameter;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.instruction.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 函数内联
+ *
+ * 动机：
+ * - 后端每次调用用户函数都要保存/恢复调用者寄存器、保存 $ra、调整栈帧并搬运实参，
+ *   对循环里反复调用的小函数来说，这些开销往往比函数体本身还大；
+ * - 内联后被调函数的代码处在调用点的上下文中，后续 MemToReg / SCCP / LVN 能利用实参常量继续化简。
+ *
+ * 代价模型（被调函数指令数 size）：
+ * - 递归函数（调用图中能回到自身）不内联；
+ * - 基础阈值 INLINE_BASE_SIZE，调用点每深一层循环阈值再加一倍（最多按 INLINE_MAX_LOOP_DEPTH 层计）；
+ * - 全模块只有一个调用点的函数使用 INLINE_SINGLE_CALL_SIZE，内联后原函数会被 DCE 删除，代码量不增长；
+ * - 调用者内联后超过 INLINE_MAX_CALLER_SIZE 条指令时停止，局部数组过大的函数不内联（避免栈帧膨胀）。
+ *
+ * 做法（在 MemToReg 之前，函数体仍是 alloca/load/store 形式）：
+ * - 按调用图后序处理调用者，被调函数先完成自身的内联；
+ * - 在调用点把所在块一分为二，克隆被调函数的基本块插在中间，形参替换为实参；
+ * - 被调函数的 alloca 提到调用者入口块；`ret` 改为跳到后半块，
+ *   多个 `ret` 带返回值时经由一个新的 alloca 汇合，交给 MemToReg 变成 Phi。
+ *
+ * 示例：
+ * ```llvm
+ * define i32 @sq(i32 %a0) {
+ *   %calc0 = mul i32 %a0, %a0
+ *   ret i32 %calc0
+ * }
+ * ; 调用点
+ *   %call3 = call i32 @sq(i32 %x)
+ *   %calc4 = add i32 %call3, 1
+ * ```
+ * 处理后：
+ * ```llvm
+ *   br label %b10
+ * b10:
+ *   %calc11 = mul i32 %x, %x
+ *   br label %b12
+ * b12:
+ *   %calc4 = add i32 %calc11, 1
+ * ```
+ */
+public class FunctionInlining extends Optimizer {
+    // 不在循环中的调用点允许内联的被调函数指令数
+    private static final int INLINE_BASE_SIZE = 24;
+    // 循环深度带来的阈值加成最多计算的层数
+    private static final int INLINE_MAX_LOOP_DEPTH = 3;
+    // 只被调用一次的函数允许内联的指令数
+    private static final int INLINE_SINGLE_CALL_SIZE = 160;
+    // 调用者内联后的指令数上限
+    private static final int INLINE_MAX_CALLER_SIZE = 1500;
+    // 被调函数局部数组的总字数上限
+    private static final int INLINE_MAX_ARRAY_WORDS = 256;
+
+    private final IRInstructionFactory factory;
+    private final InstructionCloner cloner;
+
+    // 调用图：调用者 -> 被调用的用户函数
+    private final Map<IRFunction, Set<IRFunction>> callGraph = new HashMap<>();
+    // 每个函数在全模块中的调用点个数
+    private final Map<IRFunction, Integer> callSiteCount = new HashMap<>();
+    private final Set<IRFunction> recursiveFunctions = new HashSet<>();
+
+    // 内联的调用点个数
+    private int inlinedCount = 0;
+
+    public FunctionInlining(IRInstructionFactory factory) {
+        this.factory = factory;
+        this.cloner = new InstructionCloner(factory);
+    }
+
+    @Override
+    public void optimize() {
+        buildCallGraph();
+        for (IRFunction caller : getPostOrder()) {
+            inlineCallsIn(caller);
+        }
+    }
+
+    // ==================== 调用图 ====================
+
+    private void buildCallGraph() {
+        callGraph.clear();
+        callSiteCount.clear();
+        recursiveFunctions.clear();
+        for (IRFunction function : irModule.getFunctionDefinitions()) {
+            Set<IRFunction> callees = new HashSet<>();
+            for (IRInstruction instr : function.getAllInstructions()) {
+                IRFunction callee = getUserCallee(instr);
+                if (callee != null) {
+                    callees.add(callee);
+                    callSiteCount.merge(callee, 1, Integer::sum);
+                }
+            }
+            callGraph.put(function, callees);
+        }
+        for (IRFunction function : callGraph.keySet()) {
+            if (reaches(function, function, new HashSet<>())) {
+                recursiveFunctions.add(function);
+            }
+        }
+    }
+
+    private boolean reaches(IRFunction from, IRFunction target, Set<IRFunction> visited) {
+        for (IRFunction callee : callGraph.getOrDefault(from, Set.of())) {
+            if (callee == target) {
+                return true;
+            }
+            if (visited.add(callee) && reaches(callee, target, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 调用图后序：被调函数排在调用者之前
+     */
+    private List<IRFunction> getPostOrder() {
+        List<IRFunction> order = new ArrayList<>();
+        Set<IRFunction> visited = new HashSet<>();
+        for (IRFunction function : irModule.getFunctionDefinitions()) {
+            postOrder(function, visited, order);
+        }
+        return order;
+    }
+
+    private void postOrder(IRFunction function, Set<IRFunction> visited, List<IRFunction> order) {
+        if (!visited.add(function)) {
+            return;
+        }
+        for (IRFunction callee : callGraph.getOrDefault(function, Set.of())) {
+            postOrder(callee, visited, order);
+        }
+        order.add(function);
+    }
+
+    private IRFunction getUserCallee(IRInstruction instr) {
+        if (instr instanceof CallInstruction call && call.getCalledFunction() instanceof IRFunction callee
+                && !callee.isLibraryFunction()) {
+            return callee;
+        }
+        return null;
+    }
+
+    // ==================== 代价模型 ====================
+
+    private void inlineCallsIn(IRFunction caller) {
+        Map<IRBasicBlock, Integer> loopDepth = computeLoopDepth(caller);
+        // 先收集调用点：新克隆进来的代码已经在被调函数中处理过，不再重复展开
+        List<CallInstruction> callSites = new ArrayList<>();
+        for (IRBasicBlock block : caller.getBasicBlocks()) {
+            for (IRInstruction instr : block.getAllInstructions()) {
+                if (getUserCallee(instr) != null) {
+                    callSites.add((CallInstruction) instr);
+                }
+            }
+        }
+
+        Map<CallInstruction, IRBasicBlock> callBlock = new HashMap<>();
+        for (IRBasicBlock block : caller.getBasicBlocks()) {
+            for (IRInstruction instr : block.getAllInstructions()) {
+                if (instr instanceof CallInstruction call) {
+                    callBlock.put(call, block);
+                }
+            }
+        }
+
+        int callerSize = caller.getAllInstructions().size();
+        for (CallInstruction call : callSites) {
+            IRFunction callee = (IRFunction) call.getCalledFunction();
+            IRBasicBlock block = callBlock.get(call);
+            int calleeSize = callee.getAllInstructions().size();
+            if (!shouldInline(caller, callee, calleeSize, callerSize, loopDepth.getOrDefault(block, 0))) {
+                continue;
+            }
+            IRBasicBlock after = inlineCall(caller, block, call, callee);
+            // 维护调用点计数：少了一次对 callee 的调用，多了 callee 体内调用的副本
+            callSiteCount.merge(callee, -1, Integer::sum);
+            for (IRInstruction instr : callee.getAllInstructions()) {
+                IRFunction cloned = getUserCallee(instr);
+                if (cloned != null) {
+                    callSiteCount.merge(cloned, 1, Integer::sum);
+                    callGraph.get(caller).add(cloned);
+                }
+            }
+            // 调用点之后的指令搬到了新块，其中的调用点所在块随之更新
+            for (IRInstruction instr : after.getAllInstructions()) {
+                if (instr instanceof CallInstruction moved) {
+                    callBlock.put(moved, after);
+                }
+            }
+            loopDepth.put(after, loopDepth.getOrDefault(block, 0));
+            callerSize += calleeSize;
+            inlinedCount++;
+        }
+    }
+
+    private boolean shouldInline(IRFunction caller, IRFunction callee, int calleeSize, int callerSize, int depth) {
+        if (callee == caller || recursiveFunctions.contains(callee) || !isCloneable(callee)) {
+            return false;
+        }
+        if (callerSize + calleeSize > INLINE_MAX_CALLER_SIZE || getArrayWords(callee) > INLINE_MAX_ARRAY_WORDS) {
+            return false;
+        }
+        if (callSiteCount.getOrDefault(callee, 0) == 1 && !"@main".equals(callee.getName())) {
+            return calleeSize <= INLINE_SINGLE_CALL_SIZE;
+        }
+        return calleeSize <= INLINE_BASE_SIZE * (1 + Math.min(depth, INLINE_MAX_LOOP_DEPTH));
+    }
+
+    private boolean isCloneable(IRFunction callee) {
+        for (IRInstruction instr : callee.getAllInstructions()) {
+            if (instr instanceof CopyInstruction) {
+                return false;
+            }
+        }
+        return !callee.getBasicBlocks().isEmpty();
+    }
+
+    private int getArrayWords(IRFunction callee) {
+        int words = 0;
+        for (IRInstruction instr : callee.getEntryBlock().getAllInstructions()) {
+            if (instr instanceof AllocaInstruction alloca && alloca.getAllocatedType() instanceof ArrayType array) {
+                words += array.getByteSize() / 4;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * 用回边识别自然循环，块的循环深度为包含它的循环个数
+     */
+    private Map<IRBasicBlock, Integer> computeLoopDepth(IRFunction function) {
+        Map<IRBasicBlock, Integer> depth = new HashMap<>();
+        for (IRBasicBlock block : function.getBasicBlocks()) {
+            for (IRBasicBlock header : block.getSuccessors()) {
+                if (!block.getDominatedBy().contains(header)) {
+                    continue;
+                }
+                Set<IRBasicBlock> body = new HashSet<>();
+                body.add(header);
+                LinkedList<IRBasicBlock> workList = new LinkedList<>();
+                if (body.add(block)) {
+                    workList.add(block);
+                }
+                while (!workList.isEmpty()) {
+                    for (IRBasicBlock pred : workList.poll().getPredecessors()) {
+                        if (body.add(pred)) {
+                            workList.add(pred);
+                        }
+                    }
+                }
+                for (IRBasicBlock member : body) {
+                    depth.merge(member, 1, Integer::sum);
+                }
+            }
+        }
+        return depth;
+    }
+
+    // ==================== 克隆 ====================
+
+    /**
+     * 把 callee 展开到 call 所在位置
+     *
+     * @return 调用点之后的后半块
+     */
+    private IRBasicBlock inlineCall(IRFunction caller, IRBasicBlock block, CallInstruction call, IRFunction callee) {
+        // 1. 拆分调用点所在块：call 之后的指令移入 after
+        IRBasicBlock after = new IRBasicBlock(caller, factory.getNextNameCounter());
+        LinkedList<IRInstruction> instructions = block.getAllInstructions();
+        int callIndex = instructions.indexOf(call);
+        while (instructions.size() > callIndex + 1) {
+            IRInstruction moved = instructions.remove(callIndex + 1);
+            moved.setContainer(after);
+            after.addInstructionToTail(moved);
+        }
+        instructions.remove(callIndex);
+        for (IRBasicBlock succ : getTargets(after.getLastInstruction())) {
+            for (PhiInstruction phi : succ.getPhiInstructions()) {
+                phi.replaceIncomingBlock(block, after);
+            }
+        }
+
+        // 2. 形参 -> 实参，基本块一一对应
+        Map<IRValue, IRValue> valueMap = new HashMap<>();
+        List<IRFunctionParameter> params = callee.getParameters();
+        List<IRValue> args = call.getArguments();
+        for (int i = 0; i < params.size(); i++) {
+            valueMap.put(params.get(i), args.get(i));
+        }
+        List<IRBasicBlock> clonedBlocks = new ArrayList<>();
+        for (IRBasicBlock calleeBlock : callee.getBasicBlocks()) {
+            IRBasicBlock clonedBlock = new IRBasicBlock(caller, factory.getNextNameCounter());
+            valueMap.put(calleeBlock, clonedBlock);
+            clonedBlocks.add(clonedBlock);
+        }
+
+        // 3. 逐条克隆指令（操作数先沿用原值，全部克隆完再统一替换，以处理前向引用）
+        boolean hasResult = call.hasReturnValue() && !call.getUseList().isEmpty();
+        List<IRValue> returnValues = new ArrayList<>();
+        List<IRBasicBlock> returnBlocks = new ArrayList<>();
+        List<IRInstruction> clones = new ArrayList<>();
+        Map<PhiInstruction, PhiInstruction> phiMap = new HashMap<>();
+        IRBasicBlock callerEntry = caller.getEntryBlock();
+        for (int i = 0; i < clonedBlocks.size(); i++) {
+            IRBasicBlock calleeBlock = callee.getBasicBlocks().get(i);
+            IRBasicBlock clonedBlock = clonedBlocks.get(i);
+            for (IRInstruction instr : calleeBlock.getAllInstructions()) {
+                if (instr instanceof ReturnInstruction ret) {
+                    if (hasResult) {
+                        returnValues.add(ret.getReturnValue());
+                        returnBlocks.add(clonedBlock);
+                    }
+                    clonedBlock.addInstructionToTail(new JumpInstruction(clonedBlock, after));
+                    break;
+                }
+                IRInstruction clone;
+                if (instr instanceof PhiInstruction phi) {
+                    List<IRBasicBlock> preds = new ArrayList<>();
+                    for (IRBasicBlock pred : phi.getPredecessorBlocks()) {
+                        preds.add((IRBasicBlock) valueMap.get(pred));
+                    }
+                    PhiInstruction clonedPhi = new PhiInstruction(clonedBlock, phi.getType(), preds);
+                    phiMap.put(phi, clonedPhi);
+                    clone = clonedPhi;
+                } else {
+                    clone = cloner.cloneInstruction(instr, instr instanceof AllocaInstruction ? callerEntry : clonedBlock);
+                    clones.add(clone);
+                }
+                valueMap.put(instr, clone);
+                if (instr instanceof AllocaInstruction) {
+                    callerEntry.addInstructionToHead(clone);
+                } else {
+                    clonedBlock.addInstructionToTail(clone);
+                }
+            }
+        }
+
+        // 4. 替换克隆指令中引用的形参、块与被调函数内部的值
+        InstructionCloner.remapOperands(clones, valueMap);
+        for (Map.Entry<PhiInstruction, PhiInstruction> entry : phiMap.entrySet()) {
+            PhiInstruction phi = entry.getKey();
+            for (IRBasicBlock pred : phi.getPredecessorBlocks()) {
+                entry.getValue().fillIncomingValue(InstructionCloner.mapValue(valueMap, phi.getIncomingValue(pred)),
+                        (IRBasicBlock) valueMap.get(pred));
+            }
+        }
+
+        // 5. 返回值：只有一个 ret 时直接替换；多个 ret 经由 alloca 汇合
+        if (hasResult && returnValues.size() == 1) {
+            call.replaceAllUsesWith(InstructionCloner.mapValue(valueMap, returnValues.get(0)));
+        } else if (hasResult) {
+            IRType returnType = callee.getReturnType();
+            AllocaInstruction slot = new AllocaInstruction(callerEntry, factory.getNextNameCounter(), returnType);
+            callerEntry.addInstructionToHead(slot);
+            for (int i = 0; i < returnBlocks.size(); i++) {
+                IRBasicBlock returnBlock = returnBlocks.get(i);
+                LinkedList<IRInstruction> list = returnBlock.getAllInstructions();
+                list.add(list.size() - 1,
+                        new StoreInstruction(returnBlock, InstructionCloner.mapValue(valueMap, returnValues.get(i)), slot));
+            }
+            LoadInstruction result = new LoadInstruction(after, factory.getNextNameCounter(), slot);
+            after.addInstructionToHead(result);
+            call.replaceAllUsesWith(result);
+        }
+        call.clearAllOperands();
+
+        // 6. 调用点所在块跳到克隆的入口块，块顺序为 block, 克隆块..., after
+        block.addInstructionToTail(new JumpInstruction(block, clonedBlocks.get(0)));
+        LinkedList<IRBasicBlock> blocks = caller.getBasicBlocks();
+        ListIterator<IRBasicBlock> iterator = blocks.listIterator(blocks.indexOf(block) + 1);
+        for (IRBasicBlock clonedBlock : clonedBlocks) {
+            iterator.add(clonedBlock);
+        }
+        iterator.add(after);
+        return after;
+    }
+
+    private List<IRBasicBlock> getTargets(IRInstruction terminator) {
+        List<IRBasicBlock> targets = new ArrayList<>();
+        if (terminator instanceof BranchInstruction br) {
+            targets.add((IRBasicBlock) br.getTrueBranch());
+            targets.add((IRBasicBlock) br.getFalseBranch());
+        } else if (terminator instanceof JumpInstruction jump) {
+            targets.add((IRBasicBlock) jump.getTargetBlock());
+        } else if (terminator instanceof SwitchInstruction sw) {
+            targets.addAll(sw.getTargetBlocks());
+        }
+        return targets;
+    }
+
+    public int getInlinedCount() {
+        return inlinedCount;
+    }
+
+    @Override
+    public String OptimizerName() {
+        return "FunctionInlining";
+    }
+}
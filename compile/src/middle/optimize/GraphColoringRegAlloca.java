@@ -0,0 +1,541 @@
+package middle.optimize;
+
+import back.mips.ClobberAnalysis;
+import back.mips.Rematerialization;
+import back.mips.register.Reg;
+import back.mips.register.RegisterFile;
+import middle.llvm.IRModule;
+import middle.llvm.value.IRBasicBlock;
+import middle.llvm.value.IRFunction;
+import middle.llvm.value.IRFunctionParameter;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.instruction.AllocaInstruction;
+import middle.llvm.value.instruction.CallInstruction;
+import middle.llvm.value.instruction.IRInstruction;
+import middle.llvm.value.instruction.PhiInstruction;
+
+import java.util.*;
+
+/**
+ * 图着色寄存器分配器（Briggs/George 保守合并 + 乐观着色）
+ * 与线性扫描 RegAlloca 二选一，由 Config.graphColoringRegAllocFlag 决定，输入同样是 RemovePhi 之前的 SSA 形式。
+ *
+ * 1. 冲突图：基于 LivenessAnalyzer 的 LiveOut，逐块逆序扫描，定义点与该处活跃的值互相冲突。
+ *    - Phi 视为在各前驱末尾（RemovePhi 放拷贝的位置）定义：与前驱 LiveOut 中除自身来边值以外的值冲突，
+ *      这样合并后按顺序执行的拷贝不会覆盖同组中尚未读取的源；
+ *    - 同一块的 Phi 两两冲突，形参在入口处同时定义。
+ * 2. 合并：Phi 与来边值构成传送对，按 10^循环深度 加权后从高到低尝试；
+ *    满足 Briggs 或 George 准则才合并，合并后 RemovePhi 产生的拷贝两端是同一寄存器，被窥孔删除。
+ * 3. 简化：度数小于 K 的结点入栈；没有时取 溢出代价 / 度数 最小者乐观入栈，
+ *    溢出代价为定义与使用次数按 10^循环深度 加权；可重算的值（alloca、常量下标的全局/帧内地址）溢出后
+ *    在使用处重算而不占栈槽，代价按 REMAT_COST_FACTOR 折减，寄存器紧张时先让出。
+ * 4. 选择：出栈着色，优先取传送对另一端的颜色，其次按 RegisterFile 的分类与跨越 call 的加权次数选择寄存器（见 preferenceOrder）；
+ *    无色可选则该结点留在栈上，与线性扫描的溢出相同，后端按需经 $k0/$k1 读写。
+ * 5. 叶函数（不调用用户函数）额外可用 $a0-$a3，形参优先留在传入它的 $a 寄存器，无需落盘也无需搬运。
+ *    函数按调用图自底向上分配，调用者可据被调函数的破坏摘要（ClobberAnalysis）选寄存器。
+ */
+public class GraphColoringRegAlloca {
+    private final IRModule module;
+
+    // 可重算值的溢出代价折减：重算一条 addiu/la 约为一次 lw 的一半，且定义处无需写回
+    private static final double REMAT_COST_FACTOR = 0.5;
+
+    private static GraphColoringRegAlloca instance;
+
+    // ==================== 单个函数的分配状态 ====================
+    // 冲突图：结点为合并后的代表值
+    private Map<IRValue, Set<IRValue>> adjacency;
+    // 合并关系：值 -> 被合并到的值
+    private Map<IRValue, IRValue> alias;
+    private Map<IRValue, Double> spillCost;
+    // 传送对另一端（按代表值维护），着色时作为偏好
+    private Map<IRValue, Set<IRValue>> movePartners;
+    private List<Move> moves;
+    // 每个 call 之后仍活跃的值
+    private Map<CallInstruction, List<IRValue>> liveAcrossCall;
+    // 每个 call 所在块的估计执行频率
+    private Map<CallInstruction, Double> callFrequency;
+    // 值在函数中的定义顺序，保证每次编译的着色结果一致
+    private Map<IRValue, Integer> valueOrder;
+
+    private static class Move {
+        final IRValue dst;
+        final IRValue src;
+        final double weight;
+
+        Move(IRValue dst, IRValue src, double weight) {
+            this.dst = dst;
+            this.src = src;
+            this.weight = weight;
+        }
+    }
+
+    private ClobberAnalysis clobberAnalysis;
+    // 当前函数的可分配寄存器：叶函数额外可用 $a0-$a3
+    private List<Reg> pool;
+    // 叶函数中形参（的代表值）偏好传入它的 $a 寄存器
+    private Map<IRValue, Reg> argumentPreference;
+
+    private GraphColoringRegAlloca(IRModule module) {
+        this.module = module;
+    }
+
+    public static GraphColoringRegAlloca getInstance(IRModule module) {
+        if (instance == null) {
+            instance = new GraphColoringRegAlloca(module);
+        }
+        return instance;
+    }
+
+    public void alloca() {
+        // 被调函数先分配，调用者才能据其破坏摘要避开会被改写的寄存器
+        clobberAnalysis = new ClobberAnalysis(module);
+        for (IRFunction function : clobberAnalysis.getBottomUpOrder()) {
+            if (!function.getBasicBlocks().isEmpty()) {
+                allocateFunction(function);
+            }
+        }
+    }
+
+    private void allocateFunction(IRFunction function) {
+        adjacency = new LinkedHashMap<>();
+        alias = new HashMap<>();
+        spillCost = new HashMap<>();
+        movePartners = new HashMap<>();
+        moves = new ArrayList<>();
+        liveAcrossCall = new LinkedHashMap<>();
+        callFrequency = new HashMap<>();
+        valueOrder = new HashMap<>();
+        for (IRFunctionParameter param : function.getParameters()) {
+            valueOrder.put(param, valueOrder.size());
+        }
+        for (IRBasicBlock block : function.getBasicBlocks()) {
+            for (IRInstruction instr : block.getAllInstructions()) {
+                IRValue def = LivenessAnalyzer.getDefValue(instr);
+                if (def != null) {
+                    valueOrder.putIfAbsent(def, valueOrder.size());
+                    addNode(def);
+                }
+            }
+        }
+
+        boolean leaf = clobberAnalysis.isLeaf(function);
+        pool = new ArrayList<>(RegisterFile.ALLOCATABLE);
+        if (leaf) {
+            pool.addAll(RegisterFile.ARGUMENT);
+            // 输出类系统调用用 $a0 传参，$a0 持有值时每次输出都要借 $k1 保护，不如不用
+            if (hasOutputCall(function)) {
+                pool.remove(Reg.a0);
+            }
+        }
+
+        new LivenessAnalyzer().analyze(function);
+        Map<IRBasicBlock, Double> frequency = computeBlockFrequency(function);
+        buildInterferenceGraph(function, frequency);
+        coalesce();
+        argumentPreference = new HashMap<>();
+        if (leaf) {
+            List<IRFunctionParameter> params = function.getParameters();
+            for (int i = 0; i < params.size() && i < RegisterFile.ARGUMENT.size(); i++) {
+                argumentPreference.putIfAbsent(find(params.get(i)), RegisterFile.ARGUMENT.get(i));
+            }
+        }
+        Map<IRValue, Reg> colors = color(function.getName().equals("@main"));
+
+        HashMap<IRValue, Reg> value2reg = new HashMap<>();
+        for (IRValue value : alias.keySet()) {
+            Reg reg = colors.get(find(value));
+            if (reg != null) {
+                value2reg.put(value, reg);
+            }
+        }
+        for (IRValue value : adjacency.keySet()) {
+            Reg reg = colors.get(value);
+            if (reg != null) {
+                value2reg.put(value, reg);
+            }
+        }
+        function.setValue2reg(value2reg);
+
+        for (Map.Entry<CallInstruction, List<IRValue>> entry : liveAcrossCall.entrySet()) {
+            HashSet<Reg> liveRegs = new HashSet<>();
+            for (IRValue value : entry.getValue()) {
+                Reg reg = value2reg.get(value);
+                if (reg != null) {
+                    liveRegs.add(reg);
+                }
+            }
+            entry.getKey().liveRegSet = liveRegs;
+        }
+    }
+
+    // ==================== 执行频率 ====================
+
+    /**
+     * 块的估计执行频率：10^所在自然循环的嵌套深度
+     */
+    private Map<IRBasicBlock, Double> computeBlockFrequency(IRFunction function) {
+        Map<IRBasicBlock, Integer> depth = new HashMap<>();
+        for (IRBasicBlock block : function.getBasicBlocks()) {
+            depth.put(block, 0);
+        }
+        for (IRBasicBlock latch : function.getBasicBlocks()) {
+            for (IRBasicBlock header : latch.getSuccessors()) {
+                if (!latch.getDominatedBy().contains(header)) {
+                    continue;
+                }
+                Set<IRBasicBlock> body = new HashSet<>();
+                body.add(header);
+                Deque<IRBasicBlock> workList = new ArrayDeque<>();
+                if (body.add(latch)) {
+                    workList.add(latch);
+                }
+                while (!workList.isEmpty()) {
+                    for (IRBasicBlock pred : workList.poll().getPredecessors()) {
+                        if (body.add(pred)) {
+                            workList.add(pred);
+                        }
+                    }
+                }
+                for (IRBasicBlock block : body) {
+                    depth.merge(block, 1, Integer::sum);
+                }
+            }
+        }
+        Map<IRBasicBlock, Double> frequency = new HashMap<>();
+        for (Map.Entry<IRBasicBlock, Integer> entry : depth.entrySet()) {
+            frequency.put(entry.getKey(), Math.pow(10, Math.min(entry.getValue(), 6)));
+        }
+        return frequency;
+    }
+
+    // ==================== 冲突图 ====================
+
+    private void addNode(IRValue value) {
+        adjacency.computeIfAbsent(value, k -> new LinkedHashSet<>());
+    }
+
+    private void addEdge(IRValue a, IRValue b) {
+        if (a == b) {
+            return;
+        }
+        addNode(a);
+        addNode(b);
+        adjacency.get(a).add(b);
+        adjacency.get(b).add(a);
+    }
+
+    private List<IRValue> sortedNeighbors(IRValue value) {
+        List<IRValue> neighbors = new ArrayList<>(adjacency.get(value));
+        neighbors.sort(Comparator.comparingInt(v -> valueOrder.getOrDefault(v, Integer.MAX_VALUE)));
+        return neighbors;
+    }
+
+    private void addCost(IRValue value, double weight) {
+        // 可重算的值溢出后不写回栈槽，每次使用只需一条 addiu/la 代替 lw
+        if (Rematerialization.isRematerializable(value)) {
+            weight *= REMAT_COST_FACTOR;
+        }
+        spillCost.merge(value, weight, Double::sum);
+    }
+
+    private void buildInterferenceGraph(IRFunction function, Map<IRBasicBlock, Double> frequency) {
+        for (IRBasicBlock block : function.getBasicBlocks()) {
+            double weight = frequency.get(block);
+            Set<IRValue> live = new LinkedHashSet<>(block.getLiveOut());
+            List<IRInstruction> instructions = block.getAllInstructions();
+            for (int i = instructions.size() - 1; i >= 0; i--) {
+                IRInstruction instr = instructions.get(i);
+                if (instr instanceof PhiInstruction) {
+                    break;
+                }
+                IRValue def = LivenessAnalyzer.getDefValue(instr);
+                // Alloca 不计入活跃分析的定义，但后端会在原位置把栈地址写入其寄存器
+                if (def == null && instr instanceof AllocaInstruction && live.contains(instr)) {
+                    def = instr;
+                }
+                if (def != null) {
+                    addNode(def);
+                    addCost(def, weight);
+                    live.remove(def);
+                    for (IRValue value : live) {
+                        addEdge(def, value);
+                    }
+                }
+                if (instr instanceof CallInstruction call) {
+                    liveAcrossCall.put(call, new ArrayList<>(live));
+                    callFrequency.put(call, weight);
+                }
+                for (IRValue operand : instr.getAllOperands()) {
+                    if (LivenessAnalyzer.isVariable(operand)) {
+                        addNode(operand);
+                        addCost(operand, weight);
+                        live.add(operand);
+                    }
+                }
+            }
+
+            // 块首的 Phi：与块入口活跃的值及彼此冲突
+            List<PhiInstruction> phis = block.getPhiInstructions();
+            for (PhiInstruction phi : phis) {
+                addNode(phi);
+                live.remove(phi);
+            }
+            for (PhiInstruction phi : phis) {
+                for (IRValue value : live) {
+                    addEdge(phi, value);
+                }
+                for (PhiInstruction other : phis) {
+                    addEdge(phi, other);
+                }
+                // 前驱末尾的拷贝处定义
+                for (IRBasicBlock pred : phi.getPredecessorBlocks()) {
+                    IRValue incoming = phi.getIncomingValue(pred);
+                    double predWeight = frequency.getOrDefault(pred, 1.0);
+                    addCost(phi, predWeight);
+                    for (IRValue value : pred.getLiveOut()) {
+                        if (value != incoming && value != phi) {
+                            addEdge(phi, value);
+                        }
+                    }
+                    if (incoming != null && LivenessAnalyzer.isVariable(incoming)) {
+                        addNode(incoming);
+                        addCost(incoming, predWeight);
+                        moves.add(new Move(phi, incoming, predWeight));
+                    }
+                }
+            }
+
+            // 入口处仍活跃的值（形参）同时定义，两两冲突
+            if (block == function.getEntryBlock()) {
+                for (IRValue value : live) {
+                    for (IRValue other : live) {
+                        addEdge(value, other);
+                    }
+                }
+            }
+        }
+    }
+
+    // ==================== 合并 ====================
+
+    private IRValue find(IRValue value) {
+        IRValue root = value;
+        while (alias.containsKey(root)) {
+            root = alias.get(root);
+        }
+        return root;
+    }
+
+    private void coalesce() {
+        int k = pool.size();
+        moves.sort((a, b) -> Double.compare(b.weight, a.weight));
+        for (Move move : moves) {
+            IRValue a = find(move.dst);
+            IRValue b = find(move.src);
+            if (a == b || adjacency.get(a).contains(b)) {
+                continue;
+            }
+            if (briggs(a, b, k) || george(a, b, k) || george(b, a, k)) {
+                merge(a, b);
+            } else {
+                movePartners.computeIfAbsent(a, x -> new LinkedHashSet<>()).add(b);
+                movePartners.computeIfAbsent(b, x -> new LinkedHashSet<>()).add(a);
+            }
+        }
+    }
+
+    /**
+     * Briggs：合并后高度数（>= K）的邻居少于 K 个
+     */
+    private boolean briggs(IRValue a, IRValue b, int k) {
+        Set<IRValue> neighbors = new HashSet<>(adjacency.get(a));
+        neighbors.addAll(adjacency.get(b));
+        int significant = 0;
+        for (IRValue n : neighbors) {
+            int degree = adjacency.get(n).size();
+            if (adjacency.get(a).contains(n) && adjacency.get(b).contains(n)) {
+                degree--;
+            }
+            if (degree >= k && ++significant >= k) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * George：b 的每个邻居要么已与 a 冲突，要么度数小于 K
+     */
+    private boolean george(IRValue a, IRValue b, int k) {
+        for (IRValue t : adjacency.get(b)) {
+            if (adjacency.get(t).size() >= k && !adjacency.get(t).contains(a)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void merge(IRValue a, IRValue b) {
+        alias.put(b, a);
+        for (IRValue n : adjacency.remove(b)) {
+            adjacency.get(n).remove(b);
+            addEdge(a, n);
+        }
+        spillCost.merge(a, spillCost.getOrDefault(b, 0.0), Double::sum);
+        Set<IRValue> partners = movePartners.remove(b);
+        if (partners != null) {
+            movePartners.computeIfAbsent(a, x -> new LinkedHashSet<>()).addAll(partners);
+        }
+    }
+
+    // ==================== 简化与选择 ====================
+
+    private Map<IRValue, Reg> color(boolean isMain) {
+        int k = pool.size();
+        // 跨越 call 的加权次数：调用者保存寄存器每跨一次付出一对 sw/lw
+        // 以及所跨越的调用合起来会破坏的寄存器，其余调用者保存寄存器跨越这些调用也无需保存
+        Map<IRValue, Double> crossWeight = new HashMap<>();
+        Map<IRValue, Set<Reg>> crossClobbered = new HashMap<>();
+        for (Map.Entry<CallInstruction, List<IRValue>> entry : liveAcrossCall.entrySet()) {
+            Set<Reg> clobbered = getClobbered(entry.getKey());
+            for (IRValue value : entry.getValue()) {
+                crossWeight.merge(find(value), callFrequency.get(entry.getKey()), Double::sum);
+                crossClobbered.computeIfAbsent(find(value), x -> new HashSet<>()).addAll(clobbered);
+            }
+        }
+        // 已被本函数用到的被调用者保存寄存器再用不增加序言开销；main 不返回，全部视为已用
+        Set<Reg> paidCalleeSaved = new HashSet<>(isMain ? RegisterFile.CALLEE_SAVED : Collections.emptySet());
+        Map<IRValue, Integer> degree = new HashMap<>();
+        Set<IRValue> remaining = new LinkedHashSet<>(adjacency.keySet());
+        Deque<IRValue> lowDegree = new ArrayDeque<>();
+        for (IRValue node : remaining) {
+            degree.put(node, adjacency.get(node).size());
+            if (adjacency.get(node).size() < k) {
+                lowDegree.add(node);
+            }
+        }
+
+        Deque<IRValue> stack = new ArrayDeque<>();
+        while (!remaining.isEmpty()) {
+            IRValue node = null;
+            while (!lowDegree.isEmpty()) {
+                IRValue candidate = lowDegree.poll();
+                if (remaining.contains(candidate)) {
+                    node = candidate;
+                    break;
+                }
+            }
+            if (node == null) {
+                // 乐观溢出：代价 / 度数 最小者
+                double best = Double.MAX_VALUE;
+                for (IRValue candidate : remaining) {
+                    double priority = spillCost.getOrDefault(candidate, 0.0) / Math.max(1, degree.get(candidate));
+                    if (priority < best) {
+                        best = priority;
+                        node = candidate;
+                    }
+                }
+            }
+            remaining.remove(node);
+            stack.push(node);
+            for (IRValue n : sortedNeighbors(node)) {
+                if (remaining.contains(n)) {
+                    int d = degree.merge(n, -1, Integer::sum);
+                    if (d == k - 1) {
+                        lowDegree.add(n);
+                    }
+                }
+            }
+        }
+
+        Map<IRValue, Reg> colors = new HashMap<>();
+        while (!stack.isEmpty()) {
+            IRValue node = stack.pop();
+            Set<Reg> used = new HashSet<>();
+            for (IRValue n : adjacency.get(node)) {
+                Reg reg = colors.get(n);
+                if (reg != null) {
+                    used.add(reg);
+                }
+            }
+            Reg chosen = argumentPreference.get(node);
+            if (chosen != null && (used.contains(chosen) || !pool.contains(chosen))) {
+                chosen = null;
+            }
+            for (IRValue partner : movePartners.getOrDefault(node, Collections.emptySet())) {
+                Reg reg = colors.get(find(partner));
+                if (chosen == null && reg != null && !used.contains(reg)) {
+                    chosen = reg;
+                    break;
+                }
+            }
+            if (chosen == null) {
+                for (Reg reg : preferenceOrder(crossWeight.getOrDefault(node, 0.0),
+                        crossClobbered.getOrDefault(node, Collections.emptySet()), paidCalleeSaved)) {
+                    if (!used.contains(reg)) {
+                        chosen = reg;
+                        break;
+                    }
+                }
+            }
+            if (chosen != null) {
+                colors.put(node, chosen);
+                if (RegisterFile.isCalleeSaved(chosen)) {
+                    paidCalleeSaved.add(chosen);
+                }
+            }
+        }
+        return colors;
+    }
+
+    private static boolean hasOutputCall(IRFunction function) {
+        for (IRInstruction instr : function.getAllInstructions()) {
+            if (instr instanceof CallInstruction call) {
+                IRValue callee = call.getCalledFunction();
+                if (callee == IRFunction.PUTINT || callee == IRFunction.PUTCH || callee == IRFunction.PUTSTR) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Set<Reg> getClobbered(CallInstruction call) {
+        if (call.getCalledFunction() instanceof IRFunction callee && !callee.isLibraryFunction()) {
+            return clobberAnalysis.getClobbered(callee);
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * 选色顺序：所跨越调用都不破坏的调用者保存寄存器、已付过保存开销的被调用者保存寄存器总是免费的；
+     * 加权跨越 call 超过一次的值，新启用一个被调用者保存寄存器（每次进入函数一对 sw/lw）比逐个调用点保存便宜
+     */
+    private List<Reg> preferenceOrder(double crossWeight, Set<Reg> clobbered, Set<Reg> paidCalleeSaved) {
+        List<Reg> safe = new ArrayList<>(), unsafe = new ArrayList<>();
+        for (Reg reg : RegisterFile.CALLER_SAVED) {
+            (clobbered.contains(reg) ? unsafe : safe).add(reg);
+        }
+        List<Reg> paid = new ArrayList<>(), unpaid = new ArrayList<>();
+        for (Reg reg : RegisterFile.CALLEE_SAVED) {
+            (paidCalleeSaved.contains(reg) ? paid : unpaid).add(reg);
+        }
+        List<Reg> order = new ArrayList<>(safe);
+        // 叶函数的 $a 寄存器
+        for (Reg reg : RegisterFile.ARGUMENT) {
+            if (pool.contains(reg)) {
+                order.add(reg);
+            }
+        }
+        order.addAll(paid);
+        if (crossWeight > 1) {
+            order.addAll(unpaid);
+            order.addAll(unsafe);
+        } else {
+            order.addAll(unsafe);
+            order.addAll(unpaid);
+        }
+        return order;
+    }
+}
@@ -0,0 +1,93 @@
+package middle.optimize;
+
+import middle.llvm.IRInstructionFactory;
+import middle.llvm.type.PointerType;
+import middle.llvm.value.IRBasicBlock;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.instruction.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 指令克隆工具，供函数内联、循环展开等需要复制代码的 Pass 使用
+ *
+ * 克隆分两步：
+ * - cloneInstruction 按原指令的操作数构造副本（此时仍引用原来的值）；
+ * - 一批指令全部克隆完后，remapOperands 按映射表把操作数换成对应的副本，
+ *   这样前向引用（Phi 或循环中后定义先使用的值）也能正确替换。
+ * Phi 的输入与前驱块绑定，由调用方按需要自行构造。
+ */
+class InstructionCloner {
+    private final IRInstructionFactory factory;
+
+    InstructionCloner(IRInstructionFactory factory) {
+        this.factory = factory;
+    }
+
+    static IRValue mapValue(Map<IRValue, IRValue> valueMap, IRValue value) {
+        IRValue mapped = valueMap.get(value);
+        return mapped != null ? mapped : value;
+    }
+
+    /**
+     * 按原指令的种类与操作数构造一份副本，结果名重新编号
+     */
+    IRInstruction cloneInstruction(IRInstruction instr, IRBasicBlock block) {
+        if (instr instanceof AllocaInstruction alloca) {
+            return new AllocaInstruction(block, factory.getNextNameCounter(),
+                    ((PointerType) alloca.getType()).getPointeeType(), alloca.getInitialValue());
+        } else if (instr instanceof BinaryOperationInstruction binOp) {
+            return new BinaryOperationInstruction(block, binOp.getOperator(), factory.getNextNameCounter(),
+                    binOp.getLeftOperand(), binOp.getRightOperand());
+        } else if (instr instanceof CompareInstruction cmp) {
+            return new CompareInstruction(block, cmp.getCondition(), factory.getNextNameCounter(),
+                    cmp.getLeftOperand(), cmp.getRightOperand());
+        } else if (instr instanceof LoadInstruction load) {
+            return new LoadInstruction(block, factory.getNextNameCounter(), load.getPointerOperand());
+        } else if (instr instanceof StoreInstruction store) {
+            return new StoreInstruction(block, store.getValueOperand(), store.getPointerOperand());
+        } else if (instr instanceof GetElementPtrInstruction gep) {
+            List<IRValue> indices = new ArrayList<>();
+            for (int i = 0; i < gep.getIndexCount(); i++) {
+                indices.add(gep.getIndex(i));
+            }
+            return new GetElementPtrInstruction(block, factory.getNextNameCounter(), gep.getBasePointer(), indices);
+        } else if (instr instanceof CallInstruction call) {
+            if (call.hasReturnValue()) {
+                return new CallInstruction(block, factory.getNextNameCounter(), call.getCalledFunction(), call.getArguments());
+            }
+            return new CallInstruction(block, call.getCalledFunction(), call.getArguments());
+        } else if (instr instanceof ZeroExtendInstruction zext) {
+            return new ZeroExtendInstruction(block, factory.getNextNameCounter(), zext.getOriginalValue(), zext.getTargetType());
+        } else if (instr instanceof TruncateInstruction trunc) {
+            return new TruncateInstruction(block, factory.getNextNameCounter(), trunc.getOriginalValue(), trunc.getTargetType());
+        } else if (instr instanceof BranchInstruction br) {
+            return new BranchInstruction(block, br.getCondition(), br.getTrueBranch(), br.getFalseBranch());
+        } else if (instr instanceof JumpInstruction jump) {
+            return new JumpInstruction(block, jump.getTargetBlock());
+        } else if (instr instanceof SwitchInstruction sw) {
+            SwitchInstruction clone = new SwitchInstruction(block, sw.getCondition(), sw.getDefaultBlock());
+            for (int i = 0; i < sw.getCaseCount(); i++) {
+                clone.addCase(sw.getCaseValue(i), sw.getCaseBlock(i));
+            }
+            return clone;
+        }
+        throw new IllegalStateException("Cannot clone instruction: " + instr);
+    }
+
+    /**
+     * 把克隆指令中出现在映射表里的操作数替换为对应的新值
+     */
+    static void remapOperands(List<IRInstruction> clones, Map<IRValue, IRValue> valueMap) {
+        for (IRInstruction clone : clones) {
+            for (int i = 0; i < clone.getOperandCount(); i++) {
+                IRValue mapped = valueMap.get(clone.getOperand(i));
+                if (mapped != null) {
+                    clone.replaceOperand(i, mapped);
+                }
+            }
+        }
+    }
+}
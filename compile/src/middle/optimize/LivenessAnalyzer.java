@@ -0,0 +1,122 @@
+package middle.optimize;
+
+import middle.llvm.value.IRBasicBlock;
+import middle.llvm.value.IRFunction;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.instruction.AllocaInstruction;
+import middle.llvm.value.instruction.CopyInstruction;
+import middle.llvm.value.instruction.IRInstruction;
+import middle.llvm.value.instruction.PhiInstruction;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 活跃变量分析，供寄存器分配器使用
+ * 结果写入各基本块的 Def/Use 与 LiveIn/LiveOut 集合；
+ * Phi 的来边值视为在对应前驱块末尾被使用（计入前驱的 LiveOut），Phi 本身是所在块的定义。
+ */
+class LivenessAnalyzer {
+    void analyze(IRFunction function) {
+        // 1. 初始化 Def/Use 集合
+        for (IRBasicBlock bb : function.getBasicBlocks()) {
+            makeDefUse(bb);
+            bb.setLiveIn(new HashSet<>());
+            bb.setLiveOut(new HashSet<>());
+        }
+
+        // 2. 迭代计算 LiveIn / LiveOut
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            // 后序遍历基本块
+            List<IRBasicBlock> bbs = function.getBasicBlocks();
+            for (int i = bbs.size() - 1; i >= 0; i--) {
+                IRBasicBlock bb = bbs.get(i);
+
+                // OUT[B] = U (IN[S])
+                Set<IRValue> newOut = new HashSet<>();
+                for (IRBasicBlock succ : bb.getSuccessors()) {
+                    newOut.addAll(succ.getLiveIn());
+
+                    // 处理后继块中的 Phi 指令
+                    for (IRInstruction instr : succ.getAllInstructions()) {
+                        if (instr instanceof PhiInstruction) {
+                            PhiInstruction phi = (PhiInstruction) instr;
+                            // 使用 PhiInstruction 的 map 接口获取当前块 bb 对应的输入值
+                            IRValue val = phi.getIncomingValue(bb);
+                            if (val != null && isVariable(val)) {
+                                newOut.add(val);
+                            }
+                        } else {
+                            // Phi 指令必定在块开头，遇到非 Phi 即可停止
+                            break;
+                        }
+                    }
+                }
+
+                // IN[B] = USE[B] U (OUT[B] - DEF[B])
+                Set<IRValue> newIn = new HashSet<>(newOut);
+                newIn.removeAll(bb.getDefSet());
+                newIn.addAll(bb.getUseSet());
+
+                if (!newOut.equals(bb.getLiveOut()) || !newIn.equals(bb.getLiveIn())) {
+                    bb.setLiveOut(newOut);
+                    bb.setLiveIn(newIn);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private void makeDefUse(IRBasicBlock bb) {
+        bb.getDefSet().clear();
+        bb.getUseSet().clear();
+
+        for (IRInstruction instr : bb.getAllInstructions()) {
+            // 如果是 Phi 指令，跳过 Use 计算（已在 analyze 中作为 LiveOut 处理）
+            if (instr instanceof PhiInstruction) {
+                IRValue def = getDefValue(instr);
+                if (def != null) bb.addToDef(def);
+                continue;
+            }
+
+            // 普通指令处理
+            for (IRValue op : instr.getAllOperands()) {
+                if (isVariable(op) && !bb.getDefSet().contains(op)) {
+                    bb.addToUse(op);
+                }
+            }
+
+            IRValue def = getDefValue(instr);
+            if (def != null) {
+                bb.addToDef(def);
+            }
+        }
+    }
+
+    // ================= 辅助方法 =================
+    static IRValue getDefValue(IRInstruction instr) {
+        if (instr instanceof CopyInstruction) {
+            return ((CopyInstruction) instr).getTargetValue();
+        }
+        if (hasReturnValue(instr)) {
+            return instr;
+        }
+        return null;
+    }
+
+    static boolean isVariable(IRValue v) {
+        return (v instanceof IRInstruction || v instanceof middle.llvm.value.IRFunctionParameter)
+                && !(v instanceof middle.llvm.value.IRGlobalVariable)
+                && !(v instanceof middle.llvm.value.constant.IRConstant)
+                && !(v instanceof IRBasicBlock);
+    }
+
+    private static boolean hasReturnValue(IRInstruction instr) {
+        // Alloca 不分配寄存器 (地址在栈上)
+        // Store, Branch, Jump, Return 等无返回值
+        return instr.getName() != null && !(instr instanceof AllocaInstruction);
+    }
+}
@@ -187,6 +187,8 @@ public class LoopInvariantCodeMotion extends Optimizer {
             } else if (terminator instanceof JumpInstruction) {
                 JumpInstruction jmp = (JumpInstruction) terminator;
                 if (jmp.getTargetBlock() == loop.header) jmp.setTargetBlock(preHeader);
+            } else if (terminator instanceof SwitchInstruction) {
+                ((SwitchInstruction) terminator).replaceTargetBlock(loop.header, preHeader);
             }
             
             // 维护前驱后继关系
@@ -0,0 +1,463 @@
+package middle.optimize;
+
+import middle.llvm.IRInstructionFactory;
+import middle.llvm.value.IRBasicBlock;
+import middle.llvm.value.IRFunction;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.constant.IntegerConstant;
+import middle.llvm.value.instruction.*;
+import utils.Config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * 循环展开
+ *
+ * 适用的循环（SSA 形式、最内层）：
+ * - 头部有唯一的循环外前驱（pre-header）和唯一的回边块（latch，以 `br label %header` 结尾）；
+ * - 头部以 `br i1 %cmp` 结尾，一侧留在循环内、另一侧是唯一出口，循环体内没有其他出边；
+ * - 比较的一侧是头部 Phi i，另一侧是常量；i 的初值为常量，回边值为 `i + c` 或 `i - c`。
+ * 满足条件时在编译期模拟出迭代次数 N。
+ *
+ * 策略：
+ * - N 不超过 FULL_UNROLL_MAX_TRIP 且展开后规模不超过 FULL_UNROLL_MAX_SIZE：完全展开，
+ *   N 份循环体首尾相连，头部的比较与跳转只保留最后一次（必然退出）；
+ * - 否则按 Config.loopUnrollFactor = F 部分展开：先把 N % F 次迭代剥离在循环前作为余数部分，
+ *   剩下的循环每轮依次执行 F 份循环体，只在第一份前判断一次退出条件。
+ * 展开的副本中头部 Phi 直接替换为上一份的回边值，后续 LVN 可以把 i 相关的计算折叠成常量。
+ *
+ * 示例（N = 2 完全展开）：
+ * ```llvm
+ * b1:  %i = phi i32 [ 0, %b0 ], [ %n, %b2 ]
+ *      %c = icmp slt i32 %i, 2
+ *      br i1 %c, label %b2, label %b3
+ * b2:  call void @putint(i32 %i)
+ *      %n = add i32 %i, 1
+ *      br label %b1
+ * ```
+ * 处理后：
+ * ```llvm
+ * b4:  br label %b5
+ * b5:  call void @putint(i32 0)
+ *      %n1 = add i32 0, 1
+ *      br label %b6
+ * b6:  br label %b7
+ * b7:  call void @putint(i32 %n1)
+ *      %n2 = add i32 %n1, 1
+ *      br label %b1
+ * b1:  %i = phi i32 [ %n2, %b7 ]
+ *      br label %b3
+ * ```
+ */
+public class LoopUnrolling extends Optimizer {
+    // 完全展开允许的最大迭代次数
+    private static final int FULL_UNROLL_MAX_TRIP = 16;
+    // 完全展开后循环体指令总数上限
+    private static final int FULL_UNROLL_MAX_SIZE = 320;
+    // 部分展开后一轮循环的指令数上限
+    private static final int PARTIAL_UNROLL_MAX_SIZE = 200;
+    // 模拟求迭代次数的步数上限
+    private static final int TRIP_COUNT_LIMIT = 1 << 20;
+
+    private final InstructionCloner cloner;
+    private final IRInstructionFactory factory;
+
+    // 完全展开 / 部分展开的循环个数
+    private int fullyUnrolledCount = 0;
+    private int partiallyUnrolledCount = 0;
+
+    public LoopUnrolling(IRInstructionFactory factory) {
+        this.factory = factory;
+        this.cloner = new InstructionCloner(factory);
+    }
+
+    @Override
+    public void optimize() {
+        for (IRFunction function : irModule.getFunctionDefinitions()) {
+            // 只处理最内层循环，彼此不相交，可以基于同一份 CFG 依次改写
+            for (Loop loop : findInnermostLoops(function)) {
+                if (analyzeLoop(function, loop)) {
+                    unroll(function, loop);
+                }
+            }
+        }
+    }
+
+    // ==================== 循环识别 ====================
+
+    private static class Loop {
+        IRBasicBlock header;
+        IRBasicBlock preHeader;
+        IRBasicBlock latch;
+        IRBasicBlock exit;
+        // 头部条件成立时进入的循环内块
+        IRBasicBlock bodyEntry;
+        BranchInstruction headerBranch;
+        // 按函数中的顺序排列的循环块
+        List<IRBasicBlock> blocks = new ArrayList<>();
+        Set<IRBasicBlock> blockSet = new HashSet<>();
+        List<IRBasicBlock> backEdges = new ArrayList<>();
+        List<PhiInstruction> phis = new ArrayList<>();
+        int tripCount;
+        int size;
+
+        Loop(IRBasicBlock header) {
+            this.header = header;
+            this.blockSet.add(header);
+        }
+    }
+
+    /**
+     * 一次克隆出的若干份迭代
+     */
+    private static class Chain {
+        IRBasicBlock first;
+        IRBasicBlock lastLatch;
+        // 最后一份迭代结束时各头部 Phi 的回边值
+        List<IRValue> values;
+        List<IRBasicBlock> blocks = new ArrayList<>();
+    }
+
+    private List<Loop> findInnermostLoops(IRFunction function) {
+        Map<IRBasicBlock, Loop> headerToLoop = new HashMap<>();
+        for (IRBasicBlock block : function.getBasicBlocks()) {
+            for (IRBasicBlock succ : block.getSuccessors()) {
+                // 后继支配当前块：回边
+                if (block.getDominatedBy().contains(succ)) {
+                    Loop loop = headerToLoop.computeIfAbsent(succ, Loop::new);
+                    loop.backEdges.add(block);
+                    fillLoopBody(loop, block);
+                }
+            }
+        }
+        List<Loop> loops = new ArrayList<>();
+        for (Loop loop : headerToLoop.values()) {
+            boolean innermost = true;
+            for (IRBasicBlock header : headerToLoop.keySet()) {
+                if (header != loop.header && loop.blockSet.contains(header)) {
+                    innermost = false;
+                    break;
+                }
+            }
+            if (innermost) {
+                for (IRBasicBlock block : function.getBasicBlocks()) {
+                    if (loop.blockSet.contains(block)) {
+                        loop.blocks.add(block);
+                    }
+                }
+                loops.add(loop);
+            }
+        }
+        return loops;
+    }
+
+    private void fillLoopBody(Loop loop, IRBasicBlock backEdgeNode) {
+        if (!loop.blockSet.add(backEdgeNode)) return;
+        Queue<IRBasicBlock> workList = new LinkedList<>();
+        workList.add(backEdgeNode);
+        while (!workList.isEmpty()) {
+            for (IRBasicBlock pred : workList.poll().getPredecessors()) {
+                if (loop.blockSet.add(pred)) {
+                    workList.add(pred);
+                }
+            }
+        }
+    }
+
+    // ==================== 形状与迭代次数 ====================
+
+    /**
+     * 检查循环形状、识别归纳变量并求出迭代次数，决定是否值得展开
+     */
+    private boolean analyzeLoop(IRFunction function, Loop loop) {
+        if (loop.backEdges.size() != 1 || loop.header.getPredecessors().size() != 2) {
+            return false;
+        }
+        loop.latch = loop.backEdges.get(0);
+        if (!(loop.latch.getLastInstruction() instanceof JumpInstruction)) {
+            return false;
+        }
+        for (IRBasicBlock pred : loop.header.getPredecessors()) {
+            if (pred != loop.latch) {
+                loop.preHeader = pred;
+            }
+        }
+        if (loop.preHeader == null || !(loop.header.getLastInstruction() instanceof BranchInstruction br)) {
+            return false;
+        }
+        loop.headerBranch = br;
+        IRBasicBlock trueBlock = (IRBasicBlock) br.getTrueBranch();
+        IRBasicBlock falseBlock = (IRBasicBlock) br.getFalseBranch();
+        boolean stayOnTrue = loop.blockSet.contains(trueBlock);
+        if (stayOnTrue == loop.blockSet.contains(falseBlock)) {
+            return false;
+        }
+        loop.bodyEntry = stayOnTrue ? trueBlock : falseBlock;
+        loop.exit = stayOnTrue ? falseBlock : trueBlock;
+
+        // 除头部外不允许有其他出边
+        loop.size = 0;
+        for (IRBasicBlock block : loop.blocks) {
+            loop.size += block.getAllInstructions().size();
+            if (block == loop.header) {
+                continue;
+            }
+            for (IRBasicBlock succ : block.getSuccessors()) {
+                if (!loop.blockSet.contains(succ)) {
+                    return false;
+                }
+            }
+        }
+        loop.phis.addAll(loop.header.getPhiInstructions());
+
+        // 归纳变量：icmp i, C（或 C, i），i = phi [init, preHeader], [i +/- step, latch]
+        if (!(br.getCondition() instanceof CompareInstruction cmp)) {
+            return false;
+        }
+        boolean phiOnLeft = cmp.getLeftOperand() instanceof PhiInstruction;
+        IRValue phiValue = phiOnLeft ? cmp.getLeftOperand() : cmp.getRightOperand();
+        IRValue boundValue = phiOnLeft ? cmp.getRightOperand() : cmp.getLeftOperand();
+        if (!(phiValue instanceof PhiInstruction phi) || !loop.phis.contains(phi)
+                || !(boundValue instanceof IntegerConstant bound)) {
+            return false;
+        }
+        if (!(phi.getIncomingValue(loop.preHeader) instanceof IntegerConstant init)
+                || !(phi.getIncomingValue(loop.latch) instanceof BinaryOperationInstruction next)) {
+            return false;
+        }
+        int step;
+        if (next.getOperator() == BinaryOperationInstruction.BinaryOperator.ADD
+                && next.getLeftOperand() == phi && next.getRightOperand() instanceof IntegerConstant c) {
+            step = c.getConstantValue();
+        } else if (next.getOperator() == BinaryOperationInstruction.BinaryOperator.ADD
+                && next.getRightOperand() == phi && next.getLeftOperand() instanceof IntegerConstant c) {
+            step = c.getConstantValue();
+        } else if (next.getOperator() == BinaryOperationInstruction.BinaryOperator.SUB
+                && next.getLeftOperand() == phi && next.getRightOperand() instanceof IntegerConstant c) {
+            step = -c.getConstantValue();
+        } else {
+            return false;
+        }
+
+        // 模拟迭代求 N
+        long value = init.getConstantValue();
+        int trip = 0;
+        while (evaluate(cmp.getCondition(), phiOnLeft, value, bound.getConstantValue()) == stayOnTrue) {
+            trip++;
+            value = (int) (value + step);
+            if (trip > TRIP_COUNT_LIMIT) {
+                return false;
+            }
+        }
+        loop.tripCount = trip;
+        return trip > 0 && (isFullUnroll(loop) || isPartialUnroll(loop));
+    }
+
+    private boolean evaluate(CompareInstruction.CompareCondition condition, boolean phiOnLeft, long phi, int bound) {
+        long l = phiOnLeft ? phi : bound;
+        long r = phiOnLeft ? bound : phi;
+        return switch (condition) {
+            case EQ -> l == r;
+            case NE -> l != r;
+            case SGT -> l > r;
+            case SGE -> l >= r;
+            case SLT -> l < r;
+            case SLE -> l <= r;
+        };
+    }
+
+    private boolean isFullUnroll(Loop loop) {
+        return loop.tripCount <= FULL_UNROLL_MAX_TRIP && loop.tripCount * loop.size <= FULL_UNROLL_MAX_SIZE;
+    }
+
+    private boolean isPartialUnroll(Loop loop) {
+        int factor = Config.loopUnrollFactor;
+        return factor >= 2 && loop.tripCount >= 2 * factor && loop.size * factor <= PARTIAL_UNROLL_MAX_SIZE;
+    }
+
+    // ==================== 改写 ====================
+
+    private void unroll(IRFunction function, Loop loop) {
+        List<IRValue> initValues = new ArrayList<>();
+        for (PhiInstruction phi : loop.phis) {
+            initValues.add(phi.getIncomingValue(loop.preHeader));
+        }
+        LinkedList<IRBasicBlock> functionBlocks = function.getBasicBlocks();
+
+        if (isFullUnroll(loop)) {
+            // N 份迭代接在 pre-header 之后，最后回到头部做一次必然失败的判断
+            Chain chain = cloneIterations(function, loop, loop.tripCount, initValues, loop.header);
+            functionBlocks.addAll(functionBlocks.indexOf(loop.header), chain.blocks);
+            retarget(loop.preHeader, loop.header, chain.first);
+            for (int k = 0; k < loop.phis.size(); k++) {
+                PhiInstruction phi = loop.phis.get(k);
+                phi.removeIncomingBlock(loop.preHeader);
+                phi.replaceIncomingBlock(loop.latch, chain.lastLatch);
+                phi.fillIncomingValue(chain.values.get(k), chain.lastLatch);
+            }
+            replaceTerminator(loop.header, new JumpInstruction(loop.header, loop.exit));
+            for (IRBasicBlock block : loop.blocks) {
+                if (block != loop.header) {
+                    for (IRInstruction instr : block.getAllInstructions()) {
+                        instr.clearAllOperands();
+                    }
+                    functionBlocks.remove(block);
+                }
+            }
+            fullyUnrolledCount++;
+            return;
+        }
+
+        int factor = Config.loopUnrollFactor;
+        int remainder = loop.tripCount % factor;
+        // 回边值取自原循环体，作为循环内第二份副本的头部 Phi 取值
+        List<IRValue> nextValues = new ArrayList<>();
+        for (PhiInstruction phi : loop.phis) {
+            nextValues.add(phi.getIncomingValue(loop.latch));
+        }
+
+        // 余数部分：N % F 份迭代剥离到循环之前
+        if (remainder > 0) {
+            Chain prologue = cloneIterations(function, loop, remainder, initValues, loop.header);
+            functionBlocks.addAll(functionBlocks.indexOf(loop.header), prologue.blocks);
+            retarget(loop.preHeader, loop.header, prologue.first);
+            for (int k = 0; k < loop.phis.size(); k++) {
+                PhiInstruction phi = loop.phis.get(k);
+                phi.replaceIncomingBlock(loop.preHeader, prologue.lastLatch);
+                phi.fillIncomingValue(prologue.values.get(k), prologue.lastLatch);
+            }
+        }
+
+        // 主循环：原循环体之后再接 F-1 份迭代，之后才回到头部判断
+        Chain body = cloneIterations(function, loop, factor - 1, nextValues, loop.header);
+        IRBasicBlock lastLoopBlock = loop.blocks.get(loop.blocks.size() - 1);
+        functionBlocks.addAll(functionBlocks.indexOf(lastLoopBlock) + 1, body.blocks);
+        retarget(loop.latch, loop.header, body.first);
+        for (int k = 0; k < loop.phis.size(); k++) {
+            PhiInstruction phi = loop.phis.get(k);
+            phi.replaceIncomingBlock(loop.latch, body.lastLatch);
+            phi.fillIncomingValue(body.values.get(k), body.lastLatch);
+        }
+        partiallyUnrolledCount++;
+    }
+
+    /**
+     * 克隆 count 份迭代并首尾相连
+     *
+     * @param phiValues 第一份迭代中各头部 Phi 的取值
+     * @param continueTo 最后一份迭代的回边跳转目标
+     */
+    private Chain cloneIterations(IRFunction function, Loop loop, int count, List<IRValue> phiValues,
+                                  IRBasicBlock continueTo) {
+        Chain chain = new Chain();
+        List<IRValue> values = phiValues;
+        IRBasicBlock prevLatch = null;
+        for (int j = 0; j < count; j++) {
+            Map<IRValue, IRValue> valueMap = new HashMap<>();
+            for (int k = 0; k < loop.phis.size(); k++) {
+                valueMap.put(loop.phis.get(k), values.get(k));
+            }
+            for (IRBasicBlock block : loop.blocks) {
+                IRBasicBlock copy = new IRBasicBlock(function, factory.getNextNameCounter());
+                valueMap.put(block, copy);
+                chain.blocks.add(copy);
+            }
+
+            List<IRInstruction> clones = new ArrayList<>();
+            Map<PhiInstruction, PhiInstruction> phiMap = new HashMap<>();
+            for (IRBasicBlock block : loop.blocks) {
+                IRBasicBlock copy = (IRBasicBlock) valueMap.get(block);
+                for (IRInstruction instr : block.getAllInstructions()) {
+                    IRInstruction clone;
+                    if (block == loop.header && instr instanceof PhiInstruction) {
+                        continue;
+                    } else if (instr == loop.headerBranch) {
+                        // 副本中的头部条件必然成立，直接进入循环体
+                        clone = new JumpInstruction(copy, loop.bodyEntry);
+                        clones.add(clone);
+                    } else if (instr instanceof PhiInstruction phi) {
+                        List<IRBasicBlock> preds = new ArrayList<>();
+                        for (IRBasicBlock pred : phi.getPredecessorBlocks()) {
+                            preds.add((IRBasicBlock) valueMap.get(pred));
+                        }
+                        PhiInstruction clonedPhi = new PhiInstruction(copy, phi.getType(), preds);
+                        phiMap.put(phi, clonedPhi);
+                        clone = clonedPhi;
+                    } else {
+                        clone = cloner.cloneInstruction(instr, copy);
+                        clones.add(clone);
+                    }
+                    valueMap.put(instr, clone);
+                    copy.addInstructionToTail(clone);
+                }
+            }
+            InstructionCloner.remapOperands(clones, valueMap);
+            for (Map.Entry<PhiInstruction, PhiInstruction> entry : phiMap.entrySet()) {
+                PhiInstruction phi = entry.getKey();
+                for (IRBasicBlock pred : phi.getPredecessorBlocks()) {
+                    entry.getValue().fillIncomingValue(InstructionCloner.mapValue(valueMap, phi.getIncomingValue(pred)),
+                            (IRBasicBlock) valueMap.get(pred));
+                }
+            }
+
+            IRBasicBlock headerCopy = (IRBasicBlock) valueMap.get(loop.header);
+            if (prevLatch == null) {
+                chain.first = headerCopy;
+            } else {
+                ((JumpInstruction) prevLatch.getLastInstruction()).setTargetBlock(headerCopy);
+            }
+            prevLatch = (IRBasicBlock) valueMap.get(loop.latch);
+
+            List<IRValue> nextValues = new ArrayList<>();
+            for (PhiInstruction phi : loop.phis) {
+                nextValues.add(InstructionCloner.mapValue(valueMap, phi.getIncomingValue(loop.latch)));
+            }
+            values = nextValues;
+        }
+        ((JumpInstruction) prevLatch.getLastInstruction()).setTargetBlock(continueTo);
+        chain.lastLatch = prevLatch;
+        chain.values = values;
+        return chain;
+    }
+
+    /**
+     * 把 block 终结指令中指向 oldTarget 的目标改为 newTarget
+     */
+    private void retarget(IRBasicBlock block, IRBasicBlock oldTarget, IRBasicBlock newTarget) {
+        IRInstruction terminator = block.getLastInstruction();
+        if (terminator instanceof BranchInstruction br) {
+            if (br.getTrueBranch() == oldTarget) br.setTrueBranch(newTarget);
+            if (br.getFalseBranch() == oldTarget) br.setFalseBranch(newTarget);
+        } else if (terminator instanceof JumpInstruction jump) {
+            if (jump.getTargetBlock() == oldTarget) jump.setTargetBlock(newTarget);
+        } else if (terminator instanceof SwitchInstruction sw) {
+            sw.replaceTargetBlock(oldTarget, newTarget);
+        }
+    }
+
+    private void replaceTerminator(IRBasicBlock block, IRInstruction terminator) {
+        LinkedList<IRInstruction> instructions = block.getAllInstructions();
+        instructions.removeLast().clearAllOperands();
+        instructions.addLast(terminator);
+    }
+
+    public int getFullyUnrolledCount() {
+        return fullyUnrolledCount;
+    }
+
+    public int getPartiallyUnrolledCount() {
+        return partiallyUnrolledCount;
+    }
+
+    @Override
+    public String OptimizerName() {
+        return "LoopUnrolling";
+    }
+}
@@ -0,0 +1,179 @@
+package middle.optimize;
+
+import middle.llvm.type.IntegerType;
+import middle.llvm.value.IRBasicBlock;
+import middle.llvm.value.IRFunction;
+import middle.llvm.value.IRStringLiteral;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.constant.IntegerConstant;
+import middle.llvm.value.instruction.CallInstruction;
+import middle.llvm.value.instruction.GetElementPtrInstruction;
+import middle.llvm.value.instruction.IRInstruction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * 输出合并（printf 常量段合并）
+ *
+ * 职责：
+ * - printf 被拆成逐段的 putstr / putint / putch 调用，每段在后端都是一次 syscall；
+ * - 在同一基本块内，把相邻的"常量输出"合并成一次 putstr：
+ *   putstr 常量字符串、参数为常量的 putint（折叠成十进制文本）、参数为可打印常量字符的 putch；
+ * - 两次输出之间只允许夹着非 call 指令（算术、GEP、load/store 等不产生输出），
+ *   任何其他 call 或参数非常量的输出都会截断当前这一组。
+ *
+ * 与其他 Pass 的关系：
+ * - 放在 LVN 常量折叠之后，此时 printf 的实参已尽量化为常量；
+ * - 被合并掉的 putstr 留下的 GEP 若无其他使用者则就地删除，随后清理模块中不再被引用的字符串。
+ *
+ * 示例：
+ * ```llvm
+ * call void @putstr(i8* %gep1)    ; "a = "
+ * call void @putint(i32 3)
+ * call void @putch(i8 10)
+ * ```
+ * 处理后：
+ * ```llvm
+ * %print0 = getelementptr inbounds [6 x i8], [6 x i8]* @str.2, i32 0, i32 0
+ * call void @putstr(i8* %print0)  ; "a = 3\n"
+ * ```
+ */
+public class MergePrint extends Optimizer {
+    // 新建 GEP 的命名计数
+    private int printCounter = 0;
+    // 合并掉的输出调用个数
+    private int mergedCount = 0;
+
+    @Override
+    public void optimize() {
+        for (IRFunction irFunction : irModule.getFunctionDefinitions()) {
+            for (IRBasicBlock irBasicBlock : irFunction.getBasicBlocks()) {
+                mergeBlock(irBasicBlock);
+            }
+        }
+        if (mergedCount > 0) {
+            // 被合并的原字符串可能已无人使用，重新整理字符串池
+            irModule.removeUnusedStringLiterals();
+        }
+    }
+
+    /**
+     * 扫描基本块，逐组合并相邻的常量输出
+     */
+    private void mergeBlock(IRBasicBlock block) {
+        List<CallInstruction> group = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (IRInstruction instr : new ArrayList<>(block.getAllInstructions())) {
+            if (!(instr instanceof CallInstruction)) {
+                continue;
+            }
+            String piece = getConstantOutput((CallInstruction) instr);
+            if (piece == null) {
+                flush(block, group, text);
+                continue;
+            }
+            group.add((CallInstruction) instr);
+            text.append(piece);
+        }
+        flush(block, group, text);
+    }
+
+    /**
+     * 将一组输出替换为一次 putstr，放在组内第一条调用的位置
+     */
+    private void flush(IRBasicBlock block, List<CallInstruction> group, StringBuilder text) {
+        // 转义处理会把 "\\" + "n" 当成换行，拼接结果含反斜杠时不合并
+        if (group.size() >= 2 && text.indexOf("\\") < 0) {
+            IRStringLiteral literal = irModule.registerStringLiteral(text.toString());
+            List<IRValue> indices = new ArrayList<>();
+            indices.add(new IntegerConstant(IntegerType.I32, 0));
+            indices.add(new IntegerConstant(IntegerType.I32, 0));
+            GetElementPtrInstruction gep = new GetElementPtrInstruction(block, 0, literal, indices);
+            gep.setName("%print" + printCounter++);
+            List<IRValue> args = new ArrayList<>();
+            args.add(gep);
+            CallInstruction putstr = new CallInstruction(block, IRFunction.PUTSTR, args);
+
+            List<IRValue> oldArgs = new ArrayList<>();
+            ListIterator<IRInstruction> iterator = block.getAllInstructions().listIterator();
+            while (iterator.hasNext()) {
+                IRInstruction instr = iterator.next();
+                if (instr == group.get(0)) {
+                    iterator.set(gep);
+                    iterator.add(putstr);
+                } else if (group.contains(instr)) {
+                    iterator.remove();
+                } else {
+                    continue;
+                }
+                oldArgs.add(instr.getOperand(1));
+                instr.clearAllOperands();
+            }
+            // 原 putstr 的 GEP 不再被使用时一并删除，使字符串的使用关系保持准确
+            for (IRValue arg : oldArgs) {
+                if (arg instanceof GetElementPtrInstruction && arg.getUseList().isEmpty()) {
+                    block.getAllInstructions().remove(arg);
+                    ((GetElementPtrInstruction) arg).clearAllOperands();
+                }
+            }
+            mergedCount += group.size() - 1;
+        }
+        group.clear();
+        text.setLength(0);
+    }
+
+    /**
+     * 若调用是一次可在编译期确定内容的输出，返回输出的文本，否则返回null
+     */
+    private String getConstantOutput(CallInstruction call) {
+        IRValue callee = call.getCalledFunction();
+        if (call.getOperandCount() != 2) {
+            return null;
+        }
+        IRValue arg = call.getOperand(1);
+        if (callee == IRFunction.PUTSTR) {
+            IRStringLiteral literal = getLiteral(arg);
+            return literal == null ? null : literal.getProcessedLiteral();
+        } else if (callee == IRFunction.PUTINT && arg instanceof IntegerConstant) {
+            return String.valueOf(((IntegerConstant) arg).getConstantValue());
+        } else if (callee == IRFunction.PUTCH && arg instanceof IntegerConstant) {
+            int c = ((IntegerConstant) arg).getConstantValue() & 0xff;
+            if (c == '\n' || (c >= 32 && c <= 126 && c != '"' && c != '\\')) {
+                return String.valueOf((char) c);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * putstr 的实参是字符串字面量首地址（[0, 0] 的 GEP）时返回该字面量
+     */
+    private IRStringLiteral getLiteral(IRValue arg) {
+        if (arg instanceof IRStringLiteral) {
+            return (IRStringLiteral) arg;
+        }
+        if (arg instanceof GetElementPtrInstruction) {
+            GetElementPtrInstruction gep = (GetElementPtrInstruction) arg;
+            if (gep.getBasePointer() instanceof IRStringLiteral && gep.getIndexCount() == 2
+                    && isZero(gep.getIndex(0)) && isZero(gep.getIndex(1))) {
+                return (IRStringLiteral) gep.getBasePointer();
+            }
+        }
+        return null;
+    }
+
+    private boolean isZero(IRValue value) {
+        return value instanceof IntegerConstant && ((IntegerConstant) value).getConstantValue() == 0;
+    }
+
+    public int getMergedCount() {
+        return mergedCount;
+    }
+
+    @Override
+    public String OptimizerName() {
+        return "MergePrint";
+    }
+}
@@ -19,8 +19,9 @@ import java.util.ArrayList;
  *  2) MemToReg：将非数组的 alloca 转换为 SSA：插入 Phi，移除 load/store
  *  3) RemoveUnReachCode：根据 CFG 清理不可达块与边
  *  4) RemoveDeadCode：删除非关键且无用户的指令；将只有一个来边值的 Phi 退化
- *  5) LocalValueNumbering：同等表达式消除，常量折叠
- *  6) BuildCFG：重建 CFG 以反映最新结构
+ *  5) SparseConditionalConstantPropagation：跨 Phi 与分支的常量传播，剪除不可执行的块
+ *  6) LocalValueNumbering：同等表达式消除，常量折叠
+ *  7) BuildCFG：重建 CFG 以反映最新结构
  *
  * 优化前后 IR 示例（片段）：
  *  输入（未优化，含内存操作）：
@@ -75,6 +76,12 @@ public class OptimizeManager {
         optimizers.add(new RemoveDeadBlock());
         optimizers.add(new BuildCFG());
 
+        // 1.6 函数内联：在 SSA 化之前展开小函数，内联后的代码随调用者一起优化
+        optimizers.add(new FunctionInlining(visitor));
+        optimizers.add(new BuildCFG());
+        optimizers.add(new RemoveDeadBlock());
+        optimizers.add(new BuildCFG());
+
         // 2. 早期内存到寄存器优化（插入 Phi，重命名，移除 load/store）
         optimizers.add(new MemToReg());
         optimizers.add(new BuildCFG());
@@ -89,6 +96,16 @@ public class OptimizeManager {
         optimizers.add(new RemoveDeadCode());
         optimizers.add(new BuildCFG());
 
+        // 3.4 尾递归消除：自调用 + ret 改为回到循环头，形参变为 Phi
+        optimizers.add(new TailRecursionElimination(visitor));
+        optimizers.add(new BuildCFG());
+
+        // 3.5 稀疏条件常量传播：沿可执行边传播常量，折叠常量条件跳转并删除死块
+        optimizers.add(new SparseConditionalConstantPropagation());
+        optimizers.add(new BuildCFG());
+        optimizers.add(new RemoveDeadCode());
+        optimizers.add(new BuildCFG());
+
         // 4. 循环不变式外提 (LICM) + LSR
         optimizers.add(new LoopInvariantCodeMotion());
         optimizers.add(new BuildCFG());
@@ -96,6 +113,12 @@ public class OptimizeManager {
         optimizers.add(new RemoveDeadCode());
         optimizers.add(new BuildCFG());
 
+        // 4.5 循环展开：常量迭代次数的小循环完全展开，其余按 Config.loopUnrollFactor 部分展开
+        optimizers.add(new LoopUnrolling(visitor));
+        optimizers.add(new BuildCFG());
+        optimizers.add(new RemoveDeadCode());
+        optimizers.add(new BuildCFG());
+
         // 5. 多轮局部值编号和死代码消除优化
         for (int i = 0; i < 10; i++) {
             optimizers.add(new LocalValueNumbering());
@@ -104,6 +127,11 @@ public class OptimizeManager {
             optimizers.add(new RemoveDeadCode());
             optimizers.add(new BuildCFG());
         }
+        // 6. 合并相邻的常量输出（printf 常量段、常量 %d / %c）
+        optimizers.add(new MergePrint());
+        optimizers.add(new RemoveDeadCode());
+        optimizers.add(new BuildCFG());
+
         optimizers.add(new RegAllocaOptimizer());
         optimizers.add(new BuildCFG());
 
@@ -1,15 +1,14 @@
 package middle.optimize;
 
+import back.mips.Rematerialization;
 import back.mips.register.Reg;
+import back.mips.register.RegisterFile;
 import middle.llvm.IRModule;
 import middle.llvm.value.IRBasicBlock;
 import middle.llvm.value.IRFunction;
 import middle.llvm.value.IRValue;
 import middle.llvm.value.instruction.CallInstruction;
-import middle.llvm.value.instruction.CopyInstruction;
 import middle.llvm.value.instruction.IRInstruction;
-import middle.llvm.value.instruction.PhiInstruction;
-import middle.llvm.value.instruction.AllocaInstruction;
 
 import java.util.*;
 
@@ -24,11 +23,11 @@ public class RegAlloca {
     // 最终分配结果
     private HashMap<IRValue, Reg> globalValueRegMap;
 
-    // 可用寄存器池 (严格限制)
-    private static final List<Reg> ALLOCATABLE_REGS = Arrays.asList(
-            Reg.t3, Reg.t4, Reg.t5, Reg.t6, Reg.t7, Reg.t8, Reg.t9,
-            Reg.s3, Reg.s4, Reg.s5, Reg.s6, Reg.s7
-    );
+    // 可用寄存器池由 RegisterFile 描述
+    private static final List<Reg> ALLOCATABLE_REGS = RegisterFile.ALLOCATABLE;
+
+    // 当前函数中 call 指令的编号，用于判断区间跨越多少个 call
+    private List<Integer> callPoints;
 
     // 活跃区间定义
     private static class LiveInterval implements Comparable<LiveInterval> {
@@ -79,8 +78,12 @@ public class RegAlloca {
         int instrCounter = 0;
 
         // 按照基本块顺序简单线性化 (对于线性扫描足够了)
+        callPoints = new ArrayList<>();
         for (IRBasicBlock bb : function.getBasicBlocks()) {
             for (IRInstruction instr : bb.getAllInstructions()) {
+                if (instr instanceof CallInstruction) {
+                    callPoints.add(instrCounter);
+                }
                 instrIdMap.put(instr, instrCounter);
                 linearInstructions.add(instr);
                 instrCounter += 2; // 步长为2，方便后续插入（如果有需要）
@@ -150,14 +153,14 @@ public class RegAlloca {
                 int id = instrIdMap.get(instr);
 
                 // Def: 定义变量，这是区间的起点
-                IRValue def = getDefValue(instr);
+                IRValue def = LivenessAnalyzer.getDefValue(instr);
                 if (def != null) {
                     updateRange(startMap, endMap, def, id, id);
                 }
 
                 // Use: 使用变量，这是区间的延伸
                 for (IRValue operand : instr.getAllOperands()) {
-                    if (isVariable(operand)) {
+                    if (LivenessAnalyzer.isVariable(operand)) {
                         updateRange(startMap, endMap, operand, -1, id);
                     }
                 }
@@ -176,7 +179,7 @@ public class RegAlloca {
     }
 
     private void updateRange(Map<IRValue, Integer> startMap, Map<IRValue, Integer> endMap, IRValue val, int start, int end) {
-        if (!isVariable(val)) return;
+        if (!LivenessAnalyzer.isVariable(val)) return;
 
         if (start != -1) {
             if (!startMap.containsKey(val) || start < startMap.get(val)) {
@@ -212,8 +215,9 @@ public class RegAlloca {
                 // 寄存器耗尽，溢出 (Spill)
                 spillAtInterval(current, active, freeRegs);
             } else {
-                // 分配寄存器
-                Reg reg = freeRegs.remove(0); // 拿第一个空闲的
+                // 分配寄存器：跨越多个 call 的优先取被调用者保存寄存器，
+                // 序言中一次保存比每个调用点都保存/恢复便宜
+                Reg reg = freeRegs.remove(pickFreeReg(freeRegs, countCrossedCalls(current) > 1));
                 current.assignedReg = reg;
                 active.add(current);
                 globalValueRegMap.put(current.value, reg);
@@ -224,6 +228,25 @@ public class RegAlloca {
         }
     }
 
+    private int pickFreeReg(List<Reg> freeRegs, boolean preferCalleeSaved) {
+        for (int i = 0; i < freeRegs.size(); i++) {
+            if (RegisterFile.isCalleeSaved(freeRegs.get(i)) == preferCalleeSaved) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private int countCrossedCalls(LiveInterval interval) {
+        int count = 0;
+        for (int callId : callPoints) {
+            if (interval.startPoint < callId && interval.endPoint > callId) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     private void expireOldIntervals(LiveInterval current, List<LiveInterval> active, List<Reg> freeRegs) {
         Iterator<LiveInterval> it = active.iterator();
         while (it.hasNext()) {
@@ -239,10 +262,25 @@ public class RegAlloca {
     }
 
     private void spillAtInterval(LiveInterval current, List<LiveInterval> active, List<Reg> freeRegs) {
+        // 可重算的值溢出后不占栈槽，使用处重算即可，优先溢出它们
+        if (Rematerialization.isRematerializable(current.value)) {
+            return;
+        }
+        LiveInterval rematCandidate = null;
+        for (int i = active.size() - 1; i >= 0; i--) {
+            if (Rematerialization.isRematerializable(active.get(i).value)) {
+                rematCandidate = active.get(i);
+                break;
+            }
+        }
+
         // 启发式：溢出那个结束得最晚的 (Spill the one that ends furthest in the future)
         LiveInterval spillCandidate = active.get(active.size() - 1); // active 是按 endPoint 排序的
 
-        if (spillCandidate.endPoint > current.endPoint) {
+        if (rematCandidate != null || spillCandidate.endPoint > current.endPoint) {
+            if (rematCandidate != null) {
+                spillCandidate = rematCandidate;
+            }
             // 当前区间比候选区间结束得早，说明当前区间更有价值保留在寄存器中
             // 抢占寄存器
             current.assignedReg = spillCandidate.assignedReg;
@@ -297,109 +335,4 @@ public class RegAlloca {
             }
         }
     }
-
-    // ================= 辅助方法 =================
-    private IRValue getDefValue(IRInstruction instr) {
-        if (instr instanceof CopyInstruction) {
-            return ((CopyInstruction) instr).getTargetValue();
-        }
-        if (hasReturnValue(instr)) {
-            return instr;
-        }
-        return null;
-    }
-
-    private boolean isVariable(IRValue v) {
-        return (v instanceof IRInstruction || v instanceof middle.llvm.value.IRFunctionParameter)
-                && !(v instanceof middle.llvm.value.IRGlobalVariable)
-                && !(v instanceof middle.llvm.value.constant.IRConstant)
-                && !(v instanceof IRBasicBlock);
-    }
-
-    private boolean hasReturnValue(IRInstruction instr) {
-        // Alloca 不分配寄存器 (地址在栈上)
-        // Store, Branch, Jump, Return 等无返回值
-        return instr.getName() != null && !(instr instanceof AllocaInstruction);
-    }
-
-    // ================= 活跃性分析器 =================
-    private class LivenessAnalyzer {
-        void analyze(IRFunction function) {
-            // 1. 初始化 Def/Use 集合
-            for (IRBasicBlock bb : function.getBasicBlocks()) {
-                makeDefUse(bb);
-                bb.setLiveIn(new HashSet<>());
-                bb.setLiveOut(new HashSet<>());
-            }
-
-            // 2. 迭代计算 LiveIn / LiveOut
-            boolean changed = true;
-            while (changed) {
-                changed = false;
-                // 后序遍历基本块
-                List<IRBasicBlock> bbs = function.getBasicBlocks();
-                for (int i = bbs.size() - 1; i >= 0; i--) {
-                    IRBasicBlock bb = bbs.get(i);
-
-                    // OUT[B] = U (IN[S])
-                    Set<IRValue> newOut = new HashSet<>();
-                    for (IRBasicBlock succ : bb.getSuccessors()) {
-                        newOut.addAll(succ.getLiveIn());
-
-                        // 处理后继块中的 Phi 指令
-                        for (IRInstruction instr : succ.getAllInstructions()) {
-                            if (instr instanceof PhiInstruction) {
-                                PhiInstruction phi = (PhiInstruction) instr;
-                                // 使用 PhiInstruction 的 map 接口获取当前块 bb 对应的输入值
-                                IRValue val = phi.getIncomingValue(bb);
-                                if (val != null && isVariable(val)) {
-                                    newOut.add(val);
-                                }
-                            } else {
-                                // Phi 指令必定在块开头，遇到非 Phi 即可停止
-                                break;
-                            }
-                        }
-                    }
-
-                    // IN[B] = USE[B] U (OUT[B] - DEF[B])
-                    Set<IRValue> newIn = new HashSet<>(newOut);
-                    newIn.removeAll(bb.getDefSet());
-                    newIn.addAll(bb.getUseSet());
-
-                    if (!newOut.equals(bb.getLiveOut()) || !newIn.equals(bb.getLiveIn())) {
-                        bb.setLiveOut(newOut);
-                        bb.setLiveIn(newIn);
-                        changed = true;
-                    }
-                }
-            }
-        }
-
-        private void makeDefUse(IRBasicBlock bb) {
-            bb.getDefSet().clear();
-            bb.getUseSet().clear();
-
-            for (IRInstruction instr : bb.getAllInstructions()) {
-                // 如果是 Phi 指令，跳过 Use 计算（已在 analyze 中作为 LiveOut 处理）
-                if (instr instanceof PhiInstruction) {
-                    IRValue def = getDefValue(instr);
-                    if (def != null) bb.addToDef(def);
-                    continue;
-                }
-
-                // 普通指令处理
-                for (IRValue op : instr.getAllOperands()) {
-                    if (isVariable(op) && !bb.getDefSet().contains(op)) {
-                        bb.addToUse(op);
-                    }
-                }
-
-                IRValue def = getDefValue(instr);
-                if (def != null) {
-                    bb.addToDef(def);
-                }
-            }
-        }
-    }
-}
\ No newline at end of file
+}
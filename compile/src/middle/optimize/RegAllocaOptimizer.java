@@ -1,9 +1,15 @@
 package middle.optimize;
 
+import utils.Config;
+
 public class RegAllocaOptimizer extends Optimizer {
     @Override
     public void optimize() {
-        RegAlloca.getInstance(irModule).alloca();
+        if (Config.graphColoringRegAllocFlag) {
+            GraphColoringRegAlloca.getInstance(irModule).alloca();
+        } else {
+            RegAlloca.getInstance(irModule).alloca();
+        }
     }
 
     @Override
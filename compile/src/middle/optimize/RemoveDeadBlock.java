@@ -6,6 +6,7 @@ import middle.llvm.value.IRValue;
 import middle.llvm.value.instruction.BranchInstruction;
 import middle.llvm.value.instruction.IRInstruction;
 import middle.llvm.value.instruction.JumpInstruction;
+import middle.llvm.value.instruction.SwitchInstruction;
 import middle.llvm.value.instruction.PhiInstruction;
 import middle.llvm.value.instruction.ReturnInstruction;
 
@@ -89,13 +90,12 @@ public class RemoveDeadBlock extends Optimizer {
         // 如果前驱是 Branch，我们需要更新 Branch 的 target，这需要 BranchInstruction 支持 setTrue/FalseBranch (已添加)
         // 所以其实可以放宽限制，只要能更新前驱的 terminator 即可。
         
-        // 现在的 BranchInstruction/JumpInstruction 都支持 setTarget，所以我们可以放宽限制。
-        // 只要前驱不是 switch (尚未实现) 或者其他复杂结构。
-        // 目前只有 Br 和 Jmp。
+        // 现在的 BranchInstruction/JumpInstruction/SwitchInstruction 都支持改写目标，所以我们可以放宽限制。
         
         for (IRBasicBlock pred : block.getPredecessors()) {
             IRInstruction predLast = pred.getLastInstruction();
-            if (!(predLast instanceof JumpInstruction) && !(predLast instanceof BranchInstruction)) {
+            if (!(predLast instanceof JumpInstruction) && !(predLast instanceof BranchInstruction)
+                    && !(predLast instanceof SwitchInstruction)) {
                 return false;
             }
         }
@@ -124,6 +124,8 @@ public class RemoveDeadBlock extends Optimizer {
                 if (br.getFalseBranch() == deadBlock) {
                     br.setFalseBranch(targetBlock);
                 }
+            } else if (predLast instanceof SwitchInstruction sw) {
+                sw.replaceTargetBlock(deadBlock, targetBlock);
             }
             
             // 维护 CFG 引用
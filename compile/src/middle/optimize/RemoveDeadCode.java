@@ -7,6 +7,7 @@ import middle.llvm.value.instruction.IRInstruction;
 import middle.llvm.value.instruction.JumpInstruction;
 import middle.llvm.value.instruction.ReturnInstruction;
 import middle.llvm.value.instruction.StoreInstruction;
+import middle.llvm.value.instruction.SwitchInstruction;
 import middle.llvm.value.instruction.PhiInstruction;
 import middle.llvm.value.IRBasicBlock;
 import middle.llvm.value.IRFunction;
@@ -337,6 +338,7 @@ public class RemoveDeadCode extends Optimizer {
         if (instr instanceof ReturnInstruction ||
                 instr instanceof BranchInstruction ||
                 instr instanceof JumpInstruction ||
+                instr instanceof SwitchInstruction ||
                 instr instanceof StoreInstruction) {
             return true;
         }
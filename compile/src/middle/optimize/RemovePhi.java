@@ -7,6 +7,7 @@ import middle.llvm.value.instruction.BranchInstruction;
 import middle.llvm.value.instruction.CopyInstruction;
 import middle.llvm.value.instruction.IRInstruction;
 import middle.llvm.value.instruction.JumpInstruction;
+import middle.llvm.value.instruction.SwitchInstruction;
 import middle.llvm.value.instruction.PhiInstruction;
 
 import java.util.*;
@@ -146,6 +147,8 @@ public class RemovePhi extends Optimizer {
                 jump.setTargetBlock(middleBlock);
                 replaced = true;
             }
+        } else if (terminator instanceof SwitchInstruction) {
+            replaced = ((SwitchInstruction) terminator).replaceTargetBlock(succ, middleBlock);
         }
 
         // 4. 维护前驱后继关系图 (CFG)
@@ -231,7 +234,7 @@ public class RemovePhi extends Optimizer {
         // 找到插入位置：在最后一条指令（通常是跳转/分支）之前
         if (!instrs.isEmpty()) {
             IRInstruction last = instrs.get(instrs.size() - 1);
-            if (last instanceof JumpInstruction || last instanceof BranchInstruction) {
+            if (last instanceof JumpInstruction || last instanceof BranchInstruction || last instanceof SwitchInstruction) {
                 insertPos = instrs.size() - 1;
             }
         }
@@ -6,6 +6,7 @@ import middle.llvm.value.instruction.BranchInstruction;
 import middle.llvm.value.instruction.IRInstruction;
 import middle.llvm.value.instruction.JumpInstruction;
 import middle.llvm.value.instruction.ReturnInstruction;
+import middle.llvm.value.instruction.SwitchInstruction;
 
 import java.util.HashSet;
 import java.util.Iterator;
@@ -77,6 +78,8 @@ public class RemoveUnReachCode extends Optimizer {
                         hasTerminator = true;
                     } else if (instr instanceof BranchInstruction) {
                         hasTerminator = true;
+                    } else if (instr instanceof SwitchInstruction) {
+                        hasTerminator = true;
                     } else if (instr instanceof ReturnInstruction) {
                         hasTerminator = true;
                     }
@@ -127,6 +130,11 @@ public class RemoveUnReachCode extends Optimizer {
             IRBasicBlock falseBlock = (IRBasicBlock) branchInstr.getFalseBranch();
             this.dfsBlock(trueBlock, visited);
             this.dfsBlock(falseBlock, visited);
+        } else if (lastInstr instanceof SwitchInstruction switchInstr) {
+            // 多路分支
+            for (IRBasicBlock targetBlock : switchInstr.getTargetBlocks()) {
+                this.dfsBlock(targetBlock, visited);
+            }
         }
     }
 
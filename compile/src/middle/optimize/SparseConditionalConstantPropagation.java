@@ -0,0 +1,437 @@
+package middle.optimize;
+
+import middle.llvm.UseDefChain;
+import middle.llvm.type.IRType;
+import middle.llvm.type.IntegerType;
+import middle.llvm.value.IRBasicBlock;
+import middle.llvm.value.IRFunction;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.constant.IntegerConstant;
+import middle.llvm.value.instruction.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 稀疏条件常量传播（SCCP）
+ *
+ * 目标：
+ * - LVN 只折叠操作数已经是常量的指令，常量经过 Phi 汇合、或分支条件要在传播后才变成常量时无能为力；
+ * - SCCP 同时传播"值是否为常量"与"边是否可执行"，只有可执行边带来的 Phi 输入参与汇合，
+ *   因此 `if (DEBUG) { ... }` 这类由常量开关控制的代码可以整段剪掉，剪掉后汇合点的 Phi 也能继续折叠。
+ *
+ * 格（每个 SSA 值一个）：
+ * - TOP：尚未确定（未访问到定义，或输入都还是 TOP）；
+ * - 常量 c；
+ * - BOTTOM：运行期才能确定（参数、load、call 的结果，或 Phi 汇合出不同常量）。
+ * 值只会沿 TOP → 常量 → BOTTOM 单向下降，保证两个工作表迭代收敛。
+ *
+ * 改写：
+ * - 格值为常量的指令用常量替换后删除；
+ * - 条件为常量的 `br` 改为 `br label`，`switch` 改为直接跳转，并从不再到达的后继 Phi 中删去本块；
+ * - 从未被标记为可执行的基本块整块删除。
+ *
+ * 示例：
+ * ```llvm
+ * entry:
+ *   br i1 true, label %b1, label %b2
+ * b1:
+ *   br label %b3
+ * b2:
+ *   %y = call i32 @getint()
+ *   br label %b3
+ * b3:
+ *   %x = phi i32 [ 1, %b1 ], [ %y, %b2 ]
+ *   %z = add i32 %x, 1
+ *   ret i32 %z
+ * ```
+ * 处理后（b2 不可执行，%x = 1，%z = 2）：
+ * ```llvm
+ * entry:
+ *   br label %b1
+ * b1:
+ *   br label %b3
+ * b3:
+ *   ret i32 2
+ * ```
+ */
+public class SparseConditionalConstantPropagation extends Optimizer {
+    /**
+     * 格值：TOP / BOTTOM 为单例，其余为常量
+     */
+    private static final class Lattice {
+        private static final Lattice TOP = new Lattice(false, 0);
+        private static final Lattice BOTTOM = new Lattice(true, 0);
+
+        private final boolean overdefined;
+        private final int constant;
+
+        private Lattice(boolean overdefined, int constant) {
+            this.overdefined = overdefined;
+            this.constant = constant;
+        }
+
+        private static Lattice of(int constant) {
+            return new Lattice(false, constant);
+        }
+
+        private boolean isTop() {
+            return this == TOP;
+        }
+
+        private boolean isConstant() {
+            return !overdefined && this != TOP;
+        }
+
+        /**
+         * 格上的交汇
+         */
+        private Lattice meet(Lattice other) {
+            if (this.isTop()) return other;
+            if (other.isTop()) return this;
+            if (this.overdefined || other.overdefined || this.constant != other.constant) return BOTTOM;
+            return this;
+        }
+
+        private boolean sameAs(Lattice other) {
+            if (this.isConstant() && other.isConstant()) return this.constant == other.constant;
+            return this == other;
+        }
+    }
+
+    // 当前函数内指令的格值，未出现的指令视为 TOP
+    private final Map<IRInstruction, Lattice> latticeMap = new HashMap<>();
+    // 指令所在的基本块
+    private final Map<IRInstruction, IRBasicBlock> instrBlock = new HashMap<>();
+    // 可执行的基本块与可执行边（from -> to 集合）
+    private final Set<IRBasicBlock> executableBlocks = new HashSet<>();
+    private final Map<IRBasicBlock, Set<IRBasicBlock>> executableEdges = new HashMap<>();
+    private final ArrayDeque<IRBasicBlock> blockWorklist = new ArrayDeque<>();
+    private final ArrayDeque<IRInstruction> instrWorklist = new ArrayDeque<>();
+
+    // 被替换为常量的指令数、被折叠的条件跳转数、被删除的基本块数
+    private int foldedCount = 0;
+    private int prunedBranchCount = 0;
+    private int removedBlockCount = 0;
+
+    @Override
+    public void optimize() {
+        for (IRFunction irFunction : irModule.getFunctionDefinitions()) {
+            if (irFunction.getBasicBlocks().isEmpty()) {
+                continue;
+            }
+            analyze(irFunction);
+            rewrite(irFunction);
+            latticeMap.clear();
+            instrBlock.clear();
+            executableBlocks.clear();
+            executableEdges.clear();
+        }
+    }
+
+    // ==================== 分析 ====================
+
+    private void analyze(IRFunction irFunction) {
+        for (IRBasicBlock block : irFunction.getBasicBlocks()) {
+            for (IRInstruction instr : block.getAllInstructions()) {
+                instrBlock.put(instr, block);
+            }
+        }
+
+        IRBasicBlock entry = irFunction.getBasicBlocks().get(0);
+        executableBlocks.add(entry);
+        blockWorklist.add(entry);
+
+        while (!blockWorklist.isEmpty() || !instrWorklist.isEmpty()) {
+            while (!blockWorklist.isEmpty()) {
+                // 块首次可执行：其中所有指令都要求值一次
+                for (IRInstruction instr : blockWorklist.poll().getAllInstructions()) {
+                    visit(instr);
+                }
+            }
+            while (!instrWorklist.isEmpty()) {
+                IRInstruction instr = instrWorklist.poll();
+                if (executableBlocks.contains(instrBlock.get(instr))) {
+                    visit(instr);
+                }
+            }
+        }
+    }
+
+    /**
+     * 对一条指令求值：更新格值，或对终结指令标记可执行边
+     */
+    private void visit(IRInstruction instr) {
+        IRBasicBlock block = instrBlock.get(instr);
+        if (instr instanceof BranchInstruction br) {
+            Lattice cond = getLattice(br.getCondition());
+            if (cond.isConstant()) {
+                markEdge(block, (IRBasicBlock) (cond.constant != 0 ? br.getTrueBranch() : br.getFalseBranch()));
+            } else if (cond.overdefined) {
+                markEdge(block, (IRBasicBlock) br.getTrueBranch());
+                markEdge(block, (IRBasicBlock) br.getFalseBranch());
+            }
+        } else if (instr instanceof JumpInstruction jump) {
+            markEdge(block, (IRBasicBlock) jump.getTargetBlock());
+        } else if (instr instanceof SwitchInstruction sw) {
+            Lattice cond = getLattice(sw.getCondition());
+            if (cond.isConstant()) {
+                markEdge(block, getSwitchTarget(sw, cond.constant));
+            } else if (cond.overdefined) {
+                for (IRBasicBlock target : sw.getTargetBlocks()) {
+                    markEdge(block, target);
+                }
+            }
+        } else if (instr instanceof PhiInstruction phi) {
+            Lattice result = Lattice.TOP;
+            for (IRBasicBlock pred : phi.getPredecessorBlocks()) {
+                Set<IRBasicBlock> edges = executableEdges.get(pred);
+                if (edges != null && edges.contains(block)) {
+                    result = result.meet(getLattice(phi.getIncomingValue(pred)));
+                }
+            }
+            update(instr, result);
+        } else if (instr instanceof BinaryOperationInstruction binOp) {
+            update(instr, evaluateBinary(binOp));
+        } else if (instr instanceof CompareInstruction cmp) {
+            update(instr, evaluateCompare(cmp));
+        } else if (instr instanceof ZeroExtendInstruction zext) {
+            update(instr, evaluateCast(zext.getOriginalValue(), zext.getSourceType()));
+        } else if (instr instanceof TruncateInstruction trunc) {
+            update(instr, evaluateCast(trunc.getOriginalValue(), trunc.getTargetType()));
+        } else {
+            // load / call / alloca / gep 等：结果只能在运行期确定
+            update(instr, Lattice.BOTTOM);
+        }
+    }
+
+    /**
+     * 标记边 from -> to 可执行；目标块首次可执行时整块入队，否则只需重算其 Phi
+     */
+    private void markEdge(IRBasicBlock from, IRBasicBlock to) {
+        if (!executableEdges.computeIfAbsent(from, k -> new HashSet<>()).add(to)) {
+            return;
+        }
+        if (executableBlocks.add(to)) {
+            blockWorklist.add(to);
+        } else {
+            instrWorklist.addAll(to.getPhiInstructions());
+        }
+    }
+
+    /**
+     * 格值下降时，把所有使用者加入工作表
+     */
+    private void update(IRInstruction instr, Lattice value) {
+        Lattice old = latticeMap.getOrDefault(instr, Lattice.TOP);
+        if (old.sameAs(value)) {
+            return;
+        }
+        latticeMap.put(instr, value);
+        for (UseDefChain use : instr.getUseList()) {
+            if (use.user() instanceof IRInstruction user && instrBlock.containsKey(user)) {
+                instrWorklist.add(user);
+            }
+        }
+    }
+
+    private Lattice getLattice(IRValue value) {
+        if (value == null) {
+            return Lattice.TOP;
+        }
+        if (value instanceof IntegerConstant constant) {
+            return Lattice.of(constant.getConstantValue());
+        }
+        if (value instanceof IRInstruction instr && instrBlock.containsKey(instr)) {
+            return latticeMap.getOrDefault(instr, Lattice.TOP);
+        }
+        // 参数、全局变量等
+        return Lattice.BOTTOM;
+    }
+
+    private Lattice evaluateBinary(BinaryOperationInstruction binOp) {
+        Lattice left = getLattice(binOp.getLeftOperand());
+        Lattice right = getLattice(binOp.getRightOperand());
+        // x * 0 与另一侧无关
+        if (binOp.getOperator() == BinaryOperationInstruction.BinaryOperator.MUL
+                && (isZero(left) || isZero(right))) {
+            return Lattice.of(0);
+        }
+        if (left.overdefined || right.overdefined) return Lattice.BOTTOM;
+        if (left.isTop() || right.isTop()) return Lattice.TOP;
+
+        int l = left.constant;
+        int r = right.constant;
+        switch (binOp.getOperator()) {
+            case ADD: return Lattice.of(l + r);
+            case SUB: return Lattice.of(l - r);
+            case MUL: return Lattice.of(l * r);
+            case SDIV: return r == 0 ? Lattice.BOTTOM : Lattice.of(l / r);
+            case SREM: return r == 0 ? Lattice.BOTTOM : Lattice.of(l % r);
+            case BITAND: return Lattice.of(l & r);
+            case BITOR: return Lattice.of(l | r);
+            case BITXOR: return Lattice.of(l ^ r);
+            case SHL: return Lattice.of(l << r);
+            case ASHR: return Lattice.of(l >> r);
+            default: return Lattice.BOTTOM;
+        }
+    }
+
+    private Lattice evaluateCompare(CompareInstruction cmp) {
+        Lattice left = getLattice(cmp.getLeftOperand());
+        Lattice right = getLattice(cmp.getRightOperand());
+        if (left.overdefined || right.overdefined) return Lattice.BOTTOM;
+        if (left.isTop() || right.isTop()) return Lattice.TOP;
+
+        int l = left.constant;
+        int r = right.constant;
+        boolean result = switch (cmp.getCondition()) {
+            case EQ -> l == r;
+            case NE -> l != r;
+            case SGT -> l > r;
+            case SGE -> l >= r;
+            case SLT -> l < r;
+            case SLE -> l <= r;
+        };
+        return Lattice.of(result ? 1 : 0);
+    }
+
+    /**
+     * zext 按源类型、trunc 按目标类型截取低位
+     */
+    private Lattice evaluateCast(IRValue source, IRType narrowType) {
+        Lattice value = getLattice(source);
+        if (!value.isConstant()) return value;
+        if (!(narrowType instanceof IntegerType type) || type.getBitWidth() >= 32) {
+            return Lattice.BOTTOM;
+        }
+        return Lattice.of(value.constant & ((1 << type.getBitWidth()) - 1));
+    }
+
+    private boolean isZero(Lattice value) {
+        return value.isConstant() && value.constant == 0;
+    }
+
+    private IRBasicBlock getSwitchTarget(SwitchInstruction sw, int value) {
+        for (int i = 0; i < sw.getCaseCount(); i++) {
+            if (sw.getCaseValue(i) == value) {
+                return (IRBasicBlock) sw.getCaseBlock(i);
+            }
+        }
+        return (IRBasicBlock) sw.getDefaultBlock();
+    }
+
+    // ==================== 改写 ====================
+
+    private void rewrite(IRFunction irFunction) {
+        // 1. 常量替换
+        for (IRBasicBlock block : irFunction.getBasicBlocks()) {
+            if (!executableBlocks.contains(block)) {
+                continue;
+            }
+            Iterator<IRInstruction> iterator = block.getAllInstructions().iterator();
+            while (iterator.hasNext()) {
+                IRInstruction instr = iterator.next();
+                Lattice value = latticeMap.get(instr);
+                if (value == null || !value.isConstant() || !(instr.getType() instanceof IntegerType type)) {
+                    continue;
+                }
+                instr.replaceAllUsesWith(new IntegerConstant(type, value.constant));
+                instr.clearAllOperands();
+                iterator.remove();
+                foldedCount++;
+            }
+        }
+
+        // 2. 只剩一条可执行出边的条件跳转改为无条件跳转
+        for (IRBasicBlock block : irFunction.getBasicBlocks()) {
+            if (!executableBlocks.contains(block)) {
+                continue;
+            }
+            IRInstruction last = block.getLastInstruction();
+            if (!(last instanceof BranchInstruction) && !(last instanceof SwitchInstruction)) {
+                continue;
+            }
+            Set<IRBasicBlock> edges = executableEdges.get(block);
+            if (edges == null || edges.size() != 1) {
+                continue;
+            }
+            IRBasicBlock target = edges.iterator().next();
+            List<IRBasicBlock> oldTargets = new ArrayList<>();
+            if (last instanceof BranchInstruction br) {
+                oldTargets.add((IRBasicBlock) br.getTrueBranch());
+                oldTargets.add((IRBasicBlock) br.getFalseBranch());
+            } else {
+                oldTargets.addAll(((SwitchInstruction) last).getTargetBlocks());
+            }
+            for (IRBasicBlock old : oldTargets) {
+                if (old != target) {
+                    for (PhiInstruction phi : old.getPhiInstructions()) {
+                        phi.removeIncomingBlock(block);
+                    }
+                }
+            }
+            ListIterator<IRInstruction> iterator = block.getAllInstructions().listIterator(block.getAllInstructions().size() - 1);
+            iterator.next();
+            last.clearAllOperands();
+            iterator.set(new JumpInstruction(block, target));
+            prunedBranchCount++;
+        }
+
+        // 3. 删除不可执行的基本块
+        Iterator<IRBasicBlock> blockIterator = irFunction.getBasicBlocks().iterator();
+        while (blockIterator.hasNext()) {
+            IRBasicBlock block = blockIterator.next();
+            if (executableBlocks.contains(block)) {
+                continue;
+            }
+            for (IRBasicBlock succ : getTargets(block.getLastInstruction())) {
+                for (PhiInstruction phi : succ.getPhiInstructions()) {
+                    phi.removeIncomingBlock(block);
+                }
+            }
+            for (IRInstruction instr : block.getAllInstructions()) {
+                instr.clearAllOperands();
+            }
+            blockIterator.remove();
+            removedBlockCount++;
+        }
+    }
+
+    private List<IRBasicBlock> getTargets(IRInstruction terminator) {
+        List<IRBasicBlock> targets = new ArrayList<>();
+        if (terminator instanceof BranchInstruction br) {
+            targets.add((IRBasicBlock) br.getTrueBranch());
+            targets.add((IRBasicBlock) br.getFalseBranch());
+        } else if (terminator instanceof JumpInstruction jump) {
+            targets.add((IRBasicBlock) jump.getTargetBlock());
+        } else if (terminator instanceof SwitchInstruction sw) {
+            targets.addAll(sw.getTargetBlocks());
+        }
+        return targets;
+    }
+
+    public int getFoldedCount() {
+        return foldedCount;
+    }
+
+    public int getPrunedBranchCount() {
+        return prunedBranchCount;
+    }
+
+    public int getRemovedBlockCount() {
+        return removedBlockCount;
+    }
+
+    @Override
+    public String OptimizerName() {
+        return "SparseConditionalConstantPropagation";
+    }
+}
@@ -0,0 +1,202 @@
+package middle.optimize;
+
+import middle.llvm.IRInstructionFactory;
+import middle.llvm.type.PointerType;
+import middle.llvm.value.IRBasicBlock;
+import middle.llvm.value.IRFunction;
+import middle.llvm.value.IRFunctionParameter;
+import middle.llvm.value.IRValue;
+import middle.llvm.value.instruction.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * 尾递归消除
+ *
+ * 动机：
+ * - gcd、累乘、二分查找这类函数的自调用紧跟在 ret 前，调用返回后没有任何剩余工作；
+ * - 每一层递归都要付出后端调用序列（保存寄存器、$ra、调整栈帧）的开销，递归过深还会耗尽 MARS 的栈。
+ *
+ * 识别（SSA 形式，MemToReg 之后）：
+ * - `%r = call @self(...)` 后紧跟 `ret %r`；
+ * - 无返回值函数中 `call @self(...)` 后紧跟 `ret void`。
+ *
+ * 改写：
+ * - 新建入口块，原入口块成为循环头，为每个形参在循环头插入 Phi：[形参, 新入口], [实参, 尾调用块]...；
+ * - 函数体内对形参的使用改为对 Phi 的使用，尾调用 + ret 改为跳回循环头；
+ * - 原入口块中的 alloca 移到新入口块。
+ * 之后的 LICM 与寄存器分配会把它当作普通循环处理。
+ *
+ * 限制：函数有局部数组且尾调用传递指针实参时不改写——递归时每层各有一份数组，
+ * 改成循环后只剩一份，实参可能正指向这份数组。
+ *
+ * 示例：
+ * ```llvm
+ * define i32 @gcd(i32 %a0, i32 %a1) {
+ * b0:
+ *   %cmp = icmp eq i32 %a1, 0
+ *   br i1 %cmp, label %b1, label %b2
+ * b1:
+ *   ret i32 %a0
+ * b2:
+ *   %rem = srem i32 %a0, %a1
+ *   %call = call i32 @gcd(i32 %a1, i32 %rem)
+ *   ret i32 %call
+ * }
+ * ```
+ * 处理后：
+ * ```llvm
+ * define i32 @gcd(i32 %a0, i32 %a1) {
+ * b9:
+ *   br label %b0
+ * b0:
+ *   %phi1 = phi i32 [ %a0, %b9 ], [ %phi2, %b2 ]
+ *   %phi2 = phi i32 [ %a1, %b9 ], [ %rem, %b2 ]
+ *   %cmp = icmp eq i32 %phi2, 0
+ *   br i1 %cmp, label %b1, label %b2
+ * b1:
+ *   ret i32 %phi1
+ * b2:
+ *   %rem = srem i32 %phi1, %phi2
+ *   br label %b0
+ * }
+ * ```
+ */
+public class TailRecursionElimination extends Optimizer {
+    private final IRInstructionFactory factory;
+
+    // 被消除的尾调用个数
+    private int eliminatedCount = 0;
+
+    public TailRecursionElimination(IRInstructionFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public void optimize() {
+        for (IRFunction irFunction : irModule.getFunctionDefinitions()) {
+            if (irFunction.getBasicBlocks().isEmpty()) {
+                continue;
+            }
+            List<IRBasicBlock> tailBlocks = findTailCallBlocks(irFunction);
+            if (!tailBlocks.isEmpty()) {
+                eliminate(irFunction, tailBlocks);
+            }
+        }
+    }
+
+    /**
+     * 找出以"自调用 + ret"结尾的基本块
+     */
+    private List<IRBasicBlock> findTailCallBlocks(IRFunction irFunction) {
+        boolean hasAlloca = false;
+        for (IRInstruction instr : irFunction.getEntryBlock().getAllInstructions()) {
+            if (instr instanceof AllocaInstruction) {
+                hasAlloca = true;
+                break;
+            }
+        }
+        List<IRBasicBlock> tailBlocks = new ArrayList<>();
+        for (IRBasicBlock block : irFunction.getBasicBlocks()) {
+            CallInstruction call = getTailCall(irFunction, block);
+            if (call == null) {
+                continue;
+            }
+            if (hasAlloca && hasPointerArgument(call)) {
+                return new ArrayList<>();
+            }
+            tailBlocks.add(block);
+        }
+        return tailBlocks;
+    }
+
+    private CallInstruction getTailCall(IRFunction irFunction, IRBasicBlock block) {
+        LinkedList<IRInstruction> instructions = block.getAllInstructions();
+        if (instructions.size() < 2 || !(instructions.getLast() instanceof ReturnInstruction ret)) {
+            return null;
+        }
+        if (!(instructions.get(instructions.size() - 2) instanceof CallInstruction call)
+                || call.getCalledFunction() != irFunction) {
+            return null;
+        }
+        if (ret.hasReturnValue()) {
+            // 调用结果只能被这条 ret 使用
+            if (ret.getReturnValue() != call || call.getUseList().size() != 1) {
+                return null;
+            }
+        } else if (call.hasReturnValue() && !call.getUseList().isEmpty()) {
+            return null;
+        }
+        return call;
+    }
+
+    private boolean hasPointerArgument(CallInstruction call) {
+        for (IRValue arg : call.getArguments()) {
+            if (arg.getType() instanceof PointerType) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void eliminate(IRFunction irFunction, List<IRBasicBlock> tailBlocks) {
+        IRBasicBlock header = irFunction.getEntryBlock();
+
+        // 1. 新入口块：承接 alloca，随后进入循环头
+        IRBasicBlock newEntry = new IRBasicBlock(irFunction, factory.getNextNameCounter());
+        Iterator<IRInstruction> iterator = header.getAllInstructions().iterator();
+        while (iterator.hasNext()) {
+            IRInstruction instr = iterator.next();
+            if (instr instanceof AllocaInstruction) {
+                iterator.remove();
+                instr.setContainer(newEntry);
+                newEntry.addInstructionToTail(instr);
+            }
+        }
+        newEntry.addInstructionToTail(new JumpInstruction(newEntry, header));
+        irFunction.getBasicBlocks().addFirst(newEntry);
+
+        // 2. 形参 Phi：先让所有使用改指 Phi，再填入各前驱的值
+        List<IRBasicBlock> preds = new ArrayList<>();
+        preds.add(newEntry);
+        preds.addAll(tailBlocks);
+        List<IRFunctionParameter> params = irFunction.getParameters();
+        List<PhiInstruction> phis = new ArrayList<>();
+        for (IRFunctionParameter param : params) {
+            PhiInstruction phi = new PhiInstruction(header, param.getType(), preds);
+            param.replaceAllUsesWith(phi);
+            phis.add(phi);
+        }
+        for (int i = phis.size() - 1; i >= 0; i--) {
+            header.addInstructionToHead(phis.get(i));
+            phis.get(i).fillIncomingValue(params.get(i), newEntry);
+        }
+
+        // 3. 尾调用 + ret 改为跳回循环头
+        for (IRBasicBlock block : tailBlocks) {
+            LinkedList<IRInstruction> instructions = block.getAllInstructions();
+            IRInstruction ret = instructions.removeLast();
+            CallInstruction call = (CallInstruction) instructions.removeLast();
+            List<IRValue> args = call.getArguments();
+            for (int i = 0; i < phis.size(); i++) {
+                phis.get(i).fillIncomingValue(args.get(i), block);
+            }
+            ret.clearAllOperands();
+            call.clearAllOperands();
+            block.addInstructionToTail(new JumpInstruction(block, header));
+            eliminatedCount++;
+        }
+    }
+
+    public int getEliminatedCount() {
+        return eliminatedCount;
+    }
+
+    @Override
+    public String OptimizerName() {
+        return "TailRecursionElimination";
+    }
+}
@@ -3,4 +3,10 @@ package utils;
 public class Config {
     public static final boolean printCommentInMips = true;
     public static final boolean regSaveOptimizeFlag = true;
+    // 输出先写入 .data 中的缓冲区，满、读入前和程序退出时才用一次 syscall 4 输出
+    public static final boolean bufferedOutputFlag = false;
+    // 常量迭代次数的循环部分展开时每轮执行的循环体份数，小于 2 时只做完全展开
+    public static final int loopUnrollFactor = 4;
+    // 寄存器分配：true 使用图着色（合并 Phi 拷贝），false 使用线性扫描
+    public static final boolean graphColoringRegAllocFlag = true;
 }
@@ -0,0 +1,199 @@
+package back.mips;
+
+import back.mips.register.Reg;
+import back.mips.register.RegisterFile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 常量除法/取余序列的差分检查
+ * <p>对每个走魔数路径的除数，取 MipsCodeGenerator.makeDivByConstant / makeRemByConstant 实际生成的指令，
+ * 解释执行后与 Java 的 / 和 % 对照，覆盖魔数表与符号修正</p>
+ * <ul>
+ *   <li>除数：±3..±2048 中所有非 2 的幂，±(2^k ± 1)，以及 INT_MAX、INT_MIN + 1 等边界</li>
+ *   <li>被除数：[-65536, 65536] 全部取值（|d| &lt;= 64 时）或 [-4096, 4096]，
+ *       INT_MIN/INT_MAX 附近、d 的倍数附近，以及固定种子的随机值</li>
+ * </ul>
+ * 运行（在 compile 目录下）：
+ * <pre>
+ * javac -encoding UTF-8 -d out $(find src test -name '*.java')
+ * java -cp out back.mips.DivByConstantCheck
+ * </pre>
+ * 全部一致时输出统计并以 0 退出，否则打印首个反例并以 1 退出
+ */
+public class DivByConstantCheck {
+    private static final Reg X = RegisterFile.SCRATCH_OPERAND0;
+    private static final Reg DEST = Reg.t3;
+
+    private static final int RANDOM_DIVIDENDS = 20000;
+
+    public static void main(String[] args) {
+        MipsCodeGenerator generator = MipsCodeGenerator.getInstance();
+        Random random = new Random(20241019L);
+        long checked = 0;
+        int divisorCount = 0;
+        for (int d : divisors()) {
+            if (!MipsCodeGenerator.isMagicDivisor(d)) {
+                continue;
+            }
+            divisorCount++;
+            Program div = emit(generator, true, d);
+            Program rem = emit(generator, false, d);
+            for (int x : dividends(d, random)) {
+                check(div, x, x / d, "/", d);
+                check(rem, x, x % d, "%", d);
+                checked++;
+            }
+        }
+        System.out.printf("OK: %d divisors, %d dividends each for / and %%%n", divisorCount, checked);
+    }
+
+    private static void check(Program program, int x, int expected, String op, int d) {
+        int actual = program.run(x);
+        if (actual != expected) {
+            int[] magic = MipsCodeGenerator.computeSignedMagic(d);
+            System.out.printf("MISMATCH: %d %s %d = %d, sequence gives %d (M = %d, s = %d)%n%s",
+                    x, op, d, expected, actual, magic[0], magic[1], program);
+            System.exit(1);
+        }
+    }
+
+    private static Program emit(MipsCodeGenerator generator, boolean division, int d) {
+        generator.instructions.clear();
+        if (division) {
+            generator.makeDivByConstant(DEST, X, d);
+        } else {
+            generator.makeRemByConstant(DEST, X, d);
+        }
+        Program program = new Program(generator.instructions);
+        generator.instructions.clear();
+        return program;
+    }
+
+    private static Set<Integer> divisors() {
+        Set<Integer> result = new LinkedHashSet<>();
+        for (int d = 3; d <= 2048; d++) {
+            result.add(d);
+            result.add(-d);
+        }
+        for (int k = 2; k < 31; k++) {
+            for (int d : new int[]{(1 << k) - 1, (1 << k) + 1}) {
+                result.add(d);
+                result.add(-d);
+            }
+        }
+        int[] edges = {Integer.MAX_VALUE, -Integer.MAX_VALUE, Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1,
+                0x40000001, -0x40000001, 0x3FFFFFFF, 641, 6700417, 1000000007, 10, 100, 1000, 10000, 1000000};
+        for (int d : edges) {
+            result.add(d);
+            result.add(-d);
+        }
+        return result;
+    }
+
+    private static List<Integer> dividends(int d, Random random) {
+        List<Integer> result = new ArrayList<>();
+        int range = Math.abs(d) <= 64 ? 65536 : 4096;
+        for (int x = -range; x <= range; x++) {
+            result.add(x);
+        }
+        for (int delta = 0; delta < 64; delta++) {
+            result.add(Integer.MIN_VALUE + delta);
+            result.add(Integer.MAX_VALUE - delta);
+        }
+        // d 的倍数附近（商变化处）
+        long ad = Math.abs((long) d);
+        for (long q : new long[]{1, 2, 3, Integer.MAX_VALUE / ad, Integer.MAX_VALUE / ad - 1}) {
+            for (long offset = -1; offset <= 1; offset++) {
+                long x = q * ad + offset;
+                if (x <= Integer.MAX_VALUE) {
+                    result.add((int) x);
+                    result.add((int) -x);
+                }
+            }
+        }
+        for (int i = 0; i < RANDOM_DIVIDENDS; i++) {
+            result.add(random.nextInt());
+        }
+        return result;
+    }
+
+    /**
+     * 生成序列的解释器，只支持常量除法/取余会用到的指令
+     */
+    private static class Program {
+        private static final Map<String, Integer> REG_INDEX = new HashMap<>();
+
+        static {
+            String[] names = {"zero", "at", "v0", "v1", "a0", "a1", "a2", "a3",
+                    "t0", "t1", "t2", "t3", "t4", "t5", "t6", "t7",
+                    "s0", "s1", "s2", "s3", "s4", "s5", "s6", "s7",
+                    "t8", "t9", "k0", "k1", "gp", "sp", "fp", "ra"};
+            for (int i = 0; i < names.length; i++) {
+                REG_INDEX.put("$" + names[i], i);
+            }
+        }
+
+        private final List<String> text = new ArrayList<>();
+        private final List<String[]> decoded = new ArrayList<>();
+
+        Program(List<InstrM> instructions) {
+            for (InstrM instr : instructions) {
+                String line = instr.toString().trim();
+                text.add(line);
+                decoded.add(line.split("[\\s,]+"));
+            }
+        }
+
+        int run(int x) {
+            int[] reg = new int[32];
+            int hi = 0, lo = 0;
+            reg[REG_INDEX.get(X.toString())] = x;
+            for (String[] ins : decoded) {
+                switch (ins[0]) {
+                    case "li" -> write(reg, ins[1], Integer.parseInt(ins[2]));
+                    case "mult" -> {
+                        long product = (long) read(reg, ins[1]) * read(reg, ins[2]);
+                        hi = (int) (product >> 32);
+                        lo = (int) product;
+                    }
+                    case "mfhi" -> write(reg, ins[1], hi);
+                    case "mflo" -> write(reg, ins[1], lo);
+                    case "addu" -> write(reg, ins[1], read(reg, ins[2]) + read(reg, ins[3]));
+                    case "subu" -> write(reg, ins[1], read(reg, ins[2]) - read(reg, ins[3]));
+                    case "sra" -> write(reg, ins[1], read(reg, ins[2]) >> Integer.parseInt(ins[3]));
+                    case "srl" -> write(reg, ins[1], read(reg, ins[2]) >>> Integer.parseInt(ins[3]));
+                    case "sll" -> write(reg, ins[1], read(reg, ins[2]) << Integer.parseInt(ins[3]));
+                    default -> throw new IllegalStateException("unsupported instruction: " + String.join(" ", ins));
+                }
+            }
+            return reg[REG_INDEX.get(DEST.toString())];
+        }
+
+        private static int read(int[] reg, String name) {
+            return reg[REG_INDEX.get(name)];
+        }
+
+        private static void write(int[] reg, String name, int value) {
+            int index = REG_INDEX.get(name);
+            if (index != 0) {
+                reg[index] = value;
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (String line : text) {
+                builder.append("    ").append(line).append('\n');
+            }
+            return builder.toString();
+        }
+    }
+}